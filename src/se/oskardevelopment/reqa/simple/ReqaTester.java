@@ -18,22 +18,52 @@
  **/
 package se.oskardevelopment.reqa.simple;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.junit.runner.Computer;
+import org.junit.runner.Description;
 import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
 import org.junit.runner.Result;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
 
 import se.oskardevelopment.reqa.simple.listener.ReqaListener;
 import se.oskardevelopment.reqa.simple.listener.TestListener;
+import se.oskardevelopment.reqa.simple.listener.Watchdog;
+import se.oskardevelopment.reqa.simple.model.FailureTrace;
+import se.oskardevelopment.reqa.simple.model.ResultStore;
 import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.SpillingSession;
+import se.oskardevelopment.reqa.simple.presenter.AbstractPresenter;
 import se.oskardevelopment.reqa.simple.presenter.Json;
+import se.oskardevelopment.reqa.simple.presenter.SessionSaver;
+import se.oskardevelopment.reqa.simple.runner.FailFast;
+import se.oskardevelopment.reqa.simple.runner.ForkedRun;
+import se.oskardevelopment.reqa.simple.runner.MethodFilter;
+import se.oskardevelopment.reqa.simple.runner.PhasedRunner;
+import se.oskardevelopment.reqa.simple.runner.PipelinedRun;
+import se.oskardevelopment.reqa.simple.runner.RetryPolicy;
+import se.oskardevelopment.reqa.simple.runner.Scheduler;
+import se.oskardevelopment.reqa.simple.runner.TestImpact;
+import se.oskardevelopment.reqa.simple.runner.WatchDaemon;
 import se.oskardevelopment.reqa.simple.scanner.AllTestScanner;
+import se.oskardevelopment.reqa.simple.scanner.RequirementIndex;
+import se.oskardevelopment.reqa.simple.scanner.ScannedClass;
 import se.oskardevelopment.reqa.simple.scanner.Scanner;
+import se.oskardevelopment.reqa.simple.utility.OutputHelper;
 
 /**
  * ReqaTester is ReQA's version of JUnitCore, used to
@@ -54,6 +84,22 @@ public class ReqaTester {
 	protected List<TestListener> listeners;
 	// Last triggered session.
 	protected Session lastSession = null;
+	// Computer deciding how the classes are run, serial by default.
+	protected Computer computer = Computer.serial();
+	// Scheduler deciding the order the classes are run in, as scanned by default.
+	protected Scheduler scheduler = Scheduler.scanned();
+	// If the remaining tests of a failed requirement are skipped, see FailFast.
+	protected boolean failFast = false;
+	// Failed requirements aborting a run, 0 if runs are never aborted.
+	protected int maxFailedRequirements = 0;
+	// If the setup, body and teardown of tests are timed, see PhasedRunner.
+	protected boolean phased = false;
+	// Amount of frames kept of each failure trace, see FailureTrace.
+	protected int maxFailureFrames = FailureTrace.MAX_FRAMES;
+	// Finished tests kept in memory, 0 if all are kept, see SpillingSession.
+	protected int maxTestsInMemory = 0;
+	// If the session of a finished run is compacted, see ResultStore.
+	protected boolean compactResults = false;
 	
 	/**
 	 * ReqaTester constructor used when for default functionality.
@@ -126,7 +172,7 @@ public class ReqaTester {
 	 * @return Result of the run.
 	 */
 	public Result run() {
-		return run(scanner.findClasses().toArray(new Class[0]));
+		return run(findClasses().toArray(new Class[0]));
 	}
 	
 	/**
@@ -137,7 +183,7 @@ public class ReqaTester {
 	 * @return Result describing the outcome of the run.
 	 */
 	public Result run(ReqaListener listener) {
-		return run(listener, scanner.findClasses().toArray(new Class[0]));
+		return run(listener, findClasses().toArray(new Class[0]));
 	}
 	
 	/**
@@ -147,13 +193,413 @@ public class ReqaTester {
 	 * @return Result describing the outcome of the run.
 	 */
 	public Result run(Class<?>... klazzez) {
-		Session session = new Session();
+		return run(createListener(), klazzez);
+	}
+	
+	/**
+	 * pipelinedRun uses the scanner to find classes to test and verify,
+	 * running each class as soon as it's found instead of after the scanning.
+	 * The classes are run in the order they are found.
+	 * @return Result describing the outcome of the run.
+	 */
+	public Result pipelinedRun() {
+		return pipelinedRun(createListener());
+	}
+	
+	/**
+	 * pipelinedRun uses the scanner to find classes to test and verify,
+	 * running each class as soon as it's found instead of after the scanning,
+	 * using a custom ReqaListener for triggering events.
+	 * @param listener ReqaListener that manages the ReqaTester's
+	 * listeners and state.
+	 * @return Result describing the outcome of the run.
+	 */
+	public Result pipelinedRun(ReqaListener listener) {
+		setLastSession(listener.getSession());
+		LOGGER.debug("Starting a pipelined run.");
+		return new PipelinedRun(scanner, computer).run(listener);
+	}
+	
+	/**
+	 * forkedRun uses the scanner to find classes to test and verify,
+	 * running them in worker JVMs instead of this JVM.
+	 * @param forked ForkedRun configuring the worker JVMs.
+	 * @return Result describing the outcome of the run.
+	 */
+	public Result forkedRun(ForkedRun forked) {
+		return forkedRun(createListener(), forked);
+	}
+	
+	/**
+	 * forkedRun uses the scanner to find classes to test and verify,
+	 * running them in worker JVMs instead of this JVM, using a custom
+	 * ReqaListener for triggering events.
+	 * @param listener ReqaListener that manages the ReqaTester's
+	 * listeners and state.
+	 * @param forked ForkedRun configuring the worker JVMs.
+	 * @return Result describing the outcome of the run.
+	 */
+	public Result forkedRun(ReqaListener listener, ForkedRun forked) {
+		List<Class<?>> klazzez = findClasses();
+		setLastSession(listener.getSession());
+		LOGGER.debug("Starting a forked run with #{} classes: {}", klazzez.size(), klazzez);
+		return forked.run(klazzez, listener);
+	}
+	
+	/**
+	 * shardRun uses the scanner to find classes to test and verify, only
+	 * running the classes of one shard, split by the scheduler.
+	 * Every shard of a run computes the same split without coordinating,
+	 * a HistoryScheduler gives shards of about the same duration.
+	 * The sessions of the shards can be merged with Session.merge(Session).
+	 * @param shard int index of the shard, from zero.
+	 * @param shards int amount of shards.
+	 * @return Result describing the outcome of the shard's run.
+	 * @throws IllegalArgumentException if the shard isn't one of the shards.
+	 */
+	public Result shardRun(int shard, int shards) {
+		return shardRun(createListener(), shard, shards);
+	}
+	
+	/**
+	 * shardRun uses the scanner to find classes to test and verify, only
+	 * running the classes of one shard, using a custom ReqaListener
+	 * for triggering events.
+	 * @param listener ReqaListener that manages the ReqaTester's
+	 * listeners and state.
+	 * @param shard int index of the shard, from zero.
+	 * @param shards int amount of shards.
+	 * @return Result describing the outcome of the shard's run.
+	 * @throws IllegalArgumentException if the shard isn't one of the shards.
+	 */
+	public Result shardRun(ReqaListener listener, int shard, int shards) {
+		List<Class<?>> klazzez = scheduler.shard(scanner.findClasses(), shard, shards);
+		listener.getSession().setShard(shard, shards);
+		return run(listener, klazzez.toArray(new Class[0]));
+	}
+	
+	/**
+	 * watch starts watching the class directories of the class path on a
+	 * new thread, running the tests affected by each change with the ReqaTester.
+	 * @return WatchDaemon that is watching, close it to stop watching.
+	 * @throws IOException if the directories couldn't be watched.
+	 */
+	public WatchDaemon watch() throws IOException {
+		WatchDaemon daemon = new WatchDaemon(this);
+		Thread thread = new Thread(daemon, "reqa-watch");
+		thread.setDaemon(true);
+		thread.start();
+		return daemon;
+	}
+	
+	/**
+	 * runRequirements runs only the tests verifying given requirements,
+	 * found through a RequirementIndex of the scanned classes.
+	 * The Session only verifies the given requirements.
+	 * @param requirements String... IDs of the requirements to verify.
+	 * @return Result describing the outcome of the run.
+	 */
+	public Result runRequirements(String... requirements) {
+		return runRequirements(createListener(), requirements);
+	}
+	
+	/**
+	 * runRequirements runs only the tests verifying given requirements,
+	 * using a custom ReqaListener for triggering events.
+	 * Each class is run with a single filtered runner for all its
+	 * methods verifying any of the requirements.
+	 * @param listener ReqaListener that manages the ReqaTester's
+	 * listeners and state.
+	 * @param requirements String... IDs of the requirements to verify.
+	 * @return Result describing the outcome of the run.
+	 */
+	public Result runRequirements(ReqaListener listener, String... requirements) {
+		Map<ScannedClass, Set<String>> found = new RequirementIndex(scanner.scanClasses()).find(Arrays.asList(requirements));
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		final Map<Class<?>, Filter> filters = new LinkedHashMap<Class<?>, Filter>();
+		for(Map.Entry<ScannedClass, Set<String>> scanned : found.entrySet()) {
+			Class<?> klazz = scanned.getKey().load(loader);
+			if(klazz != null) {
+				filters.put(klazz, new MethodFilter(scanned.getValue()));
+			}
+		}
+		listener.getSession().setScope(Arrays.asList(requirements));
+		LOGGER.debug("Starting a run of requirements {} with #{} classes: {}", requirements, filters.size(), filters.keySet());
+		return run(listener, filters);
+	}
+	
+	/**
+	 * impactRun uses the scanner to find classes to test and verify, only
+	 * running the tests that may have changed since the last saved session,
+	 * see TestImpact. The results of the other tests are carried forward.
+	 * All tests are run if no session is saved.
+	 * @return Result describing the outcome of the tests that are run.
+	 */
+	public Result impactRun() {
+		return impactRun(createListener(), getLastSavedSession());
+	}
+	
+	/**
+	 * impactRun uses the scanner to find classes to test and verify, only
+	 * running the tests that may have changed since an earlier session,
+	 * using a custom ReqaListener for triggering events.
+	 * @param listener ReqaListener that manages the ReqaTester's
+	 * listeners and state.
+	 * @param previous Session to compare with, or null to run all tests.
+	 * @return Result describing the outcome of the tests that are run.
+	 */
+	public Result impactRun(ReqaListener listener, Session previous) {
+		TestImpact impact = new TestImpact(previous, Thread.currentThread().getContextClassLoader());
+		Map<Class<?>, Filter> filters = new LinkedHashMap<Class<?>, Filter>();
+		for(Class<?> klazz : findClasses()) {
+			Filter filter = impact.analyze(klazz, listener.getSession());
+			if(filter != null) {
+				filters.put(klazz, filter);
+			}
+		}
+		LOGGER.debug("Starting an impact run with #{} classes: {}", filters.size(), filters.keySet());
+		return run(listener, filters);
+	}
+	
+	/**
+	 * retryRun uses the scanner to find classes to test and verify, rerunning
+	 * failed tests up to a number of times within the run, see RetryPolicy.
+	 * The flakiness of the tests is continued from the last saved session.
+	 * @param retries int times a failed test is rerun.
+	 * @return Result describing the outcome of the last attempt of each test.
+	 */
+	public Result retryRun(int retries) {
+		return retryRun(createListener(), new RetryPolicy(retries, getLastSavedSession()), findClasses().toArray(new Class[0]));
+	}
+	
+	/**
+	 * retryRun uses the supplied classes to test and verify, rerunning failed
+	 * tests as decided by a RetryPolicy, using a custom ReqaListener for
+	 * triggering events. Flaky tests are run after the other tests.
+	 * The lanes and the retries are run like any run, phased and by the
+	 * computer. Tests are skipped by FailFast in the lanes, not in retries.
+	 * @param listener ReqaListener that manages the ReqaTester's
+	 * listeners and state.
+	 * @param policy RetryPolicy deciding the retries and lanes.
+	 * @param klazzez Class<?>[] to test and verify.
+	 * @return Result describing the outcome of the last attempt of each test.
+	 */
+	public Result retryRun(ReqaListener listener, RetryPolicy policy, Class<?>... klazzez) {
+		setLastSession(listener.getSession());
+		final Session session = listener.getSession();
+		Map<Class<?>, Filter> stable = new LinkedHashMap<Class<?>, Filter>();
+		Map<Class<?>, Filter> flaky = new LinkedHashMap<Class<?>, Filter>();
+		for(Class<?> klazz : klazzez) {
+			// A lane only gets the classes with tests in it, a class filtered empty fails.
+			Description description = Request.aClass(klazz).getRunner().getDescription();
+			if(!policy.getLane(true).shouldRun(description)) {
+				stable.put(klazz, Filter.ALL);
+				continue;
+			}
+			if(policy.getLane(false).shouldRun(description)) {
+				stable.put(klazz, policy.getLane(false));
+			}
+			flaky.put(klazz, policy.getLane(true));
+		}
+		LOGGER.debug("Starting a retry run with #{} classes, #{} of them with flaky tests: {}", stable.size(), flaky.size(), flaky.keySet());
+		Result result = new Result();
+		RunNotifier notifier = new RunNotifier();
+		notifier.addFirstListener(RetryPolicy.lastAttempts(result.createListener()));
+		notifier.addListener(listener);
+		FailFast fast = null;
+		if(failFast || maxFailedRequirements > 0) {
+			fast = new FailFast(session, failFast, maxFailedRequirements).setWatchdog(getWatchdog());
+			notifier.addListener(fast);
+		}
+		Runner runner;
+		try {
+			runner = policy.retrying(session, new RetryPolicy.RunnerFactory() {
+				@Override
+				public Runner createRunner(Map<Class<?>, Filter> filters) throws InitializationError {
+					return ReqaTester.this.createRunner(filters, session, null);
+				}
+			}, createRunner(stable, session, fast), createRunner(flaky, session, fast));
+		} catch(InitializationError exception) {
+			LOGGER.error("Could not create the runners of the lanes!", exception);
+			return result;
+		}
+		notifier.fireTestRunStarted(runner.getDescription());
+		runner.run(notifier);
+		notifier.fireTestRunFinished(result);
+		return result;
+	}
+	
+	/**
+	 * run with custom ReqaListener, running the tests of
+	 * each class that pass the class's filter.
+	 * @param listener ReqaListener that manages the ReqaTester's
+	 * listeners and state.
+	 * @param filters Map<Class<?>, Filter> of each class to test
+	 * and verify mapped to the filter of its tests.
+	 * @return Result describing the outcome of the run.
+	 */
+	protected Result run(ReqaListener listener, Map<Class<?>, Filter> filters) {
+		setLastSession(listener.getSession());
+		JUnitCore core = new JUnitCore();
+		core.addListener(listener);
+		FailFast fast = null;
+		if(failFast || maxFailedRequirements > 0) {
+			fast = new FailFast(listener.getSession(), failFast, maxFailedRequirements).setWatchdog(getWatchdog());
+			core.addListener(fast);
+		}
+		try {
+			return core.run(Request.runner(createRunner(filters, listener.getSession(), fast)));
+		} catch(InitializationError exception) {
+			LOGGER.error("Could not create the filtered runners!", exception);
+			return new Result();
+		}
+	}
+	
+	/**
+	 * createRunner creates a Runner of the tests of each class that
+	 * pass the class's filter, run as decided by the computer.
+	 * Plain classes are run by a PhasedRunner if their phases are timed
+	 * or if a Watchdog keeps their tests within budgets.
+	 * @param filters Map<Class<?>, Filter> of each class to test
+	 * and verify mapped to the filter of its tests.
+	 * @param session Session of the run.
+	 * @param fast FailFast skipping tests, or null if no tests are skipped.
+	 * @return Runner of the classes.
+	 * @throws InitializationError if the runner couldn't be created.
+	 */
+	protected Runner createRunner(final Map<Class<?>, Filter> filters, final Session session, final FailFast fast) throws InitializationError {
+		final Watchdog watchdog = getWatchdog();
+		RunnerBuilder builder = new RunnerBuilder() {
+			@Override
+			public Runner runnerForClass(Class<?> klazz) throws Throwable {
+				if(fast != null) {
+					return fast.runnerFor(klazz, filters.get(klazz));
+				}
+				if((phased || watchdog != null) && PhasedRunner.isPlain(klazz)) {
+					return Request.runner(new PhasedRunner(klazz, session).setWatchdog(watchdog)).filterWith(filters.get(klazz)).getRunner();
+				}
+				return Request.aClass(klazz).filterWith(filters.get(klazz)).getRunner();
+			}
+		};
+		return computer.getSuite(builder, filters.keySet().toArray(new Class[0]));
+	}
+	
+	/**
+	 * getLastSavedSession reads the last session saved by the OutputHelper.
+	 * @return Session that was saved last, or null if none could be read.
+	 */
+	protected Session getLastSavedSession() {
+		try {
+			List<Session> sessions = new OutputHelper().getLastSessions(1);
+			return sessions.isEmpty() ? null : sessions.get(0);
+		} catch(IOException exception) {
+			LOGGER.warn("Could not read the last saved session.", exception);
+			return null;
+		}
+	}
+	
+	/**
+	 * findClasses uses the scanner to find classes to test and verify,
+	 * in the order given by the scheduler.
+	 * @return List<Class<?>> of the classes in the order they are to be run.
+	 */
+	protected List<Class<?>> findClasses() {
+		return scheduler.schedule(scanner.findClasses());
+	}
+	
+	/**
+	 * createListener creates a ReqaListener with a new Session
+	 * and the ReqaTester's listeners.
+	 * @return ReqaListener for a new run.
+	 */
+	protected ReqaListener createListener() {
+		Session session = maxTestsInMemory > 0 ? new SpillingSession(maxTestsInMemory) : new Session();
+		session.setMaxFailureFrames(maxFailureFrames);
 		List<TestListener> testListeners = new ArrayList<TestListener>(listeners);
 		if(testListeners.isEmpty()) {
 			LOGGER.warn("No listener was added to the ReqaTester.");
 		}
-		ReqaListener listener = new ReqaListener(session, testListeners);
-		return run(listener, klazzez);
+		if(compactResults) {
+			testListeners.add(new AbstractPresenter<Session>() {
+				@Override
+				public void runFinished(Result result) {
+					// The listeners before have presented the session, only the results are kept.
+					compact(getSession());
+				}
+			});
+		}
+		if(session instanceof SpillingSession && hasSessionSaver()) {
+			testListeners.add(new AbstractPresenter<Session>() {
+				@Override
+				public void runFinished(Result result) {
+					// The spilled tests are saved, the file isn't needed any more.
+					close(getSession());
+				}
+			});
+		}
+		return new ReqaListener(session, testListeners);
+	}
+	
+	/**
+	 * hasSessionSaver checks if a SessionSaver is one of the ReqaTester's listeners.
+	 * @return boolean true if sessions are saved, else false.
+	 */
+	private boolean hasSessionSaver() {
+		for(TestListener listener : listeners) {
+			if(listener instanceof SessionSaver) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * getWatchdog gets the Watchdog among the ReqaTester's listeners.
+	 * @return Watchdog keeping the tests within their budgets, or null if none.
+	 */
+	private Watchdog getWatchdog() {
+		for(TestListener listener : listeners) {
+			if(listener instanceof Watchdog) {
+				return (Watchdog) listener;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * compact compacts the session of the latest run, see ResultStore.compact(Session).
+	 * @param session Session of a finished run, left as is if not the latest run.
+	 */
+	private void compact(Session session) {
+		if(lastSession == session) {
+			setLastSession(ResultStore.compact(session));
+		}
+	}
+	
+	/**
+	 * setLastSession sets the session of the latest run,
+	 * closing the session of the run before if it spilled tests.
+	 * @param session Session of the latest run.
+	 */
+	protected void setLastSession(Session session) {
+		if(lastSession != session) {
+			close(lastSession);
+		}
+		lastSession = session;
+	}
+	
+	/**
+	 * close closes a session that spilled tests, deleting its file.
+	 * @param session Session to close, other sessions are left as is.
+	 */
+	private static void close(Session session) {
+		if(session instanceof SpillingSession) {
+			try {
+				((SpillingSession) session).close();
+			} catch(IOException exception) {
+				LOGGER.warn("Could not close the session: {}", exception);
+			}
+		}
 	}
 	
 	/**
@@ -195,11 +641,18 @@ public class ReqaTester {
 	 * @return Result describing the outcome of the run.
 	 */
 	public Result run(ReqaListener listener, Class<?>... klazzez) {
+		if(failFast || maxFailedRequirements > 0 || phased || getWatchdog() != null) {
+			Map<Class<?>, Filter> filters = new LinkedHashMap<Class<?>, Filter>();
+			for(Class<?> klazz : klazzez) {
+				filters.put(klazz, Filter.ALL);
+			}
+			return run(listener, filters);
+		}
 		JUnitCore core = new JUnitCore();
 		core.addListener(listener);
-		lastSession = listener.getSession();
+		setLastSession(listener.getSession());
 		LOGGER.debug("Starting a run with #{} classes: {}", klazzez.length, klazzez);
-		return core.run(klazzez);
+		return core.run(computer, klazzez);
 	}
 	
 	/**
@@ -263,5 +716,175 @@ public class ReqaTester {
 		}
 		this.scanner = scanner;
 	}
+	
+	/**
+	 * getComputer gets the Computer the ReqaTester uses
+	 * to run the classes during its runs.
+	 * @return Computer used by ReqaTester during runs.
+	 */
+	public Computer getComputer() {
+		return computer;
+	}
+	
+	/**
+	 * setComputer sets the Computer that the ReqaTester is to
+	 * use when running classes, ex. a ForkJoinComputer
+	 * for running classes and methods in parallel.
+	 * @param computer Computer that is to be used by ReqaTester.
+	 * Should not be null!
+	 * @throws NullPointerException if computer is null.
+	 */
+	public void setComputer(Computer computer) {
+		if(computer == null) {
+			throw new NullPointerException("Computer can't be null!");
+		}
+		this.computer = computer;
+	}
+	
+	/**
+	 * getScheduler gets the Scheduler the ReqaTester uses
+	 * to order the classes during its runs.
+	 * @return Scheduler used by ReqaTester during runs.
+	 */
+	public Scheduler getScheduler() {
+		return scheduler;
+	}
+	
+	/**
+	 * setScheduler sets the Scheduler that the ReqaTester is to
+	 * use when ordering classes, ex. a HistoryScheduler
+	 * for starting the longest classes first when run in parallel.
+	 * @param scheduler Scheduler that is to be used by ReqaTester.
+	 * Should not be null!
+	 * @throws NullPointerException if scheduler is null.
+	 */
+	public void setScheduler(Scheduler scheduler) {
+		if(scheduler == null) {
+			throw new NullPointerException("Scheduler can't be null!");
+		}
+		this.scheduler = scheduler;
+	}
+	
+	/**
+	 * isFailFast checks if the ReqaTester skips the remaining
+	 * tests of a requirement once it has failed.
+	 * @return boolean true if failing fast, else false.
+	 */
+	public boolean isFailFast() {
+		return failFast;
+	}
+	
+	/**
+	 * setFailFast sets if the ReqaTester is to skip the remaining tests
+	 * of a requirement once it has failed, ex. in gate builds only asking
+	 * if each requirement is verified. Skipped tests don't verify.
+	 * Not used by pipelined and forked runs, nor by the retries of retry runs.
+	 * @param failFast boolean true to fail fast, else false.
+	 */
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+	
+	/**
+	 * isPhased checks if the ReqaTester times the phases of tests.
+	 * @return boolean true if the phases are timed, else false.
+	 */
+	public boolean isPhased() {
+		return phased;
+	}
+	
+	/**
+	 * setPhased sets if the ReqaTester is to time the setup, body and teardown
+	 * of each test and the setup and teardown of each class, see PhasedRunner.
+	 * Only plain JUnit 4 classes are timed, and not by pipelined and forked runs.
+	 * @param phased boolean true to time the phases, else false.
+	 */
+	public void setPhased(boolean phased) {
+		this.phased = phased;
+	}
+	
+	/**
+	 * getMaxFailedRequirements gets the failed requirements aborting a run.
+	 * @return int failed requirements aborting a run, 0 if never aborting.
+	 */
+	public int getMaxFailedRequirements() {
+		return maxFailedRequirements;
+	}
+	
+	/**
+	 * setMaxFailedRequirements sets the failed requirements aborting a run,
+	 * the remaining tests of an aborted run are skipped.
+	 * Not used by pipelined and forked runs, nor by the retries of retry runs.
+	 * @param maxFailedRequirements int failed requirements aborting a run, 0 to never abort.
+	 * @throws IllegalArgumentException if maxFailedRequirements is negative.
+	 */
+	public void setMaxFailedRequirements(int maxFailedRequirements) {
+		if(maxFailedRequirements < 0) {
+			throw new IllegalArgumentException("Max failed requirements can't be negative!");
+		}
+		this.maxFailedRequirements = maxFailedRequirements;
+	}
+	
+	/**
+	 * getMaxFailureFrames gets the amount of frames kept of each failure trace.
+	 * @return int amount of frames, not counting the frames of the test frameworks.
+	 */
+	public int getMaxFailureFrames() {
+		return maxFailureFrames;
+	}
+	
+	/**
+	 * setMaxFailureFrames sets the amount of frames kept of each failure trace.
+	 * @param maxFailureFrames int amount of frames, not counting the frames of the test frameworks.
+	 * @throws IllegalArgumentException if maxFailureFrames is negative.
+	 */
+	public void setMaxFailureFrames(int maxFailureFrames) {
+		if(maxFailureFrames < 0) {
+			throw new IllegalArgumentException("Max failure frames can't be negative!");
+		}
+		this.maxFailureFrames = maxFailureFrames;
+	}
+	
+	/**
+	 * getMaxTestsInMemory gets the amount of finished tests kept in memory.
+	 * @return int finished tests kept in memory, 0 if all are kept.
+	 */
+	public int getMaxTestsInMemory() {
+		return maxTestsInMemory;
+	}
+	
+	/**
+	 * setMaxTestsInMemory sets the amount of finished tests kept in memory,
+	 * the oldest successful tests of a run are spilled to disk past it.
+	 * The sessions are SpillingSessions, closed when the next run starts, or
+	 * once saved if a SessionSaver is added, only keeping the tests in memory.
+	 * @param maxTestsInMemory int finished tests kept in memory, 0 to keep all.
+	 * @throws IllegalArgumentException if maxTestsInMemory is negative.
+	 */
+	public void setMaxTestsInMemory(int maxTestsInMemory) {
+		if(maxTestsInMemory < 0) {
+			throw new IllegalArgumentException("Max tests in memory can't be negative!");
+		}
+		this.maxTestsInMemory = maxTestsInMemory;
+	}
+	
+	/**
+	 * isCompactResults checks if the ReqaTester compacts the session of a finished run.
+	 * @return boolean true if the session is compacted, else false.
+	 */
+	public boolean isCompactResults() {
+		return compactResults;
+	}
+	
+	/**
+	 * setCompactResults sets if the ReqaTester is to compact the session of a
+	 * finished run, once its listeners are done with it, keeping its tests and
+	 * requirements in a ResultStore read as views, see ResultStore.compact(Session).
+	 * The last session is then only read.
+	 * @param compactResults boolean true to compact the session, else false.
+	 */
+	public void setCompactResults(boolean compactResults) {
+		this.compactResults = compactResults;
+	}
 
 }
\ No newline at end of file
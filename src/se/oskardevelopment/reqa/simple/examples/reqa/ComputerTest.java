@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.examples.reqa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.Result;
+
+import se.oskardevelopment.reqa.simple.ReqaTester;
+import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.examples.simplest.MathTest;
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.Tested;
+import se.oskardevelopment.reqa.simple.runner.ForkJoinComputer;
+import se.oskardevelopment.reqa.simple.runner.ForkedRun;
+import se.oskardevelopment.reqa.simple.runner.HistoryScheduler;
+import se.oskardevelopment.reqa.simple.runner.RestartClassLoader;
+import se.oskardevelopment.reqa.simple.scanner.BytecodeScanner;
+
+public class ComputerTest {
+
+	@Test
+	@Verifiable(verifies = "Tests can be run in parallel",
+	gist = "A parallel run gives the same Session as a run one after another.")
+	public void parallelRunEqualsSerialRun() {
+		// given:
+		ReqaTester serialTester = new ReqaTester();
+		ReqaTester parallelTester = new ReqaTester();
+		parallelTester.setComputer(new ForkJoinComputer(4, true, true));
+
+		// when:
+		Session serial = serialTester.sessionRun(MathTest.class, VerifiedTest.class);
+		Session parallel = parallelTester.sessionRun(MathTest.class, VerifiedTest.class);
+
+		// then:
+		assertEquals(serial.getTests().size(), parallel.getTests().size());
+		for(int i = 0; i < serial.getTests().size(); i++) {
+			assertEquals(serial.getTests().get(i).test, parallel.getTests().get(i).test);
+		}
+		assertEquals(serial.getVerifies().size(), parallel.getVerifies().size());
+		for(int i = 0; i < serial.getVerifies().size(); i++) {
+			assertEquals(serial.getVerifies().get(i).id, parallel.getVerifies().get(i).id);
+			assertEquals(serial.getVerifies().get(i).isVerified, parallel.getVerifies().get(i).isVerified);
+			assertEquals(serial.getVerifies().get(i).getTested().size(), parallel.getVerifies().get(i).getTested().size());
+		}
+	}
+
+	@Test
+	@Verifiable(verifies = "Tests can be run while scanning",
+	gist = "A pipelined run gives the same tests and outcome as a run after the scanning.")
+	public void pipelinedRunEqualsRun() {
+		// given:
+		String packageName = MathTest.class.getPackage().getName();
+		ReqaTester tester = new ReqaTester(new BytecodeScanner(packageName));
+
+		// when:
+		Result run = tester.run();
+		Session session = tester.getLastSession();
+		Result pipelinedRun = tester.pipelinedRun();
+		Session pipelinedSession = tester.getLastSession();
+
+		// then:
+		assertEquals(run.getRunCount(), pipelinedRun.getRunCount());
+		assertEquals(run.getFailureCount(), pipelinedRun.getFailureCount());
+		assertEquals(session.getTests().size(), pipelinedSession.getTests().size());
+		assertEquals(session.getVerifies().size(), pipelinedSession.getVerifies().size());
+	}
+
+	@Test
+	@Verifiable(verifies = "Tests can be run in separate JVMs",
+	gist = "A forked run gives the same tests and outcome as a run in the same JVM.")
+	public void forkedRunEqualsRun() {
+		// given:
+		String packageName = MathTest.class.getPackage().getName();
+		ReqaTester tester = new ReqaTester(new BytecodeScanner(packageName));
+
+		// when:
+		Result run = tester.run();
+		Session session = tester.getLastSession();
+		Result forkedRun = tester.forkedRun(new ForkedRun(2).setMaxTests(1));
+		Session forkedSession = tester.getLastSession();
+
+		// then:
+		assertEquals(run.getRunCount(), forkedRun.getRunCount());
+		assertEquals(run.getFailureCount(), forkedRun.getFailureCount());
+		assertEquals(session.getTests().size(), forkedSession.getTests().size());
+		for(int i = 0; i < session.getTests().size(); i++) {
+			assertEquals(session.getTests().get(i).test, forkedSession.getTests().get(i).test);
+		}
+		assertEquals(session.getVerifies().size(), forkedSession.getVerifies().size());
+		for(int i = 0; i < session.getVerifies().size(); i++) {
+			assertEquals(session.getVerifies().get(i).id, forkedSession.getVerifies().get(i).id);
+			assertEquals(session.getVerifies().get(i).getTested().size(), forkedSession.getVerifies().get(i).getTested().size());
+		}
+	}
+
+	@Test
+	@Verifiable(verifies = "Classes can be scheduled by their history",
+	gist = "The longest classes are started first, classes without history take the median.")
+	public void historySchedulerSchedulesLongestFirst() {
+		// given:
+		Session session = new Session();
+		session.getTests().add(tested("MathTest.addWithPositiveValues", 1000L));
+		session.getTests().add(tested("VerifiedTest.verifyEquals", 10L));
+		session.getTests().add(tested("TestedTest.testedHasPath", 100L));
+		HistoryScheduler scheduler = new HistoryScheduler(session);
+		List<Class<?>> klazzez = Arrays.<Class<?>>asList(VerifiedTest.class, SessionTest.class, MathTest.class, TestedTest.class);
+
+		// when:
+		List<Class<?>> scheduled = scheduler.schedule(klazzez);
+
+		// then:
+		assertEquals(Long.valueOf(100L), scheduler.getDurations(klazzez).get(SessionTest.class));
+		assertEquals(MathTest.class, scheduled.get(0));
+		assertEquals(VerifiedTest.class, scheduled.get(3));
+	}
+
+	@Test
+	@Verifiable(verifies = "Classes can be split into shards",
+	gist = "Every class is in exactly one shard, whatever order the classes are found in.")
+	public void shardsHaveEveryClassOnce() {
+		// given:
+		Session session = new Session();
+		session.getTests().add(tested("MathTest.addWithPositiveValues", 1000L));
+		session.getTests().add(tested("VerifiedTest.verifyEquals", 10L));
+		HistoryScheduler scheduler = new HistoryScheduler(session);
+		List<Class<?>> klazzez = Arrays.<Class<?>>asList(VerifiedTest.class, SessionTest.class, MathTest.class, TestedTest.class);
+		List<Class<?>> reversed = Arrays.<Class<?>>asList(TestedTest.class, MathTest.class, SessionTest.class, VerifiedTest.class);
+
+		// when:
+		List<Class<?>> sharded = new ArrayList<Class<?>>();
+		for(int shard = 0; shard < 3; shard++) {
+			List<Class<?>> shardClasses = scheduler.shard(klazzez, shard, 3);
+			assertEquals(shardClasses, scheduler.shard(reversed, shard, 3));
+			assertTrue("Every shard should get a class!", !shardClasses.isEmpty());
+			sharded.addAll(shardClasses);
+		}
+
+		// then:
+		assertEquals(klazzez.size(), sharded.size());
+		assertEquals(new HashSet<Class<?>>(klazzez), new HashSet<Class<?>>(sharded));
+	}
+
+	@Test
+	@Verifiable(verifies = "Classes can be split into shards",
+	gist = "Without history, or with tests taking no time, the classes are still split across every shard.")
+	public void shardsWithoutHistoryAreHashed() {
+		// given:
+		Session instant = new Session();
+		instant.getTests().add(tested("MathTest.addWithPositiveValues", 0L));
+		instant.getTests().add(tested("VerifiedTest.verifyEquals", 0L));
+		List<HistoryScheduler> schedulers = Arrays.asList(new HistoryScheduler(new Session()), new HistoryScheduler(instant));
+		List<Class<?>> klazzez = Arrays.<Class<?>>asList(VerifiedTest.class, SessionTest.class, MathTest.class, TestedTest.class);
+
+		for(HistoryScheduler scheduler : schedulers) {
+			// when:
+			List<Class<?>> sharded = new ArrayList<Class<?>>();
+			for(int shard = 0; shard < 3; shard++) {
+				List<Class<?>> shardClasses = scheduler.shard(klazzez, shard, 3);
+
+				// then:
+				assertTrue("Every shard should get a class!", !shardClasses.isEmpty());
+				sharded.addAll(shardClasses);
+			}
+			assertEquals(new HashSet<Class<?>>(klazzez), new HashSet<Class<?>>(sharded));
+		}
+	}
+
+	@Test
+	@Verifiable(verifies = "Classes can be scheduled by their history",
+	gist = "Classes with the same simple name in different packages have their own history.")
+	public void historyIsKeptByFullyQualifiedName() {
+		// given:
+		Session session = new Session();
+		Tested other = tested("MathTest.addWithPositiveValues", 5000L);
+		other.className = "se.oskardevelopment.other.MathTest";
+		Tested math = tested("MathTest.addWithPositiveValues", 1000L);
+		math.className = MathTest.class.getName();
+		session.getTests().add(other);
+		session.getTests().add(math);
+
+		// when:
+		HistoryScheduler scheduler = new HistoryScheduler(session);
+
+		// then:
+		assertEquals(Long.valueOf(1000L), scheduler.getDuration(MathTest.class));
+	}
+
+	@Test
+	@Verifiable(verifies = "Changed classes can be run without restarting",
+	gist = "A class loaded anew is a new class, still verifying the same requirements.")
+	public void restartedClassVerifiesSameRequirements() throws Exception {
+		// given:
+		URL classes = MathTest.class.getProtectionDomain().getCodeSource().getLocation();
+		RestartClassLoader loader = new RestartClassLoader(new URL[] {classes}, MathTest.class.getClassLoader());
+		ReqaTester tester = new ReqaTester();
+
+		// when:
+		Class<?> restarted = loader.loadClass(MathTest.class.getName());
+		Session session = tester.sessionRun(MathTest.class);
+		Session restartedSession = tester.sessionRun(restarted);
+		loader.close();
+
+		// then:
+		assertTrue(restarted != MathTest.class);
+		assertEquals(session.getTests().size(), restartedSession.getTests().size());
+		assertEquals(session.getVerifies().size(), restartedSession.getVerifies().size());
+	}
+
+	private static Tested tested(String test, Long durationInMillis) {
+		Tested tested = new Tested();
+		tested.test = test;
+		tested.durationInMillis = durationInMillis;
+		return tested;
+	}
+
+}
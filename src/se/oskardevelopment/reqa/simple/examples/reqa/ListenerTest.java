@@ -19,22 +19,31 @@
 package se.oskardevelopment.reqa.simple.examples.reqa;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runners.model.Statement;
 
 import se.oskardevelopment.reqa.simple.annotations.Verifiable;
 import se.oskardevelopment.reqa.simple.listener.ReqaListener;
 import se.oskardevelopment.reqa.simple.listener.SessionListener;
 import se.oskardevelopment.reqa.simple.listener.TestListener;
+import se.oskardevelopment.reqa.simple.listener.Watchdog;
 import se.oskardevelopment.reqa.simple.model.Session;
 import se.oskardevelopment.reqa.simple.model.Tested;
 
@@ -111,6 +120,52 @@ public class ListenerTest {
 		verify(session).verify();
 	}
 	
+	@Test
+	@Verifiable(verifies = "Watchdog keeps tests within their time budgets",
+	gist = "A test running past its budget is abandoned, even if it swallows interrupts, and fails through the runner with the frames it was sampled in.")
+	public void verifyWatchdogTimesOutSlowTest() throws Throwable {
+		// given:
+		Description description = Description.createTestDescription(ListenerTest.class, "setup");
+		Tested tested = new Tested(description);
+		when(session.getTested(description)).thenReturn(tested);
+		Watchdog watchdog = new Watchdog(200).setSampling(0, 10);
+		Statement spinning = new Statement() {
+			@Override
+			public void evaluate() {
+				long until = System.currentTimeMillis() + 5000;
+				while(System.currentTimeMillis() < until) {
+					Thread.interrupted();
+				}
+			}
+		};
+		TimeoutException timeout = null;
+		long startedAt = System.currentTimeMillis();
+		
+		// when:
+		watchdog.runStarted(session);
+		watchdog.beforeTest(description);
+		try {
+			watchdog.withBudget(description, spinning).evaluate();
+		} catch(TimeoutException e) {
+			timeout = e;
+		}
+		long elapsed = System.currentTimeMillis() - startedAt;
+		watchdog.afterTest(description);
+		watchdog.runFinished(null);
+		
+		// then:
+		assertNotNull(timeout);
+		assertTrue(elapsed < 5000);
+		boolean where = false;
+		for(StackTraceElement frame : timeout.getStackTrace()) {
+			where |= frame.getClassName().startsWith(ListenerTest.class.getName());
+		}
+		assertTrue(where);
+		verify(session, never()).addFailure(eq(description), any(Failure.class));
+		assertEquals(Boolean.TRUE, tested.isTimedOut);
+		assertFalse(tested.hotFrames.isEmpty());
+	}
+	
 	
 	
 }
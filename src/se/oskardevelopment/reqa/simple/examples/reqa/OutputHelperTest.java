@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.examples.reqa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+
+import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.SpillingSession;
+import se.oskardevelopment.reqa.simple.model.Verified;
+import se.oskardevelopment.reqa.simple.utility.CustomizedHelper;
+import se.oskardevelopment.reqa.simple.utility.OutputHelper;
+import se.oskardevelopment.reqa.simple.utility.SessionLogReader;
+
+public class OutputHelperTest {
+
+	@Test
+	@Verifiable(verifies = "Sessions are saved to an append-only log",
+	gist = "Appended sessions are read back with the latest session first.")
+	public void appendedSessionsCanBeRead() throws IOException {
+		// given:
+		StringWriter log = new StringWriter();
+		OutputHelper writingHelper = new CustomizedHelper(log, null);
+		Session first = new Session();
+		first.setSessionStart(new Date(1000L));
+		Session second = new Session();
+		second.setSessionStart(new Date(2000L));
+
+		// when:
+		writingHelper.saveSession(first);
+		writingHelper.saveSession(second);
+		List<Session> sessions = new CustomizedHelper(null, new StringReader(log.toString())).getSavedSessions();
+
+		// then:
+		assertEquals(2, sessions.size());
+		assertEquals(second.sessionStart, sessions.get(0).sessionStart);
+		assertEquals(first.sessionStart, sessions.get(1).sessionStart);
+	}
+
+	@Test
+	@Verifiable(verifies = "Sessions are saved to an append-only log",
+	gist = "A broken session in the log is skipped, the sessions after it are still read.")
+	public void brokenSessionIsSkipped() throws IOException {
+		// given:
+		StringWriter log = new StringWriter();
+		OutputHelper writingHelper = new CustomizedHelper(log, null);
+		Session first = new Session();
+		first.setSessionStart(new Date(1000L));
+		Session last = new Session();
+		last.setSessionStart(new Date(3000L));
+
+		// when:
+		writingHelper.saveSession(first);
+		SessionLogReader.write(log, "{\"sessionStart\": [broken");
+		writingHelper.saveSession(last);
+		List<Session> sessions = new CustomizedHelper(null, new StringReader(log.toString())).getSavedSessions();
+
+		// then:
+		assertEquals(2, sessions.size());
+		assertEquals(last.sessionStart, sessions.get(0).sessionStart);
+		assertEquals(first.sessionStart, sessions.get(1).sessionStart);
+	}
+
+	@Test
+	@Verifiable(verifies = "Saved sessions are read one at a time",
+	gist = "Only the latest sessions are read when asking for the latest sessions.")
+	public void lastSessionsCanBeRead() throws IOException {
+		// given:
+		StringWriter log = new StringWriter();
+		OutputHelper writingHelper = new CustomizedHelper(log, null);
+		for(long start = 1; start <= 5; start++) {
+			Session session = new Session();
+			session.setSessionStart(new Date(start));
+			writingHelper.saveSession(session);
+		}
+
+		// when:
+		List<Session> sessions = new CustomizedHelper(null, new StringReader(log.toString())).getLastSessions(2);
+
+		// then:
+		assertEquals(2, sessions.size());
+		assertEquals(new Date(5L), sessions.get(0).sessionStart);
+		assertEquals(new Date(4L), sessions.get(1).sessionStart);
+	}
+
+	@Test
+	@Verifiable(verifies = "Sessions are saved to an append-only log",
+	gist = "Sessions saved as a Json array by earlier versions can still be read.")
+	public void legacySessionsCanBeRead() throws IOException {
+		// given:
+		Session latest = new Session();
+		latest.setSessionStart(new Date(2000L));
+		Session earliest = new Session();
+		earliest.setSessionStart(new Date(1000L));
+		String legacy = OutputHelper.createGson().toJson(new Session[] {latest, earliest});
+
+		// when:
+		List<Session> sessions = new CustomizedHelper(null, new StringReader(legacy)).getSavedSessions();
+
+		// then:
+		assertEquals(2, sessions.size());
+		assertEquals(latest.sessionStart, sessions.get(0).sessionStart);
+		assertEquals(earliest.sessionStart, sessions.get(1).sessionStart);
+	}
+
+	@Test
+	@Verifiable(verifies = "Sessions can be kept in bounded memory",
+	gist = "Tests spilled to disk are left out of memory, but still saved with the session.")
+	public void spilledTestsAreSaved() throws Exception {
+		// given:
+		StringWriter log = new StringWriter();
+		Verifiable verifiable = getClass().getMethod("spilledTestsAreSaved").getAnnotation(Verifiable.class);
+		SpillingSession session = new SpillingSession(1);
+
+		// when:
+		for(String method : new String[] {"first", "second", "third", "fourth"}) {
+			Description description = Description.createTestDescription(OutputHelperTest.class, method, verifiable);
+			session.testStarted(description);
+			session.testFinished(description);
+			// Listeners after the SessionListener still find the finished test.
+			session.getTested(description);
+		}
+		session.verify();
+		new CustomizedHelper(log, null).saveSession(session);
+		session.close();
+		Session saved = new CustomizedHelper(null, new StringReader(log.toString())).getSavedSessions().get(0);
+
+		// then:
+		Verified verified = session.getVerifies().get(0);
+		assertEquals(2, session.getTests().size());
+		assertEquals(2, verified.getTested().size());
+		assertEquals(Integer.valueOf(2), verified.spilledTests);
+		assertTrue(verified.isVerified);
+		assertEquals(4, saved.getTests().size());
+		assertEquals("OutputHelperTest.first", saved.getTests().get(0).test);
+		assertEquals("OutputHelperTest.fourth", saved.getTests().get(3).test);
+		assertEquals(4, saved.getVerifies().get(0).getTested().size());
+		assertNull(saved.getVerifies().get(0).spilledTests);
+	}
+
+	@Test
+	@Verifiable(verifies = "Sessions are kept within bounded memory",
+	gist = "Tests spilled to disk are read back into the Verified of their requirements when presented.")
+	public void spilledTestsArePresentedByRequirement() throws Exception {
+		// given:
+		Verifiable spilling = getClass().getMethod("spilledTestsArePresentedByRequirement").getAnnotation(Verifiable.class);
+		Verifiable saving = getClass().getMethod("spilledTestsAreSaved").getAnnotation(Verifiable.class);
+		SpillingSession session = new SpillingSession(1);
+		OutputHelper helper = new OutputHelper();
+
+		// when:
+		for(int i = 0; i < 6; i++) {
+			Description description = Description.createTestDescription(OutputHelperTest.class, "test" + i, i % 3 == 0 ? saving : spilling);
+			session.testStarted(description);
+			session.testFinished(description);
+		}
+		session.verify();
+		Verified spilled = OutputHelper.createGson().fromJson(helper.toJson(session.getVerified(spilling.verifies()[0]), session), Verified.class);
+		Verified saved = OutputHelper.createGson().fromJson(helper.toJson(session.getVerified(saving.verifies()[0]), session), Verified.class);
+		session.close();
+
+		// then:
+		assertTrue(session.getSpilled() > 0);
+		assertEquals(4, spilled.getTested().size());
+		assertEquals(2, saved.getTested().size());
+		assertEquals("OutputHelperTest.test0", saved.getTested().get(0).test);
+		assertEquals("OutputHelperTest.test3", saved.getTested().get(1).test);
+		assertNull(spilled.spilledTests);
+	}
+
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.examples.reqa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.Failure;
+import org.junit.runners.MethodSorters;
+
+import se.oskardevelopment.reqa.simple.ReqaTester;
+import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.examples.simplest.MathTest;
+import se.oskardevelopment.reqa.simple.listener.ReqaListener;
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.Tested;
+import se.oskardevelopment.reqa.simple.model.Tested.Phase;
+import se.oskardevelopment.reqa.simple.runner.RetryPolicy;
+import se.oskardevelopment.reqa.simple.runner.TestImpact;
+import se.oskardevelopment.reqa.simple.scanner.BytecodeHasher;
+import se.oskardevelopment.reqa.simple.scanner.BytecodeScanner;
+
+public class ReqaTesterTest {
+
+	@Test
+	@Verifiable(verifies = "Requirements can be verified without running all tests",
+	gist = "A run of a requirement only runs the tests verifying it and only verifies it.")
+	public void requirementRunOnlyRunsRequirement() {
+		// given:
+		String requirement = "Java can subtract numbers.";
+		ReqaTester tester = new ReqaTester(new BytecodeScanner(MathTest.class.getPackage().getName()));
+
+		// when:
+		Result result = tester.runRequirements(requirement);
+		Session session = tester.getLastSession();
+
+		// then:
+		assertEquals(2, result.getRunCount());
+		assertEquals(2, session.getTests().size());
+		assertEquals(1, session.getVerifies().size());
+		assertEquals(requirement, session.getVerifies().get(0).id);
+		assertEquals(2, session.getVerifies().get(0).getTested().size());
+	}
+
+	@Test
+	@Verifiable(verifies = "Only tests that may have changed are run",
+	gist = "An impact run of unchanged tests only reruns the failed ones and carries forward the rest.")
+	public void impactRunOnlyRunsFailedOfUnchanged() {
+		// given:
+		ReqaTester tester = new ReqaTester(new BytecodeScanner(MathTest.class.getPackage().getName()));
+		tester.impactRun(new ReqaListener(), null);
+		Session previous = tester.getLastSession();
+		previous.getTests().get(0).isSuccessful = false;
+
+		// when:
+		Result result = tester.impactRun(new ReqaListener(), previous);
+		Session session = tester.getLastSession();
+
+		// then:
+		assertEquals(1, result.getRunCount());
+		assertEquals(previous.getTests().size(), session.getTests().size());
+		assertEquals(previous.getVerifies().size(), session.getVerifies().size());
+		assertEquals(previous.hashes, session.hashes);
+	}
+
+	@Test
+	@Verifiable(verifies = "Only tests that may have changed are run",
+	gist = "Each parameter of an unchanged parameterized test is carried forward, not mistaken for a class of the same simple name.")
+	public void impactCarriesForwardEachParameter() {
+		// given:
+		Session previous = new Session();
+		previous.setHash(MathTest.class.getName(), new BytecodeHasher(MathTest.class.getClassLoader()).hash(MathTest.class));
+		for(String method : new String[] {"subtractionWithPositiveValues", "subtractionWithNegativeValues", "addWithPositiveValues"}) {
+			for(int parameter = 0; parameter < 2; parameter++) {
+				Description description = Description.createTestDescription(MathTest.class, method + "[" + parameter + "]");
+				previous.testStarted(description);
+				previous.testFinished(description);
+			}
+		}
+		Description pi = Description.createTestDescription(MathTest.class, "mathLibaryHasPi");
+		previous.testStarted(pi);
+		previous.testFinished(pi);
+		Description other = Description.createTestDescription("other.MathTest", "mathLibaryHasPi");
+		previous.testStarted(other);
+		previous.addFailure(other, new Failure(other, new AssertionError("Other pi")));
+		previous.testFinished(other);
+		Session session = new Session();
+
+		// when:
+		Filter filter = new TestImpact(previous, MathTest.class.getClassLoader()).analyze(MathTest.class, session);
+
+		// then:
+		assertEquals(null, filter);
+		assertEquals(7, session.getTests().size());
+		for(Tested tested : session.getTests()) {
+			assertEquals(Boolean.TRUE, tested.isCarriedForward);
+			assertEquals(MathTest.class.getName(), tested.className);
+		}
+		assertEquals(Integer.valueOf(1), session.getTests().get(1).parameterIndex);
+	}
+
+	@Test
+	@Verifiable(verifies = "Flaky tests are retried within the run",
+	gist = "A test passing on a retry verifies its requirement and passes the run, and is run in the low-priority lane once flaky.")
+	public void retryRunPassesFlakyTest() {
+		// given:
+		ReqaTester tester = new ReqaTester();
+		FlakyTest.failNext = true;
+
+		// when:
+		Result result = tester.retryRun(new ReqaListener(), new RetryPolicy(2), FlakyTest.class);
+		Session session = tester.getLastSession();
+		FlakyTest.failNext = true;
+		tester.retryRun(new ReqaListener(), new RetryPolicy(2, session).setFlakinessThreshold(0.1), FlakyTest.class);
+		Session laterSession = tester.getLastSession();
+
+		// then:
+		assertTrue("Only the last attempt should be counted!", result.wasSuccessful());
+		assertEquals(1, result.getRunCount());
+		Tested tested = session.getTests().get(0);
+		assertEquals(Integer.valueOf(2), tested.attempts);
+		assertEquals(Boolean.TRUE, tested.isRetryPassed);
+		assertEquals(RetryPolicy.FLAKINESS_WEIGHT, tested.flakiness, 0.0001);
+		assertTrue(session.getVerifies().get(0).isVerified);
+		assertEquals(Boolean.TRUE, laterSession.getTests().get(0).isLowPriority);
+		assertTrue(laterSession.getTests().get(0).flakiness > tested.flakiness);
+	}
+
+	@Test
+	@Verifiable(verifies = "Runs can fail fast",
+	gist = "The remaining tests of a failed requirement are skipped, and every test once enough requirements failed.")
+	public void failFastSkipsTestsOfFailedRequirements() {
+		// given:
+		ReqaTester tester = new ReqaTester();
+		tester.setFailFast(true);
+		ReqaTester abortingTester = new ReqaTester();
+		abortingTester.setMaxFailedRequirements(1);
+		FailingTest.isFailing = true;
+
+		// when:
+		Result result = tester.run(new ReqaListener(), FailingTest.class);
+		Session session = tester.getLastSession();
+		Result abortedResult = abortingTester.run(new ReqaListener(), FailingTest.class);
+		Session abortedSession = abortingTester.getLastSession();
+		FailingTest.isFailing = false;
+
+		// then:
+		assertEquals(1, result.getFailureCount());
+		assertEquals(1, result.getIgnoreCount());
+		assertEquals(Boolean.TRUE, session.getTests().get(1).isSkipped);
+		assertEquals(null, session.getTests().get(2).isSkipped);
+		assertEquals(false, session.getVerifies().get(0).isVerified);
+		assertEquals(true, session.getVerifies().get(1).isVerified);
+		assertEquals(2, abortedResult.getIgnoreCount());
+		assertEquals(false, abortedSession.getVerifies().get(1).isVerified);
+	}
+
+	@Test
+	@Verifiable(verifies = "Tested tracks measurements",
+	gist = "A phased run times the setup, body and teardown of tests and the setup of classes.")
+	public void phasedRunTimesPhases() {
+		// given:
+		ReqaTester tester = new ReqaTester();
+		tester.setPhased(true);
+
+		// when:
+		tester.run(new ReqaListener(), PhasedTest.class);
+		Session session = tester.getLastSession();
+
+		// then:
+		Tested tested = session.getTests().get(0);
+		assertTrue(tested.setupInNanos != null && tested.bodyInNanos != null && tested.teardownInNanos != null);
+		assertTrue(tested.durationInNanos >= tested.setupInNanos + tested.bodyInNanos + tested.teardownInNanos);
+		assertTrue(session.classSetupInNanos.containsKey(PhasedTest.class.getName()));
+		assertEquals(tested.bodyInNanos.longValue(), session.getVerifies().get(0).getPhaseInNanos(Phase.BODY));
+	}
+
+	public static class FlakyTest {
+
+		// If the next run of the test fails.
+		public static boolean failNext = false;
+
+		@Test
+		@Verifiable(verifies = "A flaky test can pass")
+		public void passesOnRetry() {
+			if(failNext) {
+				failNext = false;
+				fail("Failing once.");
+			}
+		}
+
+	}
+
+	public static class PhasedTest {
+
+		@BeforeClass
+		public static void setupClass() {}
+
+		@Before
+		public void setup() {}
+
+		@Test
+		@Verifiable(verifies = "A test has phases")
+		public void body() {}
+
+		@After
+		public void teardown() {}
+
+	}
+
+	@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+	public static class FailingTest {
+
+		// If the failing requirement fails.
+		public static boolean isFailing = false;
+
+		@Test
+		@Verifiable(verifies = "A requirement can fail")
+		public void aFails() {
+			if(isFailing) {
+				fail("Failing.");
+			}
+		}
+
+		@Test
+		@Verifiable(verifies = "A requirement can fail")
+		public void bPasses() {}
+
+		@Test
+		@Verifiable(verifies = "Another requirement can pass")
+		public void cPasses() {}
+
+	}
+
+}
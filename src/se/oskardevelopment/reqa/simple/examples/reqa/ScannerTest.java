@@ -21,14 +21,35 @@ package se.oskardevelopment.reqa.simple.examples.reqa;
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Assume;
 import org.junit.Test;
 
 import se.oskardevelopment.reqa.simple.annotations.Verifiable;
 import se.oskardevelopment.reqa.simple.examples.simplest.MathTest;
+import se.oskardevelopment.reqa.simple.processor.VerifiableProcessor;
+import se.oskardevelopment.reqa.simple.scanner.BytecodeScanner;
+import se.oskardevelopment.reqa.simple.scanner.CachedScanner;
 import se.oskardevelopment.reqa.simple.scanner.CurrentPackageScanner;
+import se.oskardevelopment.reqa.simple.scanner.IndexScanner;
 import se.oskardevelopment.reqa.simple.scanner.PackageScanner;
+import se.oskardevelopment.reqa.simple.scanner.ScanCache;
+import se.oskardevelopment.reqa.simple.scanner.ScannedClass;
 
 public class ScannerTest {
 
@@ -72,5 +93,128 @@ public class ScannerTest {
 			assertEquals(currentPackage, klazz.getPackage());
 		}
 	}
+	
+	@Test
+	@Verifiable(verifies = "Scanner can cache what's found",
+	gist = "CachedScanner finds the same tests as the PackageScanner, scanned or cached.")
+	public void cachedScanningEqualsScanning() throws IOException {
+		// given:
+		String packageName = MathTest.class.getPackage().getName();
+		Set<Class<?>> scannedTestClasses = new PackageScanner(packageName).findClasses();
+		final File file = File.createTempFile("reqa-", ".scan");
+		file.delete();
+		
+		try {
+			// when:
+			CachedScanner cachedScanner = new CachedScanner(packageName, new ScanCache() {
+				@Override
+				public File getFile() {
+					return file;
+				}
+			});
+			Set<Class<?>> foundTestClasses = cachedScanner.findClasses();
+			Set<Class<?>> cachedTestClasses = cachedScanner.findClasses();
+			
+			// then:
+			assertEquals(scannedTestClasses, foundTestClasses);
+			assertEquals(scannedTestClasses, cachedTestClasses);
+			assertTrue("The cache should be saved!", file.isFile());
+		} finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	@Verifiable(verifies = "Scanner can read class files without Reflections",
+	gist = "BytecodeScanner finds the same tests as the PackageScanner.")
+	public void bytecodeScanningEqualsScanning() {
+		// given:
+		String packageName = MathTest.class.getPackage().getName();
+		Set<Class<?>> scannedTestClasses = new PackageScanner(packageName).findClasses();
+		
+		// when:
+		Set<Class<?>> foundTestClasses = new BytecodeScanner(packageName).findClasses();
+		
+		// then:
+		assertEquals(scannedTestClasses, foundTestClasses);
+	}
+	
+	@Test
+	@Verifiable(verifies = "Scanner can find tests indexed at compile time",
+	gist = "IndexScanner finds the tests indexed by the VerifiableProcessor, with their requirements.")
+	public void indexScanningFindsCompiledTests() throws IOException, URISyntaxException {
+		// given:
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(compiler);
+		File directory = File.createTempFile("reqa-", ".index");
+		directory.delete();
+		File source = new File(directory, "fixture/IndexedTest.java");
+		source.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(source), "UTF-8");
+		writer.write("package fixture;\n"
+				+ "@se.oskardevelopment.reqa.simple.annotations.Verifiable(verifies = \"Class requirement\")\n"
+				+ "public class IndexedTest {\n"
+				+ "	@org.junit.Test\n"
+				+ "	@se.oskardevelopment.reqa.simple.annotations.Verifiable(verifies = {\"First\", \"Second\"})\n"
+				+ "	public void verifies() {}\n"
+				+ "	public static class Nested {\n"
+				+ "		@org.junit.Test\n"
+				+ "		public void runs() {}\n"
+				+ "	}\n"
+				+ "}\n");
+		writer.close();
+		String classPath = location(Test.class) + File.pathSeparator + location(Verifiable.class);
+		ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+		
+		try {
+			// when:
+			StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null);
+			JavaCompiler.CompilationTask task = compiler.getTask(null, files, null,
+					Arrays.asList("-d", directory.getPath(), "-classpath", classPath), null,
+					files.getJavaFileObjects(source));
+			task.setProcessors(Arrays.asList(new VerifiableProcessor()));
+			boolean compiled = task.call();
+			files.close();
+			Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[] {directory.toURI().toURL()}, contextLoader));
+			List<ScannedClass> indexed = new IndexScanner("fixture.").scanClasses();
+			
+			// then:
+			assertTrue("The fixture should compile!", compiled);
+			assertTrue("The index should be written!", new File(directory, VerifiableProcessor.INDEX).isFile());
+			assertEquals(2, indexed.size());
+			assertEquals("fixture.IndexedTest", indexed.get(0).name);
+			assertEquals(Arrays.asList("Class requirement"), indexed.get(0).verifies);
+			assertEquals(Arrays.asList("First", "Second"), indexed.get(0).methods.get("verifies"));
+			assertEquals("fixture.IndexedTest$Nested", indexed.get(1).name);
+			assertTrue("The nested test verifies nothing!", indexed.get(1).methods.get("runs").isEmpty());
+		} finally {
+			Thread.currentThread().setContextClassLoader(contextLoader);
+			delete(directory);
+		}
+	}
+	
+	/**
+	 * location gets the classpath location a class is loaded from.
+	 * @param klazz Class to locate.
+	 * @return String path of the directory or jar of the class.
+	 * @throws URISyntaxException if the location isn't a valid URI.
+	 */
+	private static String location(Class<?> klazz) throws URISyntaxException {
+		return new File(klazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+	}
+	
+	/**
+	 * delete deletes a file, or a directory and all its files.
+	 * @param file File to delete.
+	 */
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null) {
+			for(File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
 
 }
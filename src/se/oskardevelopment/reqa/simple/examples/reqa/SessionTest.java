@@ -23,6 +23,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -30,8 +32,11 @@ import org.junit.runner.Description;
 import org.junit.runner.notification.Failure;
 
 import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.model.FailureTrace;
+import se.oskardevelopment.reqa.simple.model.ResultStore;
 import se.oskardevelopment.reqa.simple.model.Session;
 import se.oskardevelopment.reqa.simple.model.Tested;
+import se.oskardevelopment.reqa.simple.utility.Clock;
 
 public class SessionTest {
 	
@@ -116,6 +121,22 @@ public class SessionTest {
 		assertEquals(Boolean.FALSE, tested.isSuccessful());
 	}
 	
+	@Test
+	@Verifiable(verifies = "Session stores tested",
+	gist = "Tests added directly to the Session's tests are found when updating.")
+	public void testedCanBeUpdatedWhenAddedToTests() {
+		// given:
+		Tested tested = new Tested(description);
+		session.tests.add(tested);
+		
+		// when:
+		Tested stored = session.updateTested(new Tested(description));
+		
+		// then:
+		assertEquals(1, session.getTests().size());
+		assertTrue("The Tested already in the Session should be updated", tested == stored);
+	}
+	
 	@Test
 	@Verifiable(verifies = "Session stores tested")
 	public void sessionStartCanBeUpdated() {
@@ -150,4 +171,191 @@ public class SessionTest {
 		assertEquals(METHODS_CAN_BE_VERIFIED_REQ_ID, session.verifies.get(0).id);
 	}
 
+	@Test
+	@Verifiable(verifies = "Sessions can be merged")
+	public void sessionsCanBeMerged() {
+		// given:
+		Session shard = new Session();
+		shard.updateTested(new Tested(description));
+		shard.verify();
+		Session anotherShard = new Session();
+		anotherShard.updateTested(new Tested(description, new Failure(description, new AssertionError())));
+		anotherShard.verify();
+		
+		// when:
+		session.merge(shard).merge(anotherShard);
+		
+		// then:
+		assertEquals(2, session.getTests().size());
+		assertEquals(1, session.getVerifies().size());
+		assertEquals(2, session.getVerifies().get(0).getTested().size());
+		assertEquals(false, session.getVerifies().get(0).isVerified);
+	}
+
+	@Test
+	@Verifiable(verifies = "Session stores tested",
+	gist = "The events of a test all update the same interned Tested.")
+	public void eventsOfATestShareOneTested() {
+		// given:
+		Failure failure = new Failure(description, new AssertionError());
+		
+		// when:
+		session.testStarted(description);
+		session.addFailure(description, failure);
+		session.testFinished(description);
+		
+		// then:
+		assertEquals(1, session.getTests().size());
+		assertTrue(session.getTested(description) == session.getTests().get(0));
+		assertEquals(false, session.getTests().get(0).isSuccessful());
+		assertTrue(session.getTests().get(0).durationInMillis != null);
+	}
+
+	@Test
+	@Verifiable(verifies = "Tested tracks measurements",
+	gist = "Tests are timed by the session's clock, in nanoseconds by its monotonic time.")
+	public void testsAreTimedByTheClock() {
+		// given:
+		final long[] nanos = {1000L, 1500L};
+		session.setClock(new Clock() {
+			private int calls = 0;
+			
+			@Override
+			public long currentTimeMillis() {
+				return 1337L;
+			}
+			
+			@Override
+			public long nanoTime() {
+				return nanos[calls++];
+			}
+		});
+		
+		// when:
+		session.testStarted(description);
+		session.testFinished(description);
+		
+		// then:
+		Tested tested = session.getTests().get(0);
+		assertEquals(Long.valueOf(500L), tested.durationInNanos);
+		assertEquals(Long.valueOf(0L), tested.durationInMillis);
+		assertEquals(1337L, tested.startedAt.getTime());
+		assertEquals(1337L, session.sessionEnd.getTime());
+	}
+
+	@Test
+	@Verifiable(verifies = "Session verifies requirements as tests finish",
+	gist = "A requirement's Verified is updated as soon as a test of it finishes, also when retried.")
+	public void verifiedIsUpdatedAsTestsFinish() {
+		// expect:
+		assertEquals(null, session.getVerified(METHODS_CAN_BE_VERIFIED_REQ_ID));
+		
+		// when:
+		session.testStarted(description);
+		session.testFinished(description);
+		
+		// then:
+		assertEquals(true, session.getVerified(METHODS_CAN_BE_VERIFIED_REQ_ID).isVerified);
+		
+		// when:
+		session.testStarted(description);
+		session.addFailure(description, new Failure(description, new AssertionError()));
+		session.testFinished(description);
+		session.verify();
+		
+		// then:
+		assertEquals(1, session.getVerifies().size());
+		assertEquals(1, session.getVerifies().get(0).getTested().size());
+		assertEquals(false, session.getVerified(METHODS_CAN_BE_VERIFIED_REQ_ID).isVerified);
+	}
+
+	@Test
+	@Verifiable(verifies = "Session stores failures compactly",
+	gist = "Tests failing with the same trace share one trimmed trace, their failures are released when finished.")
+	public void equalFailuresAreStoredOnce() {
+		// given:
+		Description another = Description.createTestDescription(SessionTest.class, "another");
+		List<Failure> failures = new ArrayList<Failure>();
+		for(Description failed : new Description[] {description, another}) {
+			failures.add(new Failure(failed, brokenFixture(failed.getMethodName())));
+		}
+		session.setMaxFailureFrames(2);
+		
+		// when:
+		for(Failure failure : failures) {
+			session.testStarted(failure.getDescription());
+			session.addFailure(failure.getDescription(), failure);
+			session.testFinished(failure.getDescription());
+		}
+		
+		// then:
+		Tested first = session.getTests().get(0);
+		Tested second = session.getTests().get(1);
+		FailureTrace trace = session.getFailureTrace(first);
+		assertEquals(1, session.failures.size());
+		assertTrue(trace == session.getFailureTrace(second));
+		assertEquals(null, first.getFailure());
+		assertEquals("Broken fixture of another", second.failureMessage);
+		assertEquals(IllegalStateException.class.getName(), trace.type);
+		assertEquals(2, trace.frames.size());
+		assertTrue(trace.frames.get(0).contains("brokenFixture"));
+	}
+	
+	@Test
+	@Verifiable(verifies = "Session results can be stored compactly",
+	gist = "A stored session is read back as views of its tests and requirements.")
+	public void sessionCanBeStoredCompactly() {
+		// given:
+		Description another = Description.createTestDescription(SessionTest.class, "another", description.getAnnotations().toArray(new Annotation[0]));
+		session.testStarted(description);
+		session.testFinished(description);
+		session.testStarted(another);
+		session.addFailure(another, new Failure(another, brokenFixture("another")));
+		session.testFinished(another);
+		session.verify();
+		
+		// when:
+		ResultStore store = ResultStore.of(session);
+		
+		// then:
+		assertEquals(2, store.size());
+		assertEquals(true, store.isSuccessful(0));
+		assertEquals(false, store.isSuccessful(1));
+		assertEquals(session.getTests().get(0).test, store.getTests().get(0).test);
+		assertEquals(session.getTests().get(1).failureHash, store.getTested(1).failureHash);
+		assertEquals(session.getTests().get(0).durationInNanos, store.getTested(0).durationInNanos);
+		assertEquals(false, store.getVerified(METHODS_CAN_BE_VERIFIED_REQ_ID).isVerified);
+		assertEquals(2, store.getVerified(METHODS_CAN_BE_VERIFIED_REQ_ID).getTested().size());
+		assertEquals("SessionTest.another", store.getVerifies().get(0).getTested().get(1).test);
+	}
+	
+	@Test
+	@Verifiable(verifies = "Session results can be stored compactly",
+	gist = "A compacted session reads its tests and requirements as views, keeping the traces of the failures.")
+	public void sessionCanBeCompacted() {
+		// given:
+		Description another = Description.createTestDescription(SessionTest.class, "another", description.getAnnotations().toArray(new Annotation[0]));
+		session.testStarted(description);
+		session.testFinished(description);
+		session.testStarted(another);
+		session.addFailure(another, new Failure(another, brokenFixture("another")));
+		session.testFinished(another);
+		session.verify();
+		
+		// when:
+		Session compacted = ResultStore.compact(session);
+		
+		// then:
+		assertEquals(session.sessionStart, compacted.sessionStart);
+		assertEquals(2, compacted.getTests().size());
+		assertEquals(session.getTests().get(1).failureMessage, compacted.getTests().get(1).failureMessage);
+		assertEquals(session.getFailureTrace(session.getTests().get(1)), compacted.getFailureTrace(compacted.getTests().get(1)));
+		assertEquals(false, compacted.getVerified(METHODS_CAN_BE_VERIFIED_REQ_ID).isVerified);
+		assertEquals(2, compacted.getVerified(METHODS_CAN_BE_VERIFIED_REQ_ID).getTested().size());
+	}
+	
+	private static IllegalStateException brokenFixture(String test) {
+		return new IllegalStateException("Broken fixture of " + test);
+	}
+
 }
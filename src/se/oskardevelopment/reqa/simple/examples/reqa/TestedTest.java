@@ -93,6 +93,25 @@ public class TestedTest {
 			assertEquals(annotations[i], verifies.get(i));
 		}
 	}
+	
+	@Test
+	@Verifiable(verifies = "Tested describes the test",
+	gist = "A parameterized test is resolved to its method and keeps the index of its parameters.")
+	public void verifyParameterizedTestedIsResolved() {
+		// given:
+		Description description = Description.createTestDescription(this.getClass(), "verifyTestedVerifies[3: 1+2]");
+		Description otherDescription = Description.createTestDescription(this.getClass(), "verifyTestedVerifies[4: 2+2]");
+		
+		// when:
+		Tested tested = new Tested(description);
+		Tested otherTested = new Tested(otherDescription);
+		
+		// then:
+		assertEquals("TestedTest.verifyTestedVerifies[3]", tested.test);
+		assertEquals(Integer.valueOf(3), tested.parameterIndex);
+		assertTrue(!tested.equals(otherTested));
+		assertTrue(tested.equals(new Tested(description)));
+	}
 
 	
 }
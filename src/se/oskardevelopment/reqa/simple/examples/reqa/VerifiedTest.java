@@ -24,6 +24,7 @@ import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.model.DurationStats;
 import se.oskardevelopment.reqa.simple.model.Tested;
 import se.oskardevelopment.reqa.simple.model.Verified;
 
@@ -92,4 +93,33 @@ public class VerifiedTest {
 		//then:
 		assertEquals(durationTime, verified.getDurationInMillis());
 	}
+	
+	@Test
+	@Verifiable(verifies = "Verified tracks the duration of all tested",
+	gist = "Durations are kept as statistics with approximate percentiles, mergeable across sessions.")
+	public void verifyDurationStatistics() {
+		//given:
+		Verified another = new Verified(VERIFIED_ID);
+		for(long millis = 1; millis <= 100; millis++) {
+			Tested tested = new Tested();
+			tested.durationInMillis = millis;
+			verified.addTest(tested);
+			another.addTest(tested);
+		}
+		
+		//when:
+		verified.addTest(new Tested());
+		DurationStats durations = verified.getDurations();
+		DurationStats merged = durations.copy().merge(another.getDurations());
+		
+		//then:
+		assertEquals(5050L, verified.getDurationInMillis());
+		assertEquals(100L, durations.count);
+		assertEquals(Long.valueOf(1000000L), durations.minInNanos);
+		assertEquals(Long.valueOf(100000000L), durations.maxInNanos);
+		assertEquals(50000000.0, durations.getPercentileInNanos(50), 50000000.0 / 4);
+		assertEquals(99000000.0, durations.getPercentileInNanos(99), 99000000.0 / 4);
+		assertEquals(200L, merged.count);
+		assertEquals(durations.getPercentileInNanos(95), merged.getPercentileInNanos(95));
+	}
 }
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.examples.reqa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import se.oskardevelopment.reqa.simple.ReqaTester;
+import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.examples.simplest.MathTest;
+import se.oskardevelopment.reqa.simple.runner.WatchDaemon;
+import se.oskardevelopment.reqa.simple.scanner.IndexScanner;
+import se.oskardevelopment.reqa.simple.utility.OutputHelper;
+
+public class WatchDaemonTest {
+
+	// Class directory watched by the daemon, with copies of test classes.
+	private Path directory;
+	// Daemon watching the class directory.
+	private TestedDaemon daemon;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("reqa-");
+		copy(MathTest.class);
+		copy(ScannerTest.class);
+		daemon = new TestedDaemon(directory.toFile());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		daemon.close();
+		delete(directory.toFile());
+	}
+
+	@Test
+	@Verifiable(verifies = "WatchDaemon reruns the tests affected by a change",
+	gist = "A changed class affects the test classes referring to it, and a changed test class itself.")
+	public void changedClassAffectsReferringTests() {
+		// when:
+		List<String> byTest = daemon.getAffected(Collections.singleton(MathTest.class.getName()));
+		List<String> byReference = daemon.getAffected(Collections.singleton(IndexScanner.class.getName()));
+		List<String> byNothing = daemon.getAffected(Collections.singleton("se.oskardevelopment.reqa.simple.Unreferenced"));
+		
+		// then:
+		assertEquals(Arrays.asList(ScannerTest.class.getName(), MathTest.class.getName()), byTest);
+		assertEquals(Arrays.asList(ScannerTest.class.getName()), byReference);
+		assertTrue("No test refers to the class!", byNothing.isEmpty());
+	}
+
+	@Test
+	@Verifiable(verifies = "WatchDaemon reruns the tests affected by a change",
+	gist = "A changed class affects the test classes referring to it through other classes of the directories.")
+	public void changedClassAffectsTestsReferringThroughOtherClasses() throws IOException {
+		// given:
+		List<String> before = daemon.getAffected(Collections.singleton(OutputHelper.class.getName()));
+		Path file = copy(IndexScanner.class);
+		
+		// when:
+		daemon.update(IndexScanner.class.getName(), file);
+		List<String> after = daemon.getAffected(Collections.singleton(OutputHelper.class.getName()));
+		
+		// then:
+		assertTrue("Only IndexScanner refers to OutputHelper!", before.isEmpty());
+		assertEquals(Arrays.asList(ScannerTest.class.getName()), after);
+	}
+
+	@Test
+	@Verifiable(verifies = "WatchDaemon reruns the tests affected by a change",
+	gist = "A deleted test class is forgotten, it isn't affected by later changes.")
+	public void deletedTestIsForgotten() throws IOException {
+		// given:
+		Path file = directory.resolve(ScannerTest.class.getName().replace('.', File.separatorChar) + ".class");
+		String name = TestedDaemon.getClassName(directory, file);
+		
+		// when:
+		Files.delete(file);
+		daemon.update(name, file);
+		
+		// then:
+		assertEquals(ScannerTest.class.getName(), name);
+		assertTrue("The deleted test should be forgotten!", daemon.getAffected(Collections.singleton(IndexScanner.class.getName())).isEmpty());
+		assertEquals(Arrays.asList(MathTest.class.getName()), daemon.getAffected(Collections.singleton(MathTest.class.getName())));
+	}
+
+	/**
+	 * copy copies the class file of a class into the class directory.
+	 * @param klazz Class to copy.
+	 * @return Path of the copied class file.
+	 * @throws IOException if the class file couldn't be copied.
+	 */
+	private Path copy(Class<?> klazz) throws IOException {
+		Path file = directory.resolve(klazz.getName().replace('.', File.separatorChar) + ".class");
+		Files.createDirectories(file.getParent());
+		InputStream input = klazz.getResourceAsStream(klazz.getSimpleName() + ".class");
+		try {
+			Files.copy(input, file);
+		} finally {
+			input.close();
+		}
+		return file;
+	}
+
+	/**
+	 * delete deletes a file, or a directory and all its files.
+	 * @param file File to delete.
+	 */
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null) {
+			for(File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * TestedDaemon is a WatchDaemon letting the test update classes.
+	 */
+	private static class TestedDaemon extends WatchDaemon {
+
+		/**
+		 * TestedDaemon constructor watching a class directory.
+		 * @param directory File of the class directory.
+		 * @throws IOException if the directory couldn't be watched.
+		 */
+		private TestedDaemon(File directory) throws IOException {
+			super(new ReqaTester(), Arrays.asList(directory));
+		}
+
+		@Override
+		public void update(String name, Path file) {
+			super.update(name, file);
+		}
+
+		/**
+		 * getClassName gets the name of a class from the path of its class file.
+		 * @param root Path of the class directory.
+		 * @param file Path of the class file.
+		 * @return String name of the class.
+		 */
+		protected static String getClassName(Path root, Path file) {
+			return WatchDaemon.getClassName(root, file);
+		}
+
+	}
+
+}
@@ -20,6 +20,7 @@ package se.oskardevelopment.reqa.simple.listener;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.junit.runner.Description;
 import org.junit.runner.Result;
@@ -33,11 +34,12 @@ import se.oskardevelopment.reqa.simple.model.Session;
  * track of all tests, the session and the listeners
  * tracking the testing.
  * Create a new ReqaListener for each new test session.
+ * Events may be fired concurrently when tests are run in parallel.
  */
 public class ReqaListener extends RunListener {
 
-	// All listeners listening on the testing.
-	public List<TestListener> listeners = new ArrayList<TestListener>();
+	// All listeners listening on the testing, safe to iterate while tests run in parallel.
+	public List<TestListener> listeners = new CopyOnWriteArrayList<TestListener>();
 	// Session that contains the test information.
 	protected Session session;
 	
@@ -69,7 +71,10 @@ public class ReqaListener extends RunListener {
 	
 	@Override
 	public void testRunStarted(Description description) {
-		// Description is always null from JUnit.
+		// Description is the plan of the run, or null if unknown.
+		if(description != null) {
+			session.setPlan(description);
+		}
 		for(TestListener listener : listeners) {
 			listener.runStarted(session);
 		}
@@ -32,8 +32,8 @@ import se.oskardevelopment.reqa.simple.model.Session;
  */
 public class SessionListener implements TestListener {
 
-	// Session used to track testing.
-	private Session session;
+	// Session used to track testing, read by all threads running tests.
+	private volatile Session session;
 	
 	/**
 	 * getSession gets the SessionListener's session.
@@ -0,0 +1,338 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.listener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runners.model.Statement;
+
+import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.Tested;
+
+/**
+ * Watchdog is a TestListener keeping tests within their time budgets
+ * and showing where slow tests spend their time.
+ * A test has a budget of its own and shares the budget of each requirement
+ * it verifies with the other tests of the requirement. A test running past
+ * its budget fails with a TimeoutException showing where it was, and the
+ * thread running it is abandoned and interrupted. Budgets are kept by the
+ * runner, see withBudget(Description, Statement), so only the tests of plain
+ * JUnit 4 classes, run by a PhasedRunner, are kept within them.
+ * A test running past the sampling threshold has its stack sampled,
+ * and the most sampled frames are kept as the hot frames of its Tested.
+ */
+public class Watchdog implements TestListener {
+
+	// Watchdog's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+	// Amount of hot frames kept for a test.
+	public static int HOT_FRAMES = 10;
+
+	// Budget of each test in milliseconds, 0 if unlimited.
+	protected long testBudgetInMillis;
+	// Budget of each requirement in milliseconds, shared by the tests verifying it.
+	protected Map<String, Long> requirementBudgets = new HashMap<String, Long>();
+	// Time a test runs before its stack is sampled.
+	protected long sampleThresholdInMillis = 1000;
+	// Time between the samples of a test's stack.
+	protected long sampleIntervalInMillis = 50;
+
+	// Session of the run.
+	protected volatile Session session;
+	// Thread keeping watch, only during a run.
+	protected ScheduledExecutorService watch;
+	// Tests that are running.
+	protected final Map<Description, Running> running = new ConcurrentHashMap<Description, Running>();
+	// Budget left of each requirement during a run.
+	protected final Map<String, Long> remaining = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * Watchdog constructor without budgets, only sampling slow tests.
+	 */
+	public Watchdog() {
+		this(0);
+	}
+
+	/**
+	 * Watchdog constructor with a budget for each test.
+	 * @param testBudgetInMillis long budget of each test in milliseconds, 0 if unlimited.
+	 */
+	public Watchdog(long testBudgetInMillis) {
+		this.testBudgetInMillis = testBudgetInMillis;
+	}
+
+	/**
+	 * setRequirementBudget sets the budget of a requirement, shared by all tests verifying it.
+	 * @param id String ID of the requirement.
+	 * @param budgetInMillis long budget in milliseconds.
+	 * @return Watchdog that is configured.
+	 */
+	public Watchdog setRequirementBudget(String id, long budgetInMillis) {
+		requirementBudgets.put(id, budgetInMillis);
+		return this;
+	}
+
+	/**
+	 * setSampling sets when and how often the stacks of slow tests are sampled.
+	 * @param thresholdInMillis long time a test runs before it's sampled.
+	 * @param intervalInMillis long time between samples.
+	 * @return Watchdog that is configured.
+	 */
+	public Watchdog setSampling(long thresholdInMillis, long intervalInMillis) {
+		this.sampleThresholdInMillis = thresholdInMillis;
+		this.sampleIntervalInMillis = intervalInMillis;
+		return this;
+	}
+
+	@Override
+	public void runStarted(Session session) {
+		this.session = session;
+		remaining.clear();
+		remaining.putAll(requirementBudgets);
+		watch = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "reqa-watchdog");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	@Override
+	public void beforeTest(Description testDescription) {
+		final Running test = new Running(testDescription, Thread.currentThread());
+		running.put(testDescription, test);
+		test.sampling = watch.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				test.sample();
+			}
+		}, sampleThresholdInMillis, sampleIntervalInMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void failedTest(Description testDescription, Failure failureDescription) {}
+
+	@Override
+	public void afterTest(Description testDescription) {
+		Running test = running.remove(testDescription);
+		if(test == null) {
+			return;
+		}
+		long elapsed = test.stop();
+		Verifiable verifiable = testDescription.getAnnotation(Verifiable.class);
+		if(verifiable != null) {
+			for(String id : verifiable.verifies()) {
+				Long left = remaining.get(id);
+				if(left != null) {
+					remaining.put(id, left - elapsed);
+				}
+			}
+		}
+		Map<String, Integer> hotFrames = test.getHotFrames();
+		if(test.timedOut || !hotFrames.isEmpty()) {
+			Tested tested = session.getTested(testDescription);
+			if(test.timedOut) {
+				tested.isTimedOut = true;
+			}
+			if(!hotFrames.isEmpty()) {
+				tested.hotFrames = hotFrames;
+			}
+		}
+	}
+
+	@Override
+	public void runFinished(Result result) {
+		watch.shutdownNow();
+	}
+
+	/**
+	 * withBudget wraps the statement of a test, running it on a thread of its own
+	 * if the test has a budget. A test running past its budget is abandoned, its
+	 * thread interrupted, and fails with a TimeoutException showing where it was,
+	 * thrown to the runner so the failure is reported like any other.
+	 * @param testDescription Description of the test.
+	 * @param statement Statement running the test.
+	 * @return Statement keeping the test within its budget.
+	 */
+	public Statement withBudget(final Description testDescription, final Statement statement) {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				Running test = running.get(testDescription);
+				long budget = getBudget(testDescription);
+				if(test == null || budget < 0) {
+					statement.evaluate();
+					return;
+				}
+				final Throwable[] thrown = new Throwable[1];
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							statement.evaluate();
+						} catch(Throwable throwable) {
+							thrown[0] = throwable;
+						}
+					}
+				}, "reqa-test-" + testDescription.getDisplayName());
+				thread.setDaemon(true);
+				test.thread = thread;
+				thread.start();
+				// Joining for 0 ms would wait until the test finishes.
+				thread.join(Math.max(1, budget));
+				if(thread.isAlive()) {
+					throw timeout(test);
+				}
+				if(thrown[0] != null) {
+					throw thrown[0];
+				}
+			}
+		};
+	}
+
+	/**
+	 * getBudget gets the budget of a test, the least of its own
+	 * and what's left of the budgets of its requirements.
+	 * @param testDescription Description of the test.
+	 * @return long budget in milliseconds, less than zero if unlimited.
+	 */
+	protected long getBudget(Description testDescription) {
+		long budget = testBudgetInMillis > 0 ? testBudgetInMillis : -1;
+		Verifiable verifiable = testDescription.getAnnotation(Verifiable.class);
+		if(verifiable != null) {
+			for(String id : verifiable.verifies()) {
+				Long left = remaining.get(id);
+				if(left != null && (budget < 0 || left < budget)) {
+					budget = Math.max(0, left);
+				}
+			}
+		}
+		return budget;
+	}
+
+	/**
+	 * timeout abandons a test that ran past its budget, interrupting its thread,
+	 * and creates the exception failing it, its stack trace showing where the test was.
+	 * @param test Running test.
+	 * @return TimeoutException failing the test.
+	 */
+	protected TimeoutException timeout(Running test) {
+		test.timedOut = true;
+		TimeoutException timeout = new TimeoutException(test.description.getDisplayName() + " ran past its budget!");
+		timeout.setStackTrace(test.thread.getStackTrace());
+		LOGGER.warn("{} ran past its budget and is abandoned.", test.description.getDisplayName());
+		test.thread.interrupt();
+		return timeout;
+	}
+
+	/**
+	 * Running is a test that is running, with its samples.
+	 */
+	protected static class Running {
+
+		// Description of the test.
+		protected final Description description;
+		// Thread running the test, its own thread if the test has a budget.
+		protected volatile Thread thread;
+		// When the test started, in nanoseconds.
+		protected final long startedAt = System.nanoTime();
+		// Times each frame was on top of the test's stack.
+		protected final Map<String, Integer> samples = new HashMap<String, Integer>();
+		// Sampling of the test's stack.
+		protected volatile ScheduledFuture<?> sampling;
+		// If the test ran past its budget.
+		protected volatile boolean timedOut = false;
+		// If the test finished, samples taken after are left out.
+		protected volatile boolean stopped = false;
+
+		/**
+		 * Running constructor.
+		 * @param description Description of the test.
+		 * @param thread Thread running the test.
+		 */
+		protected Running(Description description, Thread thread) {
+			this.description = description;
+			this.thread = thread;
+		}
+
+		/**
+		 * sample samples the frame on top of the test's stack.
+		 */
+		protected synchronized void sample() {
+			StackTraceElement[] stack = thread.getStackTrace();
+			if(stack.length > 0 && !stopped) {
+				String frame = stack[0].toString();
+				Integer count = samples.get(frame);
+				samples.put(frame, count == null ? 1 : count + 1);
+			}
+		}
+
+		/**
+		 * stop stops watching the test.
+		 * @return long time the test ran in milliseconds.
+		 */
+		protected synchronized long stop() {
+			stopped = true;
+			sampling.cancel(false);
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+		}
+
+		/**
+		 * getHotFrames gets the most sampled frames.
+		 * @return Map<String, Integer> of the frames mapped to their samples, most sampled first.
+		 */
+		protected synchronized Map<String, Integer> getHotFrames() {
+			List<Map.Entry<String, Integer>> frames = new ArrayList<Map.Entry<String, Integer>>(samples.entrySet());
+			Collections.sort(frames, new Comparator<Map.Entry<String, Integer>>() {
+				@Override
+				public int compare(Map.Entry<String, Integer> first, Map.Entry<String, Integer> second) {
+					return Integer.compare(second.getValue(), first.getValue());
+				}
+			});
+			Map<String, Integer> hotFrames = new LinkedHashMap<String, Integer>();
+			for(Map.Entry<String, Integer> frame : frames.subList(0, Math.min(HOT_FRAMES, frames.size()))) {
+				hotFrames.put(frame.getKey(), frame.getValue());
+			}
+			return hotFrames;
+		}
+
+	}
+
+}
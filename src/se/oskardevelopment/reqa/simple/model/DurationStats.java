@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.model;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import se.oskardevelopment.reqa.simple.utility.PrettyPrinter;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * DurationStats keeps statistics of durations as they are added, without
+ * keeping the durations: the count, sum, min, max and a histogram of fixed
+ * size giving approximate percentiles, ex. verified.getDurations().getPercentileInNanos(95).
+ * The histogram has SUB_BUCKETS buckets per power of two, so a percentile is
+ * within a quarter of the duration. Only the buckets with durations are kept,
+ * as durations of a requirement fall in a few neighbouring buckets. Statistics of several sessions are merged
+ * with merge, ex. when reading the history of a requirement.
+ */
+public class DurationStats {
+
+	// Buckets per power of two of the histogram.
+	public static final int SUB_BUCKETS = 4;
+	// Buckets of the histogram, enough for any duration.
+	public static final int BUCKETS = (Long.SIZE - 2) * SUB_BUCKETS;
+	// Bits of a duration below its highest bit used to find its bucket.
+	private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+	// Amount of durations.
+	@Expose
+	public long count = 0;
+	// Sum of the durations in nanoseconds.
+	@Expose
+	public long sumInNanos = 0;
+	// Shortest duration in nanoseconds, null if none.
+	@Expose
+	public Long minInNanos = null;
+	// Longest duration in nanoseconds, null if none.
+	@Expose
+	public Long maxInNanos = null;
+	// Amount of durations in each bucket with durations, by bucket, null if none.
+	@Expose
+	public SortedMap<Integer, Long> buckets = null;
+
+	/**
+	 * add adds the duration of a test, by its monotonic duration if timed by one.
+	 * Tests that weren't timed, ex. never finished, are left out.
+	 * @param test Tested whose duration is added.
+	 * @return DurationStats that is added to.
+	 */
+	public DurationStats add(Tested test) {
+		if(test.durationInNanos != null) {
+			add(test.durationInNanos);
+		} else if(test.durationInMillis != null) {
+			add(TimeUnit.MILLISECONDS.toNanos(test.durationInMillis));
+		}
+		return this;
+	}
+
+	/**
+	 * add adds a duration, a negative duration is added as 0.
+	 * @param nanos long duration in nanoseconds.
+	 * @return DurationStats that is added to.
+	 */
+	public DurationStats add(long nanos) {
+		nanos = Math.max(nanos, 0);
+		count++;
+		sumInNanos += nanos;
+		minInNanos = minInNanos == null ? nanos : Math.min(minInNanos, nanos);
+		maxInNanos = maxInNanos == null ? nanos : Math.max(maxInNanos, nanos);
+		addToBucket(bucket(nanos), 1);
+		return this;
+	}
+
+	/**
+	 * merge adds the durations of other statistics, ex. of another session.
+	 * @param stats DurationStats to merge, or null to merge nothing.
+	 * @return DurationStats that is merged into.
+	 */
+	public DurationStats merge(DurationStats stats) {
+		if(stats == null || stats.count == 0) {
+			return this;
+		}
+		count += stats.count;
+		sumInNanos += stats.sumInNanos;
+		if(stats.minInNanos != null) {
+			minInNanos = minInNanos == null ? stats.minInNanos : Math.min(minInNanos, stats.minInNanos);
+		}
+		if(stats.maxInNanos != null) {
+			maxInNanos = maxInNanos == null ? stats.maxInNanos : Math.max(maxInNanos, stats.maxInNanos);
+		}
+		if(stats.buckets != null) {
+			for(Map.Entry<Integer, Long> bucket : stats.buckets.entrySet()) {
+				addToBucket(bucket.getKey(), bucket.getValue());
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * copy copies the statistics.
+	 * @return DurationStats that is a copy.
+	 */
+	public DurationStats copy() {
+		return new DurationStats().merge(this);
+	}
+
+	/**
+	 * getMeanInNanos gets the mean duration.
+	 * @return long mean duration in nanoseconds, 0 if none.
+	 */
+	public long getMeanInNanos() {
+		return count == 0 ? 0 : sumInNanos / count;
+	}
+
+	/**
+	 * getPercentileInNanos gets an approximate percentile of the durations,
+	 * ex. 95 for the duration that 95 % of the durations are within.
+	 * @param percentile double percentile from 0 to 100.
+	 * @return long approximate duration in nanoseconds, 0 if none.
+	 * @throws IllegalArgumentException if percentile isn't from 0 to 100.
+	 */
+	public long getPercentileInNanos(double percentile) {
+		if(percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile has to be from 0 to 100!");
+		}
+		if(count == 0 || buckets == null) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long counted = 0;
+		for(Map.Entry<Integer, Long> entry : buckets.entrySet()) {
+			counted += entry.getValue();
+			if(counted >= rank) {
+				int bucket = entry.getKey();
+				long lower = lowerBound(bucket);
+				long estimate = lower + (lowerBound(bucket + 1) - 1 - lower) / 2;
+				return Math.max(minInNanos, Math.min(maxInNanos, estimate));
+			}
+		}
+		return maxInNanos;
+	}
+
+	/**
+	 * addToBucket adds durations to a bucket of the histogram, created the first time.
+	 * @param bucket int bucket of the durations.
+	 * @param durations long amount of durations.
+	 */
+	private void addToBucket(int bucket, long durations) {
+		if(buckets == null) {
+			buckets = new TreeMap<Integer, Long>();
+		}
+		Long counted = buckets.get(bucket);
+		buckets.put(bucket, counted == null ? durations : counted + durations);
+	}
+
+	/**
+	 * bucket gets the bucket of a duration.
+	 * @param nanos long duration in nanoseconds, not negative.
+	 * @return int bucket of the duration.
+	 */
+	protected static int bucket(long nanos) {
+		if(nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * lowerBound gets the shortest duration of a bucket.
+	 * @param bucket int bucket of the histogram.
+	 * @return long shortest duration in nanoseconds, Long.MAX_VALUE past the last bucket.
+	 */
+	protected static long lowerBound(int bucket) {
+		if(bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		if(bucket >= BUCKETS) {
+			return Long.MAX_VALUE;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+
+	@Override
+	public String toString() {
+		return PrettyPrinter.prettify(this);
+	}
+
+}
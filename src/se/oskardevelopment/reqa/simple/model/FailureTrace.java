@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.model;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import se.oskardevelopment.reqa.simple.utility.PrettyPrinter;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * FailureTrace is a compact stack trace of a failed test. Frames of
+ * the test frameworks are cut out and only the first frames are kept,
+ * so the many tests failing by the same broken fixture share one small trace.
+ * Stored once per hash in the Session, ex. session.getFailureTrace(tested).
+ */
+public class FailureTrace {
+
+	// Default amount of frames kept of each trace.
+	public static final int MAX_FRAMES = 20;
+	// Amount of causes kept of each trace.
+	public static final int MAX_CAUSES = 5;
+	// Prefixes of the classes whose frames are cut out of the traces.
+	public static final List<String> FRAMEWORK_FRAMES = Collections.unmodifiableList(Arrays.asList(
+			"org.junit.", "junit.", "sun.reflect.", "java.lang.reflect.", "jdk.internal.reflect.",
+			"org.apache.maven.surefire.", "se.oskardevelopment.reqa.simple.runner.",
+			"se.oskardevelopment.reqa.simple.listener."));
+	// Algorithm the traces are hashed with.
+	private static final String ALGORITHM = "SHA-1";
+
+	// Name of the class of the exception.
+	@Expose
+	public String type;
+	// Frames kept of the trace, from the top of the stack.
+	@Expose
+	public List<String> frames = new ArrayList<String>();
+	// Frames cut out of the trace, null if none.
+	@Expose
+	public Integer omittedFrames = null;
+	// Trace of the exception's cause, null if none.
+	@Expose
+	public FailureTrace cause = null;
+
+	// Hash of the trace, computed once.
+	protected transient String hash;
+
+	/**
+	 * FailureTrace constructor that's used for Gson compatibility.
+	 * Used for internal workings, do not use!
+	 */
+	public FailureTrace() {}
+
+	/**
+	 * of creates the compact trace of an exception.
+	 * @param exception Throwable that failed a test.
+	 * @param maxFrames int amount of frames kept of the exception and each cause.
+	 * @return FailureTrace of the exception.
+	 */
+	public static FailureTrace of(Throwable exception, int maxFrames) {
+		return of(exception, maxFrames, MAX_CAUSES);
+	}
+
+	/**
+	 * of creates the compact trace of an exception and its causes.
+	 * @param exception Throwable that failed a test.
+	 * @param maxFrames int amount of frames kept of the exception and each cause.
+	 * @param causes int amount of causes still to keep.
+	 * @return FailureTrace of the exception.
+	 */
+	private static FailureTrace of(Throwable exception, int maxFrames, int causes) {
+		FailureTrace trace = new FailureTrace();
+		trace.type = exception.getClass().getName();
+		int omitted = 0;
+		for(StackTraceElement frame : exception.getStackTrace()) {
+			if(trace.frames.size() >= maxFrames || isFramework(frame)) {
+				omitted++;
+			} else {
+				trace.frames.add(frame.toString());
+			}
+		}
+		trace.omittedFrames = omitted == 0 ? null : omitted;
+		Throwable cause = exception.getCause();
+		if(cause != null && cause != exception && causes > 0) {
+			trace.cause = of(cause, maxFrames, causes - 1);
+		}
+		return trace;
+	}
+
+	/**
+	 * isFramework checks if a frame is a frame of the test frameworks.
+	 * @param frame StackTraceElement to check.
+	 * @return boolean true if the frame is cut out, else false.
+	 */
+	private static boolean isFramework(StackTraceElement frame) {
+		for(String prefix : FRAMEWORK_FRAMES) {
+			if(frame.getClassName().startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * getHash gets the hash of the trace, equal for equal traces.
+	 * @return String hex of the hash of the type, frames and causes.
+	 */
+	public String getHash() {
+		if(hash == null) {
+			MessageDigest digest = createDigest();
+			Charset utf8 = Charset.forName("UTF-8");
+			for(FailureTrace trace = this; trace != null; trace = trace.cause) {
+				digest.update(String.valueOf(trace.type).getBytes(utf8));
+				digest.update((byte) 0);
+				for(String frame : trace.frames) {
+					digest.update(frame.getBytes(utf8));
+					digest.update((byte) '\n');
+				}
+				digest.update(String.valueOf(trace.omittedFrames).getBytes(utf8));
+				digest.update((byte) 0);
+			}
+			hash = toHex(digest.digest());
+		}
+		return hash;
+	}
+
+	/**
+	 * createDigest creates a MessageDigest of the hash algorithm.
+	 * @return MessageDigest that is new.
+	 */
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch(NoSuchAlgorithmException exception) {
+			throw new IllegalStateException(ALGORITHM + " is required of every Java platform!", exception);
+		}
+	}
+
+	/**
+	 * toHex converts bytes to hex.
+	 * @param bytes byte[] to convert.
+	 * @return String of two hex digits per byte.
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for(byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	@Override
+	public String toString() {
+		return PrettyPrinter.prettify(this);
+	}
+
+}
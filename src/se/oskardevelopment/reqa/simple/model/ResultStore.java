@@ -0,0 +1,526 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.model;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import se.oskardevelopment.reqa.simple.utility.TestedIterator;
+
+/**
+ * ResultStore keeps the results of tests compactly, as parallel primitive
+ * arrays with one row per test, bitsets of the statuses and the strings
+ * interned by ID, ex. to keep the results of a session once it's finished,
+ * ResultStore.of(session), or to compact the session itself, compact(session).
+ * Tested and Verified are read as views of the rows, created when read and
+ * without their methods, descriptions and hot frames. The traces of the
+ * failures are kept as they are, each stored once by its hash.
+ * The views are only read, changing them doesn't change the store.
+ */
+public class ResultStore {
+
+	// Value of a long column that is null.
+	protected static final long NONE = Long.MIN_VALUE;
+	// ID of a string that is null.
+	protected static final int NO_ID = -1;
+	// Long columns.
+	protected static final int STARTED_AT = 0, FINISHED_AT = 1, DURATION_IN_MILLIS = 2, DURATION_IN_NANOS = 3,
+			SETUP_IN_NANOS = 4, BODY_IN_NANOS = 5, TEARDOWN_IN_NANOS = 6, LONGS = 7;
+	// Int columns, strings by ID and numbers.
+	protected static final int TEST = 0, GIST = 1, FAILURE_MESSAGE = 2, FAILURE_HASH = 3,
+			PARAMETER_INDEX = 4, ATTEMPTS = 5, CLASS_NAME = 6, INTS = 7;
+
+	// Amount of rows.
+	protected int size = 0;
+	// Long columns by column, ex. longs[DURATION_IN_NANOS][row].
+	protected long[][] longs = new long[LONGS][];
+	// Int columns by column, ex. ints[TEST][row].
+	protected int[][] ints = new int[INTS][];
+	// Flakiness of each row, NaN if null.
+	protected double[] flakiness;
+	// Rows of successful tests.
+	protected final BitSet successful = new BitSet();
+	// Rows of skipped tests.
+	protected final BitSet skipped = new BitSet();
+	// Rows of tests carried forward.
+	protected final BitSet carriedForward = new BitSet();
+	// Rows of tests that timed out.
+	protected final BitSet timedOut = new BitSet();
+	// Rows of tests that passed on a retry.
+	protected final BitSet retryPassed = new BitSet();
+	// Rows of tests run in the low-priority lane.
+	protected final BitSet lowPriority = new BitSet();
+	// Interned strings by ID.
+	protected final List<String> strings = new ArrayList<String>();
+	// ID of each interned string.
+	protected final Map<String, Integer> ids = new HashMap<String, Integer>();
+	// Requirements by ID, in the order they were added.
+	protected final Map<String, Requirement> requirements = new LinkedHashMap<String, Requirement>();
+	// Traces of the failures of the stored tests, each stored once by its hash.
+	protected final Map<String, FailureTrace> failures = new LinkedHashMap<String, FailureTrace>();
+
+	/**
+	 * ResultStore constructor with room for 16 tests before growing.
+	 */
+	public ResultStore() {
+		this(16);
+	}
+
+	/**
+	 * ResultStore constructor with room for a given amount of tests before growing.
+	 * @param capacity int amount of tests.
+	 */
+	public ResultStore(int capacity) {
+		capacity = Math.max(capacity, 1);
+		for(int column = 0; column < LONGS; column++) {
+			longs[column] = new long[capacity];
+		}
+		for(int column = 0; column < INTS; column++) {
+			ints[column] = new int[capacity];
+		}
+		flakiness = new double[capacity];
+	}
+
+	/**
+	 * of stores the results of a session, also the tests spilled by a
+	 * SpillingSession. The session can be dropped once stored.
+	 * @param session Session to store.
+	 * @return ResultStore of the session's results.
+	 */
+	public static ResultStore of(Session session) {
+		ResultStore store;
+		Map<Tested, Integer> rows = new IdentityHashMap<Tested, Integer>();
+		synchronized(session) {
+			store = new ResultStore(session.getTests().size());
+			if(session.failures != null) {
+				store.failures.putAll(session.failures);
+			}
+			for(Tested test : session.getTests()) {
+				rows.put(test, NO_ID);
+			}
+			TestedIterator tests = session.iterateTests();
+			try {
+				while(tests.hasNext()) {
+					Tested test = tests.next();
+					int row = store.add(test);
+					if(rows.containsKey(test)) {
+						rows.put(test, row);
+					}
+				}
+			} finally {
+				try {
+					tests.close();
+				} catch(IOException exception) {
+					throw new IllegalStateException("Could not close the tests of the session!", exception);
+				}
+			}
+			Map<String, Integer> byPath = null;
+			for(Verified verified : session.getVerifies()) {
+				Requirement requirement = store.getRequirement(verified.id);
+				requirement.isVerified = verified.isVerified;
+				requirement.spilledTests = verified.spilledTests;
+				requirement.durations = verified.getDurations().copy();
+				for(Tested test : verified.getTested()) {
+					Integer row = rows.get(test);
+					if(row == null) {
+						// Verified read from Json have their own copies of the tests.
+						if(byPath == null) {
+							byPath = store.getRowsByPath();
+						}
+						row = byPath.get(test.test);
+					}
+					requirement.add(row == null || row == NO_ID ? store.add(test) : row);
+				}
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * compact compacts a finished session, its tests and requirements stored
+	 * in a ResultStore and read as views, also the tests spilled by a
+	 * SpillingSession. The compacted session is only read, and the
+	 * session can be dropped, or closed if it spilled tests, once compacted.
+	 * @param session Session to compact.
+	 * @return Session of the session's results, read from a ResultStore.
+	 */
+	public static Session compact(Session session) {
+		ResultStore store = of(session);
+		Session compacted = new Session();
+		synchronized(session) {
+			compacted.sessionStart = session.sessionStart;
+			compacted.sessionEnd = session.sessionEnd;
+			compacted.shard = session.shard;
+			compacted.hashes = session.hashes;
+			compacted.classSetupInNanos = session.classSetupInNanos;
+			compacted.classTeardownInNanos = session.classTeardownInNanos;
+		}
+		synchronized(store) {
+			compacted.failures = store.failures;
+			compacted.tests = store.getTests();
+			compacted.verifies = store.getVerifies();
+		}
+		return compacted;
+	}
+
+	/**
+	 * add stores the result of a test.
+	 * @param test Tested to store.
+	 * @return int row of the test.
+	 */
+	public synchronized int add(Tested test) {
+		if(size == flakiness.length) {
+			grow(size * 2);
+		}
+		int row = size++;
+		longs[STARTED_AT][row] = test.startedAt == null ? NONE : test.startedAt.getTime();
+		longs[FINISHED_AT][row] = test.finishedAt == null ? NONE : test.finishedAt.getTime();
+		longs[DURATION_IN_MILLIS][row] = toLong(test.durationInMillis);
+		longs[DURATION_IN_NANOS][row] = toLong(test.durationInNanos);
+		longs[SETUP_IN_NANOS][row] = toLong(test.setupInNanos);
+		longs[BODY_IN_NANOS][row] = toLong(test.bodyInNanos);
+		longs[TEARDOWN_IN_NANOS][row] = toLong(test.teardownInNanos);
+		ints[TEST][row] = intern(test.test);
+		ints[CLASS_NAME][row] = intern(test.className);
+		ints[GIST][row] = intern(test.gist);
+		ints[FAILURE_MESSAGE][row] = intern(test.failureMessage);
+		ints[FAILURE_HASH][row] = intern(test.failureHash);
+		ints[PARAMETER_INDEX][row] = test.parameterIndex == null ? NO_ID : test.parameterIndex;
+		ints[ATTEMPTS][row] = test.attempts == null ? 0 : test.attempts;
+		flakiness[row] = test.flakiness == null ? Double.NaN : test.flakiness;
+		successful.set(row, test.isSuccessful());
+		skipped.set(row, Boolean.TRUE.equals(test.isSkipped));
+		carriedForward.set(row, Boolean.TRUE.equals(test.isCarriedForward));
+		timedOut.set(row, Boolean.TRUE.equals(test.isTimedOut));
+		retryPassed.set(row, Boolean.TRUE.equals(test.isRetryPassed));
+		lowPriority.set(row, Boolean.TRUE.equals(test.isLowPriority));
+		return row;
+	}
+
+	/**
+	 * addToRequirement adds a stored test to the tests of a requirement.
+	 * The requirement is verified while all its tests are successful and not skipped.
+	 * @param id String ID of the requirement.
+	 * @param row int row of the test.
+	 * @throws IndexOutOfBoundsException if no test is stored at the row.
+	 */
+	public synchronized void addToRequirement(String id, int row) {
+		checkRow(row);
+		Requirement requirement = getRequirement(id);
+		requirement.isVerified = requirement.isVerified && successful.get(row) && !skipped.get(row);
+		requirement.add(row);
+		boolean timed = longs[DURATION_IN_NANOS][row] != NONE || longs[DURATION_IN_MILLIS][row] != NONE;
+		if(requirement.durations != null && timed) {
+			requirement.durations.add(getDurationInNanos(row));
+		}
+	}
+
+	/**
+	 * size gets the amount of tests stored.
+	 * @return int amount of tests.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * isSuccessful checks if a stored test was successful, without creating a view.
+	 * @param row int row of the test.
+	 * @return boolean true if successful, else false.
+	 */
+	public synchronized boolean isSuccessful(int row) {
+		checkRow(row);
+		return successful.get(row);
+	}
+
+	/**
+	 * getDurationInNanos gets the duration of a stored test, without creating a view.
+	 * @param row int row of the test.
+	 * @return long duration in nanoseconds, by the milliseconds if not timed
+	 * by a monotonic clock, or 0 if not finished.
+	 */
+	public synchronized long getDurationInNanos(int row) {
+		checkRow(row);
+		if(longs[DURATION_IN_NANOS][row] != NONE) {
+			return longs[DURATION_IN_NANOS][row];
+		}
+		long millis = longs[DURATION_IN_MILLIS][row];
+		return millis == NONE ? 0 : millis * 1000000L;
+	}
+
+	/**
+	 * getFailureTrace gets the trace of the failure of a stored test.
+	 * @param row int row of the test.
+	 * @return FailureTrace of the test, or null if the test has none.
+	 */
+	public synchronized FailureTrace getFailureTrace(int row) {
+		checkRow(row);
+		String hash = getString(ints[FAILURE_HASH][row]);
+		return hash == null ? null : failures.get(hash);
+	}
+
+	/**
+	 * getTested creates a view of a stored test.
+	 * @param row int row of the test.
+	 * @return Tested of the test, without method and description.
+	 */
+	public synchronized Tested getTested(int row) {
+		checkRow(row);
+		Tested test = new Tested();
+		test.startedAt = longs[STARTED_AT][row] == NONE ? null : new Date(longs[STARTED_AT][row]);
+		test.finishedAt = longs[FINISHED_AT][row] == NONE ? null : new Date(longs[FINISHED_AT][row]);
+		test.durationInMillis = toLong(longs[DURATION_IN_MILLIS][row]);
+		test.durationInNanos = toLong(longs[DURATION_IN_NANOS][row]);
+		test.setupInNanos = toLong(longs[SETUP_IN_NANOS][row]);
+		test.bodyInNanos = toLong(longs[BODY_IN_NANOS][row]);
+		test.teardownInNanos = toLong(longs[TEARDOWN_IN_NANOS][row]);
+		test.test = getString(ints[TEST][row]);
+		test.className = getString(ints[CLASS_NAME][row]);
+		test.gist = getString(ints[GIST][row]);
+		test.failureMessage = getString(ints[FAILURE_MESSAGE][row]);
+		test.failureHash = getString(ints[FAILURE_HASH][row]);
+		test.parameterIndex = ints[PARAMETER_INDEX][row] == NO_ID ? null : ints[PARAMETER_INDEX][row];
+		test.attempts = ints[ATTEMPTS][row] == 0 ? null : ints[ATTEMPTS][row];
+		test.flakiness = Double.isNaN(flakiness[row]) ? null : flakiness[row];
+		test.isSuccessful = successful.get(row);
+		test.isSkipped = skipped.get(row) ? Boolean.TRUE : null;
+		test.isCarriedForward = carriedForward.get(row) ? Boolean.TRUE : null;
+		test.isTimedOut = timedOut.get(row) ? Boolean.TRUE : null;
+		test.isRetryPassed = retryPassed.get(row) ? Boolean.TRUE : null;
+		test.isLowPriority = lowPriority.get(row) ? Boolean.TRUE : null;
+		return test;
+	}
+
+	/**
+	 * getTests gets all stored tests as a list of views,
+	 * each view created when the test is read.
+	 * @return List<Tested> of the stored tests, only read.
+	 */
+	public List<Tested> getTests() {
+		return new Rows(null);
+	}
+
+	/**
+	 * getVerified creates a view of a requirement, its tests
+	 * a list of views created when read.
+	 * @param id String ID of the requirement.
+	 * @return Verified of the requirement, or null if not stored.
+	 */
+	public synchronized Verified getVerified(String id) {
+		Requirement requirement = requirements.get(id);
+		if(requirement == null) {
+			return null;
+		}
+		Verified verified = new Verified(id);
+		verified.isVerified = requirement.isVerified;
+		verified.spilledTests = requirement.spilledTests;
+		verified.durations = requirement.durations == null ? null : requirement.durations.copy();
+		verified.tests = new Rows(requirement);
+		return verified;
+	}
+
+	/**
+	 * getVerifies creates views of all stored requirements.
+	 * @return List<Verified> of the requirements in the order they were added.
+	 */
+	public synchronized List<Verified> getVerifies() {
+		List<Verified> verifies = new ArrayList<Verified>(requirements.size());
+		for(String id : requirements.keySet()) {
+			verifies.add(getVerified(id));
+		}
+		return verifies;
+	}
+
+	/**
+	 * getRowsByPath gets the row of each stored test by its path.
+	 * @return Map<String, Integer> of the row of each path.
+	 */
+	protected Map<String, Integer> getRowsByPath() {
+		Map<String, Integer> rows = new HashMap<String, Integer>();
+		for(int row = 0; row < size; row++) {
+			String path = getString(ints[TEST][row]);
+			if(path != null && !rows.containsKey(path)) {
+				rows.put(path, row);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * getRequirement gets a stored requirement, storing it the first time.
+	 * @param id String ID of the requirement.
+	 * @return Requirement that is stored.
+	 */
+	protected Requirement getRequirement(String id) {
+		Requirement requirement = requirements.get(id);
+		if(requirement == null) {
+			requirement = new Requirement();
+			requirements.put(id, requirement);
+		}
+		return requirement;
+	}
+
+	/**
+	 * intern gets the ID of a string, interning it the first time.
+	 * @param string String to intern.
+	 * @return int ID of the string, NO_ID if null.
+	 */
+	protected int intern(String string) {
+		if(string == null) {
+			return NO_ID;
+		}
+		Integer id = ids.get(string);
+		if(id == null) {
+			id = strings.size();
+			strings.add(string);
+			ids.put(string, id);
+		}
+		return id;
+	}
+
+	/**
+	 * getString gets an interned string.
+	 * @param id int ID of the string.
+	 * @return String interned, null if NO_ID.
+	 */
+	protected String getString(int id) {
+		return id == NO_ID ? null : strings.get(id);
+	}
+
+	/**
+	 * grow grows the columns to a new capacity.
+	 * @param capacity int amount of tests the columns have room for.
+	 */
+	private void grow(int capacity) {
+		for(int column = 0; column < LONGS; column++) {
+			longs[column] = Arrays.copyOf(longs[column], capacity);
+		}
+		for(int column = 0; column < INTS; column++) {
+			ints[column] = Arrays.copyOf(ints[column], capacity);
+		}
+		flakiness = Arrays.copyOf(flakiness, capacity);
+	}
+
+	/**
+	 * checkRow checks that a test is stored at a row.
+	 * @param row int row of the test.
+	 * @throws IndexOutOfBoundsException if no test is stored at the row.
+	 */
+	private void checkRow(int row) {
+		if(row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("No test is stored at row " + row + "!");
+		}
+	}
+
+	/**
+	 * toLong converts a Long to a long column value.
+	 * @param value Long to convert.
+	 * @return long value, NONE if null.
+	 */
+	private static long toLong(Long value) {
+		return value == null ? NONE : value;
+	}
+
+	/**
+	 * toLong converts a long column value to a Long.
+	 * @param value long to convert.
+	 * @return Long value, null if NONE.
+	 */
+	private static Long toLong(long value) {
+		return value == NONE ? null : value;
+	}
+
+	/**
+	 * Requirement is a stored requirement, the rows of its tests
+	 * and what's known of its tests that weren't stored.
+	 */
+	protected static class Requirement {
+
+		// Rows of the requirement's tests.
+		protected int[] rows = new int[4];
+		// Amount of rows.
+		protected int size = 0;
+		// If the requirement is verified.
+		protected boolean isVerified = true;
+		// Amount of tests spilled before being stored, null if none.
+		protected Integer spilledTests;
+		// Statistics of the durations of the tests, null if created from the tests.
+		protected DurationStats durations;
+
+		/**
+		 * add adds a row to the requirement's tests.
+		 * @param row int row of the test.
+		 */
+		protected void add(int row) {
+			if(size == rows.length) {
+				rows = Arrays.copyOf(rows, size * 2);
+			}
+			rows[size++] = row;
+		}
+
+	}
+
+	/**
+	 * Rows is a list of views of stored tests, all tests or those of a requirement.
+	 */
+	protected class Rows extends AbstractList<Tested> {
+
+		// Requirement whose tests are listed, null for all tests.
+		protected final Requirement requirement;
+
+		/**
+		 * Rows constructor listing the tests of a requirement.
+		 * @param requirement Requirement whose tests are listed, or null for all tests.
+		 */
+		protected Rows(Requirement requirement) {
+			this.requirement = requirement;
+		}
+
+		@Override
+		public Tested get(int index) {
+			synchronized(ResultStore.this) {
+				if(requirement == null) {
+					return getTested(index);
+				}
+				if(index < 0 || index >= requirement.size) {
+					throw new IndexOutOfBoundsException("No test at index " + index + "!");
+				}
+				return getTested(requirement.rows[index]);
+			}
+		}
+
+		@Override
+		public int size() {
+			synchronized(ResultStore.this) {
+				return requirement == null ? ResultStore.this.size : requirement.size;
+			}
+		}
+
+	}
+
+}
@@ -19,14 +19,27 @@
 package se.oskardevelopment.reqa.simple.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.runner.Description;
 import org.junit.runner.notification.Failure;
 
 import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.model.Tested.Phase;
+import se.oskardevelopment.reqa.simple.utility.Clock;
 import se.oskardevelopment.reqa.simple.utility.PrettyPrinter;
+import se.oskardevelopment.reqa.simple.utility.TestedIterator;
 
 import com.google.gson.annotations.Expose;
 
@@ -34,6 +47,7 @@ import com.google.gson.annotations.Expose;
  * Session represents a testing session.
  * A model keeping track of the tests, what's verified and whatever
  * tracked during the testing.
+ * All updates are synchronized, allowing tests to be run in parallel.
  */
 public class Session {
 
@@ -43,18 +57,56 @@ public class Session {
 	// Date when the test session ended.
 	@Expose
 	public Date sessionEnd = null;
+	// Shard of the test session as "index/shards", null if not sharded.
+	@Expose
+	public String shard = null;
 	// What is attempted to be verified during test session.
 	@Expose
 	public List<Verified> verifies = new ArrayList<Verified>();
 	@Expose
 	// The tests ran during the test session.
 	public List<Tested> tests = new ArrayList<Tested>();
+	// Hash of the bytecode of each test class, by name of the class.
+	@Expose
+	public Map<String, String> hashes = new LinkedHashMap<String, String>();
+	// Duration of the class setup, the @BeforeClass methods, of each test class
+	// in nanoseconds, by name of the class.
+	@Expose
+	public Map<String, Long> classSetupInNanos = new LinkedHashMap<String, Long>();
+	// Duration of the class teardown, the @AfterClass methods, of each test class
+	// in nanoseconds, by name of the class.
+	@Expose
+	public Map<String, Long> classTeardownInNanos = new LinkedHashMap<String, Long>();
+	// Traces of the failures of the tests, each stored once by its hash.
+	@Expose
+	public Map<String, FailureTrace> failures = new LinkedHashMap<String, FailureTrace>();
+	
+	// Index of the tests, each test mapped to its stored Tested.
+	protected Map<Tested, Tested> index = new HashMap<Tested, Tested>();
+	// Amount of tests when the index was built, -1 if the index has to be rebuilt.
+	protected int indexed = -1;
+	// Interned tests, each Description of a test mapped to its stored Tested,
+	// letting the events of a test find it without resolving its method again.
+	protected Map<Description, Tested> interned = new HashMap<Description, Tested>();
+	// Position of each test in the plan of the run, used to order tests
+	// that finished in another order, ex. when run in parallel.
+	protected Map<Description, Integer> plan = new HashMap<Description, Integer>();
+	// Requirements to verify, null if all requirements tested are verified.
+	protected Set<String> scope = null;
+	// Clock timing the tests.
+	protected Clock clock = Clock.SYSTEM;
+	// Verified of each requirement by ID, the same Verified as in verifies.
+	protected Map<String, Verified> verifiedById = new HashMap<String, Verified>();
+	// Tests added to the Verified of their requirements, each mapped to those Verified.
+	protected Map<Tested, List<Verified>> tracked = new HashMap<Tested, List<Verified>>();
+	// Amount of frames kept of each failure trace.
+	protected int maxFailureFrames = FailureTrace.MAX_FRAMES;
 	
 	/**
 	 * setSessionStart sets the session's start.
 	 * @param sessionStart Date when session started.
 	 */
-	public void setSessionStart(Date sessionStart) {
+	public synchronized void setSessionStart(Date sessionStart) {
 		this.sessionStart = sessionStart;
 	}
 	
@@ -62,17 +114,74 @@ public class Session {
 	 * setSessionEnd sets the session's finished.
 	 * @param sessionEnd Date when session finished.
 	 */
-	public void setSessionEnd(Date sessionEnd) {
+	public synchronized void setSessionEnd(Date sessionEnd) {
 		this.sessionEnd = sessionEnd;
 	}
 	
+	/**
+	 * setShard sets what shard the session tests.
+	 * @param shard int index of the shard, from zero.
+	 * @param shards int amount of shards.
+	 */
+	public synchronized void setShard(int shard, int shards) {
+		this.shard = shard + "/" + shards;
+	}
+	
+	/**
+	 * merge merges another session into the session, ex. the sessions of
+	 * the shards of a sharded run. The tests of the sessions are expected
+	 * to be different, the Verified of the same requirement are merged.
+	 * @param session Session to merge into the session.
+	 * @return Session that is merged into.
+	 */
+	public synchronized Session merge(Session session) {
+		if(session.sessionStart != null && (sessionStart == null || session.sessionStart.before(sessionStart))) {
+			sessionStart = session.sessionStart;
+		}
+		if(session.sessionEnd != null && (sessionEnd == null || session.sessionEnd.after(sessionEnd))) {
+			sessionEnd = session.sessionEnd;
+		}
+		if(shard == null ? session.shard != null : !shard.equals(session.shard)) {
+			shard = null;
+		}
+		tests.addAll(session.getTests());
+		indexed = -1;
+		if(session.hashes != null) {
+			hashes.putAll(session.hashes);
+		}
+		if(session.classSetupInNanos != null) {
+			classSetupInNanos.putAll(session.classSetupInNanos);
+		}
+		if(session.classTeardownInNanos != null) {
+			classTeardownInNanos.putAll(session.classTeardownInNanos);
+		}
+		if(session.failures != null) {
+			getFailures().putAll(session.failures);
+		}
+		Map<String, Verified> verifies = new LinkedHashMap<String, Verified>();
+		for(Verified verified : getVerifies()) {
+			verifies.put(verified.id, verified);
+		}
+		for(Verified verified : session.getVerifies()) {
+			Verified merged = verifies.get(verified.id);
+			if(merged == null) {
+				verifies.put(verified.id, verified);
+			} else {
+				merged.merge(verified);
+			}
+		}
+		this.verifies = new ArrayList<Verified>(verifies.values());
+		this.verifiedById = new HashMap<String, Verified>(verifies);
+		return this;
+	}
+	
 	/**
 	 * addDescription adds a description of a test to the test session.
 	 * Creates a test if no earlier description of the test exists.
 	 * @param description Description of a test.
 	 */
-	public void addDescription(Description description) {
-		updateTested(new Tested(description));
+	public synchronized void addDescription(Description description) {
+		getTested(description);
 	}
 	
 	/**
@@ -81,8 +190,45 @@ public class Session {
 	 * @param description Description of the test.
 	 * @param failure Failure describing why the test failed.
 	 */
-	public void addFailure(Description description, Failure failure) {
-		updateTested(new Tested(description, failure));
+	public synchronized void addFailure(Description description, Failure failure) {
+		Tested test = getTested(description).failed(failure);
+		if(test.finishedAt != null) {
+			compact(test);
+		}
+		if(tracked.containsKey(test)) {
+			track(test);
+		}
+	}
+	
+	/**
+	 * setScope sets what requirements the session verifies, ex. when
+	 * only the tests of some requirements are run. Requirements outside
+	 * the scope are left out of the verification, even if a test
+	 * verifying them was run.
+	 * @param scope Collection<String> of the IDs of the requirements
+	 * to verify, or null to verify all requirements tested.
+	 */
+	public synchronized void setScope(Collection<String> scope) {
+		this.scope = scope == null ? null : new HashSet<String>(scope);
+	}
+	
+	/**
+	 * setHash sets the hash of a test class's bytecode, ex. used
+	 * to find the tests that changed since the session.
+	 * @param klazz String name of the test class.
+	 * @param hash String hash of the class's bytecode.
+	 */
+	public synchronized void setHash(String klazz, String hash) {
+		hashes.put(klazz, hash);
+	}
+	
+	/**
+	 * getHash gets the hash of a test class's bytecode.
+	 * @param klazz String name of the test class.
+	 * @return String hash of the class's bytecode, or null if not hashed.
+	 */
+	public synchronized String getHash(String klazz) {
+		return hashes == null ? null : hashes.get(klazz);
 	}
 	
 	/**
@@ -102,17 +248,40 @@ public class Session {
 		return tests;
 	}
 	
+	/**
+	 * iterateTests iterates over all tests of the session, also the tests
+	 * spilled to disk by a SpillingSession. Must be closed when done.
+	 * @return TestedIterator over all tests of the session.
+	 */
+	public synchronized TestedIterator iterateTests() {
+		return new TestedIterator(new ArrayList<Tested>(getTests()).iterator());
+	}
+	
+	/**
+	 * iterateTests iterates over all tests of a requirement, also the tests
+	 * spilled to disk by a SpillingSession. Must be closed when done.
+	 * @param verified Verified of the requirement.
+	 * @return TestedIterator over all tests of the requirement.
+	 */
+	public synchronized TestedIterator iterateTests(Verified verified) {
+		return new TestedIterator(new ArrayList<Tested>(verified.getTested()).iterator());
+	}
+	
 	/**
 	 * testStarted starts a test. If the test is the first tested,
-	 * the time is given as session end time.
+	 * the time is given as session end time. A test that already
+	 * finished during the session is retried, see Tested.retry().
 	 * @param description Description of the test that is started.
 	 */
-	public void testStarted(Description description) {
+	public synchronized void testStarted(Description description) {
 		if(sessionStart == null) {
-			this.sessionStart = new Date();
+			this.sessionStart = new Date(clock.currentTimeMillis());
+		}
+		Tested test = getTested(description);
+		if(test.finishedAt != null) {
+			test.retry();
 		}
-		Tested test = updateTested(new Tested(description));
-		test.startedAt(System.currentTimeMillis());
+		test.startedAt(clock.currentTimeMillis(), clock.nanoTime());
 	}
 	
 	/**
@@ -120,10 +289,189 @@ public class Session {
 	 * the time is given as session end time.
 	 * @param description Description describing the test.
 	 */
-	public void testFinished(Description description) {
-		Tested test = updateTested(new Tested(description));
-		test.finishedAt(System.currentTimeMillis());
-		this.sessionEnd = new Date();
+	public synchronized void testFinished(Description description) {
+		Tested test = getTested(description);
+		test.finishedAt(clock.currentTimeMillis(), clock.nanoTime());
+		if(test.attempts != null) {
+			test.isRetryPassed = test.isSuccessful();
+		}
+		compact(test);
+		List<Verified> retried = tracked.get(test);
+		track(test);
+		if(retried != null) {
+			// Each attempt of a retried test adds to the durations.
+			for(Verified verified : retried) {
+				verified.getDurations().add(test);
+			}
+		}
+		this.sessionEnd = new Date(clock.currentTimeMillis());
+	}
+	
+	/**
+	 * testPhase sets the duration of a phase of a test.
+	 * @param description Description of the test.
+	 * @param phase Phase of the test.
+	 * @param nanos long duration of the phase in nanoseconds.
+	 */
+	public synchronized void testPhase(Description description, Phase phase, long nanos) {
+		getTested(description).setPhase(phase, nanos);
+	}
+	
+	/**
+	 * classPhase sets the duration of the setup or teardown of a test class.
+	 * @param klazz String name of the test class.
+	 * @param phase Phase of the class, SETUP or TEARDOWN.
+	 * @param nanos long duration of the phase in nanoseconds.
+	 * @throws IllegalArgumentException if the phase is BODY.
+	 */
+	public synchronized void classPhase(String klazz, Phase phase, long nanos) {
+		if(phase == Phase.BODY) {
+			throw new IllegalArgumentException("A class has no body phase!");
+		}
+		Map<String, Long> phases = phase == Phase.SETUP ? classSetupInNanos : classTeardownInNanos;
+		phases.put(klazz, nanos);
+	}
+	
+	/**
+	 * getClock gets the clock timing the tests.
+	 * @return Clock timing the tests.
+	 */
+	public Clock getClock() {
+		return clock;
+	}
+	
+	/**
+	 * setClock sets the clock timing the tests.
+	 * @param clock Clock timing the tests.
+	 * @throws NullPointerException if clock is null.
+	 */
+	public synchronized void setClock(Clock clock) {
+		if(clock == null) {
+			throw new NullPointerException("Clock can't be null!");
+		}
+		this.clock = clock;
+	}
+	
+	/**
+	 * setMaxFailureFrames sets the amount of frames kept of each failure trace.
+	 * @param maxFailureFrames int amount of frames, not counting the frames of the test frameworks.
+	 * @throws IllegalArgumentException if maxFailureFrames is negative.
+	 */
+	public synchronized void setMaxFailureFrames(int maxFailureFrames) {
+		if(maxFailureFrames < 0) {
+			throw new IllegalArgumentException("Max failure frames can't be negative!");
+		}
+		this.maxFailureFrames = maxFailureFrames;
+	}
+	
+	/**
+	 * getFailureTrace gets the trace of the failure of a test.
+	 * @param test Tested that failed.
+	 * @return FailureTrace of the test, or null if the test has none.
+	 */
+	public synchronized FailureTrace getFailureTrace(Tested test) {
+		return test.failureHash == null ? null : getFailures().get(test.failureHash);
+	}
+	
+	/**
+	 * getFailures gets the traces of the failures, created if
+	 * missing, ex. when the Session is read from older Json.
+	 * @return Map<String, FailureTrace> of each trace by its hash.
+	 */
+	private Map<String, FailureTrace> getFailures() {
+		if(failures == null) {
+			failures = new LinkedHashMap<String, FailureTrace>();
+		}
+		return failures;
+	}
+	
+	/**
+	 * compact releases the failure of a finished test, keeping its message
+	 * and the hash of its trace. Equal traces are stored once.
+	 * @param test Tested that finished.
+	 */
+	protected void compact(Tested test) {
+		Failure failure = test.getFailure();
+		if(failure == null) {
+			return;
+		}
+		Throwable exception = failure.getException();
+		if(exception != null) {
+			FailureTrace trace = FailureTrace.of(exception, maxFailureFrames);
+			if(!getFailures().containsKey(trace.getHash())) {
+				failures.put(trace.getHash(), trace);
+			}
+			test.failureHash = trace.getHash();
+			test.failureMessage = exception.getMessage();
+		}
+		test.failure = null;
+	}
+	
+	/**
+	 * testSkipped records a test that is skipped instead of being run.
+	 * @param description Description of the test that is skipped.
+	 */
+	public synchronized void testSkipped(Description description) {
+		Tested test = getTested(description);
+		test.isSkipped = true;
+		track(test);
+	}
+	
+	/**
+	 * getVerified gets the Verified of a requirement as it is so far,
+	 * updated as each test of the requirement finishes.
+	 * @param id String ID of the requirement.
+	 * @return Verified of the requirement, or null if no test of it has finished.
+	 */
+	public synchronized Verified getVerified(String id) {
+		if(verifiedById.size() != verifies.size()) {
+			verifiedById.clear();
+			for(Verified verified : verifies) {
+				verifiedById.put(verified.id, verified);
+			}
+		}
+		return verifiedById.get(id);
+	}
+	
+	/**
+	 * track adds a finished test to the Verified of its requirements,
+	 * creating the Verified of requirements not verified before.
+	 * A test that is already added only updates its Verified, ex. when retried.
+	 * @param test Tested that finished.
+	 */
+	protected void track(Tested test) {
+		List<Verified> verifieds = tracked.get(test);
+		if(verifieds != null) {
+			for(Verified verified : verifieds) {
+				verified.refresh();
+			}
+			return;
+		}
+		if(test.getDescription() == null) {
+			return;
+		}
+		verifieds = new ArrayList<Verified>();
+		// Requirements the test is added to, a requirement may be verified more than once by a test.
+		Set<String> ids = new HashSet<String>();
+		for(Verifiable verifiable : test.verifies()) {
+			for(String id : verifiable.verifies()) {
+				if(scope != null && !scope.contains(id)) {
+					continue;
+				}
+				Verified verified = getVerified(id);
+				if(verified == null) {
+					verified = new Verified(id);
+					verifies.add(verified);
+					verifiedById.put(id, verified);
+				}
+				test.setGist(verifiable.gist());
+				if(ids.add(id)) {
+					verified.addTest(test);
+					verifieds.add(verified);
+				}
+			}
+		}
+		tracked.put(test, verifieds);
 	}
 	
 	/**
@@ -131,35 +479,147 @@ public class Session {
 	 * @param update Tested with the update information.
 	 * @return Tested that is stored in the Session.
 	 */
-	public Tested updateTested(Tested update) {
-		if(!tests.contains(update)) {
+	public synchronized Tested updateTested(Tested update) {
+		Tested stored = getIndex().get(update);
+		if(stored == null) {
 			tests.add(update);
+			index.put(update, update);
+			indexed++;
 			return update;
 		} else {
-			return tests.get(tests.indexOf(update)).update(update);
+			return stored.update(update);
+		}
+	}
+	
+	/**
+	 * getTested gets the stored Tested of a test, storing a new Tested
+	 * the first time the test is described. Later calls with the same
+	 * Description only look up the interned Tested.
+	 * @param description Description of the test.
+	 * @return Tested that is stored in the Session.
+	 */
+	public synchronized Tested getTested(Description description) {
+		// Rebuilding the index forgets the interned tests.
+		getIndex();
+		Tested stored = interned.get(description);
+		if(stored == null) {
+			stored = updateTested(new Tested(description));
+			interned.put(description, stored);
 		}
+		return stored;
 	}
 	
 	/**
-	 * verify the test session and generate all the Verified
-	 * that are used in the verification.
+	 * getIndex gets the index of the tests. The index is rebuilt
+	 * if the tests have been changed without the index, ex. when
+	 * the Session is read from Json or merged. The amount of tests
+	 * indexed is compared, not the size of the index, as the tests
+	 * may contain duplicates, ex. of merged sessions.
+	 * @return Map<Tested, Tested> of each test mapped to its stored Tested.
 	 */
-	public void verify() {
-		List<Verified> verifies = new ArrayList<Verified>();
-		for(Tested test : getTests()) {
-			List<Verifiable> testedVerifiable = test.verifies();
-			for(Verifiable verifiable : testedVerifiable) {
-				for(String verify : verifiable.verifies()) {
-					Verified verified = new Verified(verify);
-					if(!verifies.contains(verified)) {
-						verifies.add(verified);
-					}
-					test.setGist(verifiable.gist());
-					verifies.get(verifies.indexOf(verified)).addTest(test);
+	private Map<Tested, Tested> getIndex() {
+		if(indexed != tests.size()) {
+			indexed = tests.size();
+			index.clear();
+			interned.clear();
+			for(Tested test : tests) {
+				if(!index.containsKey(test)) {
+					index.put(test, test);
 				}
 			}
 		}
-		this.verifies = verifies;
+		return index;
+	}
+	
+	/**
+	 * setPlan sets the plan of the run, the order the tests
+	 * would be run in if run one after another.
+	 * @param plan Description of the run, containing all tests.
+	 */
+	public synchronized void setPlan(Description plan) {
+		this.plan.clear();
+		addToPlan(plan);
+	}
+	
+	/**
+	 * addToPlan adds all tests of a description to the plan.
+	 * @param description Description of a test or suite.
+	 */
+	private void addToPlan(Description description) {
+		if(description.isTest() && !plan.containsKey(description)) {
+			plan.put(description, plan.size());
+		}
+		for(Description child : description.getChildren()) {
+			addToPlan(child);
+		}
+	}
+	
+	/**
+	 * orderByPlan orders the tests as they are ordered in the plan,
+	 * giving the same order as if the tests were run one after another.
+	 * Tests not in the plan are kept last in the order they were added.
+	 */
+	protected void orderByPlan() {
+		if(plan.isEmpty()) {
+			return;
+		}
+		Collections.sort(tests, new Comparator<Tested>() {
+			@Override
+			public int compare(Tested first, Tested second) {
+				return Integer.compare(position(first), position(second));
+			}
+		});
+	}
+	
+	/**
+	 * position gets the position of a test in the plan.
+	 * @param test Tested to get the position of.
+	 * @return int position in the plan, Integer.MAX_VALUE if not planned.
+	 */
+	private int position(Tested test) {
+		Integer position = test.getDescription() == null ? null : plan.get(test.getDescription());
+		return position == null ? Integer.MAX_VALUE : position;
+	}
+	
+	/**
+	 * verify finishes the verification of the test session. The Verified
+	 * are kept up to date as tests finish, verify adds the tests that didn't
+	 * finish during the session, ex. carried forward, and orders the tests and
+	 * Verified as if the tests were run one after another.
+	 */
+	public synchronized void verify() {
+		orderByPlan();
+		final Map<Tested, Integer> positions = new IdentityHashMap<Tested, Integer>();
+		Set<Verified> ordered = new LinkedHashSet<Verified>();
+		for(Tested test : getTests()) {
+			positions.put(test, positions.size());
+			track(test);
+			List<Verified> verifieds = tracked.get(test);
+			if(verifieds != null) {
+				ordered.addAll(verifieds);
+			}
+		}
+		Comparator<Tested> byPosition = new Comparator<Tested>() {
+			@Override
+			public int compare(Tested first, Tested second) {
+				Integer firstPosition = positions.get(first);
+				Integer secondPosition = positions.get(second);
+				return Integer.compare(firstPosition == null ? Integer.MAX_VALUE : firstPosition,
+						secondPosition == null ? Integer.MAX_VALUE : secondPosition);
+			}
+		};
+		// Verified of tests that can't be tracked, ex. read from Json, are kept.
+		for(Verified verified : verifies) {
+			if(scope == null || scope.contains(verified.id)) {
+				ordered.add(verified);
+			}
+		}
+		for(Verified verified : ordered) {
+			Collections.sort(verified.getTested(), byPosition);
+			verified.refresh();
+		}
+		this.verifies = new ArrayList<Verified>(ordered);
+		this.verifiedById.clear();
 	}
 	
 	@Override
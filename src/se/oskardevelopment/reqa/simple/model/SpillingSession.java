@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.model;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.runner.Description;
+
+import se.oskardevelopment.reqa.simple.utility.OutputHelper;
+import se.oskardevelopment.reqa.simple.utility.TestedIterator;
+
+import com.google.gson.Gson;
+
+/**
+ * SpillingSession is a Session keeping a bounded amount of finished tests
+ * in memory. When more tests have finished, the oldest are spilled to a
+ * temporary file, one Json line per test, and left out of the tests of the
+ * session and of their Verified. Each Verified keeps the amount and duration
+ * of its spilled tests instead, see Verified.spill(Tested).
+ * Only successful tests run once are spilled, failed, skipped and retried
+ * tests are kept in memory as they may still change. Tests are spilled when
+ * the next test starts, so keep more tests in memory than tests run in parallel.
+ * All tests are read back with iterateTests, ex. when saved by the SessionSaver,
+ * and the tests of a requirement with iterateTests(Verified), ex. when presented.
+ * Close the SpillingSession when done, deleting the file.
+ */
+public class SpillingSession extends Session implements Closeable {
+
+	// SpillingSession's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	// Gson used to spill and read the tests.
+	protected final Gson gson = OutputHelper.createCompactGson();
+	// Amount of finished tests kept in memory before the oldest are spilled.
+	protected final int maxTests;
+	// Directory the file is created in, null for the default temporary directory.
+	protected final File directory;
+	// Successful tests not spilled yet, the oldest first.
+	protected final Deque<Tested> spillable = new ArrayDeque<Tested>();
+	// File the tests are spilled to, null until the first test is spilled.
+	protected File file;
+	// Writer appending to the file.
+	protected Writer writer;
+	// Amount of tests spilled.
+	protected int spilled = 0;
+	// Lines of the file holding the spilled tests of each requirement, by ID.
+	protected final Map<String, BitSet> spilledLines = new HashMap<String, BitSet>();
+
+	/**
+	 * SpillingSession constructor spilling to the default temporary directory.
+	 * @param maxTests int amount of finished tests kept in memory.
+	 */
+	public SpillingSession(int maxTests) {
+		this(maxTests, null);
+	}
+
+	/**
+	 * SpillingSession constructor spilling to a custom selected directory.
+	 * @param maxTests int amount of finished tests kept in memory.
+	 * @param directory File directory the tests are spilled to, or null for
+	 * the default temporary directory.
+	 * @throws IllegalArgumentException if maxTests is negative.
+	 */
+	public SpillingSession(int maxTests, File directory) {
+		if(maxTests < 0) {
+			throw new IllegalArgumentException("Max tests can't be negative!");
+		}
+		this.maxTests = maxTests;
+		this.directory = directory;
+	}
+
+	/**
+	 * getSpilled gets the amount of tests spilled to disk.
+	 * @return int amount of tests spilled.
+	 */
+	public synchronized int getSpilled() {
+		return spilled;
+	}
+
+	@Override
+	public synchronized void testStarted(Description description) {
+		spillPastMax();
+		super.testStarted(description);
+	}
+
+	@Override
+	public synchronized void testFinished(Description description) {
+		super.testFinished(description);
+		Tested test = getTested(description);
+		if(isSpillable(test)) {
+			spillable.addLast(test);
+		}
+	}
+
+	/**
+	 * spillPastMax spills the oldest finished tests past the amount kept in memory.
+	 * Done when the next test starts, not when a test finishes, so the listeners
+	 * handling a finished test still find its Tested, ex. the Watchdog.
+	 */
+	protected void spillPastMax() {
+		while(spillable.size() > maxTests) {
+			Tested oldest = spillable.removeFirst();
+			// A test failing after it finished, ex. timed out, is kept.
+			if(isSpillable(oldest) && index.get(oldest) == oldest) {
+				spill(oldest);
+			}
+		}
+	}
+
+	/**
+	 * isSpillable checks if a test can be spilled, it has to be successful,
+	 * not skipped and run once.
+	 * @param test Tested to check.
+	 * @return boolean true if the test can be spilled, else false.
+	 */
+	protected boolean isSpillable(Tested test) {
+		return test.isSuccessful() && test.isSkipped == null && test.attempts == null;
+	}
+
+	/**
+	 * spill writes a test to the file and releases it from memory.
+	 * A test that can't be written is kept in memory.
+	 * @param test Tested to spill.
+	 */
+	protected void spill(Tested test) {
+		try {
+			if(writer == null) {
+				file = File.createTempFile("reqa-", ".tests", directory);
+				file.deleteOnExit();
+				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), OutputHelper.ENCODING));
+			}
+			writer.write(gson.toJson(test));
+			writer.write('\n');
+		} catch(IOException exception) {
+			LOGGER.warn("Could not spill {}, it's kept in memory: {}", test.test, exception);
+			return;
+		}
+		tests.remove(test);
+		index.remove(test);
+		indexed--;
+		interned.remove(test.getDescription());
+		List<Verified> verifieds = tracked.remove(test);
+		if(verifieds != null) {
+			for(Verified verified : verifieds) {
+				verified.spill(test);
+				BitSet lines = spilledLines.get(verified.id);
+				if(lines == null) {
+					lines = new BitSet();
+					spilledLines.put(verified.id, lines);
+				}
+				lines.set(spilled);
+			}
+		}
+		spilled++;
+	}
+
+	@Override
+	public synchronized TestedIterator iterateTests() {
+		return iterate(null, new ArrayList<Tested>(getTests()));
+	}
+
+	@Override
+	public synchronized TestedIterator iterateTests(Verified verified) {
+		BitSet lines = spilledLines.get(verified.id);
+		List<Tested> kept = new ArrayList<Tested>(verified.getTested());
+		if(lines == null) {
+			return new TestedIterator(kept.iterator());
+		}
+		return iterate(lines, kept);
+	}
+
+	/**
+	 * iterate iterates over spilled tests and then tests kept in memory.
+	 * @param lines BitSet of the lines of the spilled tests, or null for all spilled tests.
+	 * @param kept List<Tested> of the tests kept in memory.
+	 * @return TestedIterator over the tests.
+	 */
+	protected TestedIterator iterate(BitSet lines, List<Tested> kept) {
+		if(file == null) {
+			return new TestedIterator(kept.iterator());
+		}
+		try {
+			writer.flush();
+			return new TestedIterator(new InputStreamReader(new FileInputStream(file), OutputHelper.ENCODING), gson, lines, kept.iterator());
+		} catch(IOException exception) {
+			LOGGER.warn("Could not read the spilled tests, only the tests in memory are iterated: {}", exception);
+			return new TestedIterator(kept.iterator());
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		spillable.clear();
+		spilledLines.clear();
+		if(writer != null) {
+			writer.close();
+			writer = null;
+		}
+		if(file != null && !file.delete()) {
+			LOGGER.warn("Could not delete {}.", file);
+		}
+		file = null;
+	}
+
+}
@@ -23,8 +23,11 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -33,6 +36,7 @@ import org.junit.runner.notification.Failure;
 
 import se.oskardevelopment.reqa.simple.annotations.Verifiable;
 import se.oskardevelopment.reqa.simple.utility.PrettyPrinter;
+import se.oskardevelopment.reqa.simple.utility.TestNameResolver;
 
 import com.google.gson.annotations.Expose;
 
@@ -48,6 +52,9 @@ public class Tested {
 	// Name of the test.
 	@Expose
 	public String test;
+	// Fully qualified name of the test's class, null in sessions saved before it was kept.
+	@Expose
+	public String className = null;
 	// Gist of what the test verifies.
 	@Expose
 	public String gist;
@@ -60,19 +67,77 @@ public class Tested {
 	// Duration the test took from start to finish in milliseconds.
 	@Expose
 	public Long durationInMillis = null;
+	// Duration the test took from start to finish in nanoseconds, by a monotonic clock.
+	@Expose
+	public Long durationInNanos = null;
+	// Duration of the test's setup, its @Before methods, in nanoseconds.
+	@Expose
+	public Long setupInNanos = null;
+	// Duration of the test's method body in nanoseconds.
+	@Expose
+	public Long bodyInNanos = null;
+	// Duration of the test's teardown, its @After methods, in nanoseconds.
+	@Expose
+	public Long teardownInNanos = null;
 	// If the test was successful, true if successful, else false.
 	@Expose
 	public boolean isSuccessful = true;
-	// If the test was skipped. Ignore until further notice.
+	// Message of the exception that failed the test, null if none.
+	@Expose
+	public String failureMessage = null;
+	// Hash of the FailureTrace of the exception that failed the test, stored in the Session.
+	@Expose
+	public String failureHash = null;
+	// If the test was skipped instead of being run, ex. by FailFast.
 	@Expose
 	public Boolean isSkipped = null;
+	// If the result was carried forward from an earlier session instead of being run.
+	@Expose
+	public Boolean isCarriedForward = null;
+	// If the test ran past its time budget.
+	@Expose
+	public Boolean isTimedOut = null;
+	// Index of the parameters of a parameterized test, null if not parameterized.
+	@Expose
+	public Integer parameterIndex = null;
+	// Frames most often on top of the test's stack when sampled, with their samples.
+	@Expose
+	public Map<String, Integer> hotFrames = null;
+	// Times the test was run during the session, null if run once.
+	@Expose
+	public Integer attempts = null;
+	// If the test passed on a retry after failing, null if not retried.
+	@Expose
+	public Boolean isRetryPassed = null;
+	// How often the test recently needed a retry to pass, from 0 to 1, null if it never did.
+	@Expose
+	public Double flakiness = null;
+	// If the test was run in the low-priority lane of flaky tests.
+	@Expose
+	public Boolean isLowPriority = null;
 	
 	// The test method.
 	protected Method method;
 	// Test description.
 	protected Description description;
-	// Failure description.
+	// Failure description, released for a FailureTrace when the test finishes.
 	protected Failure failure;
+	// Verifiables of the test, resolved from its description once.
+	protected List<Verifiable> verifiables;
+	// Monotonic time the test started at in nanoseconds, null if unknown.
+	protected Long startedAtNanos;
+	
+	/**
+	 * Phase is a phase of running a test.
+	 */
+	public enum Phase {
+		// The @Before methods of a test, or the @BeforeClass methods of a class.
+		SETUP,
+		// The test method itself.
+		BODY,
+		// The @After methods of a test, or the @AfterClass methods of a class.
+		TEARDOWN
+	}
 
 	/**
 	 * Tested constructor that's used for Gson compatibility.
@@ -87,11 +152,12 @@ public class Tested {
 	 */
 	public Tested(Description description) {
 		this.description = description;
-		try {
-			this.method = description.getTestClass().getMethod(description.getMethodName());
-			this.test = getPath();
-		} catch(Exception exception) {
-			LOGGER.error("Could not create method and test of the Tested!", exception);
+		this.method = TestNameResolver.getMethod(description.getTestClass(), description.getMethodName());
+		this.parameterIndex = TestNameResolver.getParameterIndex(description.getMethodName());
+		this.test = getPath();
+		this.className = description.getClassName();
+		if(method == null) {
+			LOGGER.debug("Could not resolve the method of {}.", description);
 		}
 	}
 	
@@ -107,6 +173,24 @@ public class Tested {
 		isSuccessful = false;
 	}
 	
+	/**
+	 * Tested constructor that is used when a test isn't run, instead
+	 * carrying forward the result of the test from an earlier session.
+	 * @param description Description of the test.
+	 * @param previous Tested with the earlier result of the test.
+	 */
+	public Tested(Description description, Tested previous) {
+		this(description);
+		this.gist = previous.gist;
+		this.startedAt = previous.startedAt;
+		this.finishedAt = previous.finishedAt;
+		this.durationInMillis = previous.durationInMillis;
+		this.durationInNanos = previous.durationInNanos;
+		this.isSuccessful = previous.isSuccessful;
+		this.isSkipped = previous.isSkipped;
+		this.isCarriedForward = true;
+	}
+	
 	/**
 	 * update the Tested's failure and if successful.
 	 * @param tested that is used to update the Tested.
@@ -115,11 +199,48 @@ public class Tested {
 	public Tested update(Tested tested) {
 		if(!tested.isSuccessful()) {
 			this.failure = tested.failure;
+			this.failureMessage = tested.failureMessage;
+			this.failureHash = tested.failureHash;
 			isSuccessful = tested.isSuccessful();
 		}
 		return this;
 	}
 	
+	/**
+	 * failed fails the test.
+	 * @param failure Failure that describes the failure.
+	 * @return Tested that failed.
+	 */
+	public Tested failed(Failure failure) {
+		this.failure = failure;
+		isSuccessful = false;
+		return this;
+	}
+	
+	/**
+	 * retry starts another attempt of a test that already finished
+	 * during the session, forgetting the failure of the earlier attempt.
+	 */
+	public void retry() {
+		attempts = (attempts == null ? 1 : attempts) + 1;
+		failure = null;
+		failureMessage = null;
+		failureHash = null;
+		isSuccessful = true;
+		setupInNanos = null;
+		bodyInNanos = null;
+		teardownInNanos = null;
+	}
+	
+	/**
+	 * getFailure gets the failure of the test while it's running. The failure
+	 * is released when the test finishes, see Session.getFailureTrace(Tested).
+	 * @return Failure of the test, or null if not failed or released.
+	 */
+	public Failure getFailure() {
+		return failure;
+	}
+	
 	/**
 	 * isSuccessful is if the test was successful or not.
 	 * @return true if successful, else false.
@@ -129,16 +250,11 @@ public class Tested {
 	}
 	
 	/**
-	 * getPath creates a readable path to the test. Requires the test to have a description.
-	 * @return String as a readable path to the test.
+	 * getPath creates a readable path to the test, see TestNameResolver.getPath(Description).
+	 * @return String as a readable path to the test, or the stored path if the test has no description.
 	 */
 	public String getPath() {
-		try {
-			return getDescription().getTestClass().getSimpleName() + "." + method.getName();
-		} catch(Exception exception) {
-			LOGGER.error("Could not get path Tested!", exception);
-			return test;
-		}
+		return getDescription() == null ? test : TestNameResolver.getPath(getDescription());
 	}
 	
 	/**
@@ -158,6 +274,68 @@ public class Tested {
 		durationInMillis = finishedAt - startedAt.getTime();
 	}
 	
+	/**
+	 * startedAt sets the started at time, both the wall clock time and
+	 * the monotonic time the duration is measured from.
+	 * @param startedAt long milliseconds of the date when the test started.
+	 * @param startedAtNanos long monotonic nanoseconds when the test started.
+	 */
+	public void startedAt(long startedAt, long startedAtNanos) {
+		startedAt(startedAt);
+		this.startedAtNanos = startedAtNanos;
+	}
+	
+	/**
+	 * finishedAt sets the finished at time, measuring the duration
+	 * by the monotonic time if the test was started with one.
+	 * @param finishedAt long milliseconds of the date when the test finished.
+	 * @param finishedAtNanos long monotonic nanoseconds when the test finished.
+	 */
+	public void finishedAt(long finishedAt, long finishedAtNanos) {
+		if(startedAtNanos == null) {
+			finishedAt(finishedAt);
+			return;
+		}
+		this.finishedAt = new Date(finishedAt);
+		durationInNanos = finishedAtNanos - startedAtNanos;
+		durationInMillis = TimeUnit.NANOSECONDS.toMillis(durationInNanos);
+	}
+	
+	/**
+	 * setPhase sets the duration of a phase of the test.
+	 * @param phase Phase of the test.
+	 * @param nanos long duration of the phase in nanoseconds.
+	 */
+	public void setPhase(Phase phase, long nanos) {
+		switch(phase) {
+		case SETUP:
+			setupInNanos = nanos;
+			break;
+		case BODY:
+			bodyInNanos = nanos;
+			break;
+		case TEARDOWN:
+			teardownInNanos = nanos;
+			break;
+		}
+	}
+	
+	/**
+	 * getPhase gets the duration of a phase of the test.
+	 * @param phase Phase of the test.
+	 * @return Long duration of the phase in nanoseconds, or null if not measured.
+	 */
+	public Long getPhase(Phase phase) {
+		switch(phase) {
+		case SETUP:
+			return setupInNanos;
+		case BODY:
+			return bodyInNanos;
+		default:
+			return teardownInNanos;
+		}
+	}
+	
 	/**
 	 * Sets the gist of what the test verifies.
 	 * @param gist String description of what's verified.
@@ -192,19 +370,24 @@ public class Tested {
 	 */
 	public void setDescription(Description description) {
 		this.description = description;
+		this.verifiables = null;
 	}
 
 	/**
 	 * verifies gets all the Verifiables that the test helped verify.
+	 * The Verifiables are resolved from the description once.
 	 * @return List<Verifiable> of all the Verifiable that the test helped verify.
 	 */
 	public List<Verifiable> verifies() {
-		ArrayList<Verifiable> verifiables = new ArrayList<Verifiable>();
-		Collection<Annotation> annotations = getDescription().getAnnotations();
-		for(Annotation annotation : annotations) {
-			if(annotation instanceof Verifiable) {
-				verifiables.addAll(Arrays.asList(((Verifiable)annotation)));
+		if(verifiables == null) {
+			ArrayList<Verifiable> verifiables = new ArrayList<Verifiable>();
+			Collection<Annotation> annotations = getDescription().getAnnotations();
+			for(Annotation annotation : annotations) {
+				if(annotation instanceof Verifiable) {
+					verifiables.addAll(Arrays.asList(((Verifiable)annotation)));
+				}
 			}
+			this.verifiables = Collections.unmodifiableList(verifiables);
 		}
 		return verifiables;
 	}
@@ -213,25 +396,23 @@ public class Tested {
 	public boolean equals(Object o){
 		if(o != null && o.getClass().equals(getClass())) {
 			Tested tested = (Tested) o;
-			try {
-				return tested.getDescription().getTestClass().equals(tested.getDescription().getTestClass()) 
-						&& tested.method.equals(method);
-			} catch (Exception exception) {
-				LOGGER.error("Exception thrown when comparing Tested!", exception);
-				return tested.test == test;
+			Class<?> testClass = getDescription() == null ? null : getDescription().getTestClass();
+			Class<?> otherTestClass = tested.getDescription() == null ? null : tested.getDescription().getTestClass();
+			if(testClass == null || otherTestClass == null || method == null || tested.method == null) {
+				// Classes sharing a simple name share paths, tests of older sessions have no class name.
+				boolean sameClass = className == null || tested.className == null || className.equals(tested.className);
+				return sameClass && (test == null ? tested.test == null : test.equals(tested.test));
 			}
+			return otherTestClass.equals(testClass) && tested.method.equals(method)
+					&& (parameterIndex == null ? tested.parameterIndex == null : parameterIndex.equals(tested.parameterIndex));
 		}
 		return false;
 	}
 	
 	@Override
 	public int hashCode() {
-		try {
-			return getDescription().getTestClass().hashCode() + method.hashCode();
-		} catch (Exception exception) {
-			LOGGER.error("Exception thrown when generating hashCode of Tested!", exception);
-			return test == null ? 1337 : test.hashCode();
-		}
+		// Equal tests have the same path, also when compared by their methods.
+		return test == null ? 1337 : test.hashCode();
 	}
 	
 	@Override
@@ -20,10 +20,12 @@ package se.oskardevelopment.reqa.simple.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import se.oskardevelopment.reqa.simple.model.Tested.Phase;
 import se.oskardevelopment.reqa.simple.utility.PrettyPrinter;
 
 import com.google.gson.annotations.Expose;
@@ -50,6 +52,12 @@ public class Verified {
 	// List of all tests used for verification of the ID.
 	@Expose
 	public List<Tested> tests = new ArrayList<Tested>();
+	// Amount of tests spilled to disk and left out of the tests, null if none.
+	@Expose
+	public Integer spilledTests = null;
+	// Statistics of the durations of the tests, also spilled tests and retries.
+	@Expose
+	public DurationStats durations = null;
 
 	/**
 	 * Verified constructor used to create a Verified with supplied tests.
@@ -75,16 +83,57 @@ public class Verified {
 	/**
 	 * getDurationInMillis returns the amount of milliseconds
 	 * required to test all tests in the Verified.
+	 * Tests that weren't timed are left out.
 	 * @return long of duration in milliseconds.
 	 */
 	public long getDurationInMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(getDurationInNanos());
+	}
+
+	/**
+	 * getDurationInNanos returns the amount of nanoseconds required to
+	 * test all tests in the Verified, by the monotonic clock where the
+	 * tests were timed by it. Tests that weren't timed are left out.
+	 * @return long of duration in nanoseconds.
+	 */
+	public long getDurationInNanos() {
+		return getDurations().sumInNanos;
+	}
+	
+	/**
+	 * getDurations gets the statistics of the durations of the tests, kept
+	 * as the tests are added. Each attempt of a retried test is counted.
+	 * Created from the tests the first time if missing, ex. when read from older Json.
+	 * @return DurationStats of the durations of the tests.
+	 */
+	public DurationStats getDurations() {
+		if(durations == null) {
+			durations = new DurationStats();
+			for(Tested test : tests) {
+				durations.add(test);
+			}
+		}
+		return durations;
+	}
+	
+	/**
+	 * getPhaseInNanos returns the amount of nanoseconds spent in
+	 * a phase of the tests in the Verified, showing where the
+	 * duration goes. Tests without the phase timed and spilled tests are left out.
+	 * @param phase Phase of the tests.
+	 * @return long of duration of the phase in nanoseconds.
+	 */
+	public long getPhaseInNanos(Phase phase) {
 		long duration = 0;
 		for(Tested test : tests) {
-			duration += test.durationInMillis;
+			Long phaseInNanos = test.getPhase(phase);
+			if(phaseInNanos != null) {
+				duration += phaseInNanos;
+			}
 		}
 		return duration;
 	}
-
+	
 	/**
 	 * getTested returns all tests used by the verification.
 	 * @return List<Tested> tests used by the verification.
@@ -95,11 +144,70 @@ public class Verified {
 	
 	/**
 	 * addTest adds a test to be used for the verification.
+	 * A skipped test can't verify the requirement.
 	 * @param test Tested used for the verification.
 	 */
 	public void addTest(Tested test) {
+		DurationStats durations = getDurations();
 		tests.add(test);
-		isVerified = isVerified && test.isSuccessful();
+		durations.add(test);
+		isVerified = isVerified && verifies(test);
+	}
+	
+	/**
+	 * spill leaves a test out of the tests, ex. when spilled to disk by a
+	 * SpillingSession. Its duration is still kept by the durations. Only tests
+	 * that verify the requirement are spilled, keeping if verified unchanged.
+	 * @param test Tested that is spilled.
+	 */
+	public void spill(Tested test) {
+		// The durations are created before the test is left out.
+		getDurations();
+		for(int i = 0; i < tests.size(); i++) {
+			if(tests.get(i) == test) {
+				tests.remove(i);
+				spilledTests = (spilledTests == null ? 0 : spilledTests) + 1;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * refresh checks again if all tests are successful,
+	 * ex. after a test was retried.
+	 */
+	public void refresh() {
+		boolean verified = true;
+		for(Tested test : tests) {
+			verified = verified && verifies(test);
+		}
+		isVerified = verified;
+	}
+	
+	/**
+	 * verifies checks if a test verifies the requirement.
+	 * @param test Tested used for the verification.
+	 * @return boolean true if the test was successful and not skipped, else false.
+	 */
+	private static boolean verifies(Tested test) {
+		return test.isSuccessful() && !Boolean.TRUE.equals(test.isSkipped);
+	}
+	
+	/**
+	 * merge adds the tests, also the spilled tests, of another Verified
+	 * of the same ID, ex. when merging the sessions of several shards.
+	 * @param verified Verified whose tests are added.
+	 */
+	public void merge(Verified verified) {
+		DurationStats durations = getDurations();
+		for(Tested test : verified.getTested()) {
+			tests.add(test);
+			isVerified = isVerified && verifies(test);
+		}
+		durations.merge(verified.getDurations());
+		if(verified.spilledTests != null) {
+			spilledTests = (spilledTests == null ? 0 : spilledTests) + verified.spilledTests;
+		}
 	}
 	
 	/**
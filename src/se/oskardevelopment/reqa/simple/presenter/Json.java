@@ -31,7 +31,8 @@ import se.oskardevelopment.reqa.simple.utility.OutputHelper;
 /**
  * The Json presenter is used to tranform a Session
  * to Json format and presenting it by printing the
- * Session to Log4j info log.
+ * Session to Log4j info log. The tests spilled to
+ * disk by a SpillingSession are read back into their Verified.
  */
 public class Json extends Presenter<List<String>> {
 	
@@ -46,7 +47,7 @@ public class Json extends Presenter<List<String>> {
 		List<String> results = new ArrayList<String>();
 		List<Verified> verifies = session.getVerifies();
 		for(Verified verified : verifies) {
-			results.add(output.toJson(verified));
+			results.add(output.toJson(verified, session));
 		}
 		return results;
 	}
@@ -33,6 +33,8 @@ import se.oskardevelopment.reqa.simple.utility.OutputHelper;
  * a session to a file.
  * Should be added as a presenter if there's a demand
  * for tracking history or saving a session for future use.
+ * Only the session is appended, the saved history isn't read,
+ * so the result only holds the saved session.
  */
 public class SessionSaver extends AbstractPresenter<List<Session>> {
 	
@@ -47,7 +49,7 @@ public class SessionSaver extends AbstractPresenter<List<Session>> {
 		LOGGER.debug("Saving session {}.", session);
 		List<Session> sessions = new ArrayList<Session>();
 		try {
-			sessions.addAll(helper.appendSession(session));
+			sessions.add(helper.saveSession(session));
 		} catch (IOException e) {
 			LOGGER.error("Failed to save session!", e);
 		}
@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.processor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.scanner.ScannedClass;
+import se.oskardevelopment.reqa.simple.utility.OutputHelper;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * VerifiableProcessor is an annotation processor that indexes
+ * all test classes when they are compiled, used by the IndexScanner
+ * to find tests without scanning the classpath.
+ * Writes INDEX with one ScannedClass as Json per line, for every class
+ * with a @Test method or a @Verifiable class or method.
+ * Runs when reqa-simple is on the compiler's classpath, unless
+ * annotation processing is turned off.
+ */
+@SupportedAnnotationTypes({VerifiableProcessor.TEST, VerifiableProcessor.VERIFIABLE})
+public class VerifiableProcessor extends AbstractProcessor {
+
+	// Location of the index in the class output, and on the classpath.
+	public static final String INDEX = "META-INF/reqa/tests.index";
+	// Name of JUnit's test annotation.
+	protected static final String TEST = "org.junit.Test";
+	// Name of ReQA's verifiable annotation.
+	protected static final String VERIFIABLE = "se.oskardevelopment.reqa.simple.annotations.Verifiable";
+
+	// Gson used to write and read the index.
+	protected Gson gson = OutputHelper.createCompactGson();
+	// Classes indexed during the compilation, keyed and ordered by name.
+	protected Map<String, ScannedClass> indexed = new TreeMap<String, ScannedClass>();
+	// Names of all classes compiled, indexed or not.
+	protected Set<String> compiled = new HashSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+		for(Element root : roundEnvironment.getRootElements()) {
+			addCompiled(root);
+		}
+		for(TypeElement annotation : annotations) {
+			String annotationName = annotation.getQualifiedName().toString();
+			for(Element element : roundEnvironment.getElementsAnnotatedWith(annotation)) {
+				if(element.getKind() == ElementKind.METHOD) {
+					ScannedClass scanned = getIndexed((TypeElement) element.getEnclosingElement());
+					String method = element.getSimpleName().toString();
+					if(TEST.equals(annotationName) && !scanned.methods.containsKey(method)) {
+						scanned.methods.put(method, verifies(element));
+					}
+				} else if(element.getKind().isClass() || element.getKind().isInterface()) {
+					ScannedClass scanned = getIndexed((TypeElement) element);
+					if(VERIFIABLE.equals(annotationName)) {
+						scanned.verifies = verifies(element);
+					}
+				}
+			}
+		}
+		if(roundEnvironment.processingOver()) {
+			writeIndex();
+		}
+		// Never claims the annotations, other processors may use them too.
+		return false;
+	}
+
+	/**
+	 * addCompiled adds a compiled class and its nested classes
+	 * to the compiled classes.
+	 * @param element Element of a compiled class.
+	 */
+	private void addCompiled(Element element) {
+		if(element instanceof TypeElement) {
+			compiled.add(binaryName((TypeElement) element));
+			for(Element enclosed : element.getEnclosedElements()) {
+				addCompiled(enclosed);
+			}
+		}
+	}
+
+	/**
+	 * getIndexed gets the indexed class of a type, indexing it if not already.
+	 * @param type TypeElement of the class.
+	 * @return ScannedClass describing the class in the index.
+	 */
+	protected ScannedClass getIndexed(TypeElement type) {
+		String name = binaryName(type);
+		ScannedClass scanned = indexed.get(name);
+		if(scanned == null) {
+			scanned = new ScannedClass(name);
+			indexed.put(name, scanned);
+		}
+		return scanned;
+	}
+
+	/**
+	 * binaryName gets the name of a type as used by Class.forName.
+	 * @param type TypeElement of the class.
+	 * @return String binary name of the class.
+	 */
+	protected String binaryName(TypeElement type) {
+		return processingEnv.getElementUtils().getBinaryName(type).toString();
+	}
+
+	/**
+	 * verifies gets the requirements verified by an element.
+	 * @param element Element that may be annotated with @Verifiable.
+	 * @return List<String> of the requirement IDs, empty if not verifiable.
+	 */
+	protected List<String> verifies(Element element) {
+		Verifiable verifiable = element.getAnnotation(Verifiable.class);
+		if(verifiable == null) {
+			return new ArrayList<String>();
+		}
+		return new ArrayList<String>(Arrays.asList(verifiable.verifies()));
+	}
+
+	/**
+	 * writeIndex writes the index to the class output. Classes in an
+	 * earlier index that weren't compiled this time, though still exist,
+	 * are kept, allowing incremental compilation.
+	 */
+	protected void writeIndex() {
+		Map<String, ScannedClass> index = new TreeMap<String, ScannedClass>();
+		for(ScannedClass scanned : readIndex()) {
+			if(!compiled.contains(scanned.name) && exists(scanned.name)) {
+				index.put(scanned.name, scanned);
+			}
+		}
+		index.putAll(indexed);
+		if(index.isEmpty()) {
+			return;
+		}
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+			Writer writer = new BufferedWriter(new OutputStreamWriter(file.openOutputStream(), OutputHelper.ENCODING));
+			try {
+				for(ScannedClass scanned : index.values()) {
+					writer.write(gson.toJson(scanned));
+					writer.write('\n');
+				}
+			} finally {
+				writer.close();
+			}
+		} catch(IOException exception) {
+			processingEnv.getMessager().printMessage(Kind.WARNING, "Could not write the ReQA index " + INDEX + ": " + exception);
+		}
+	}
+
+	/**
+	 * readIndex reads the index written by an earlier compilation.
+	 * @return List<ScannedClass> of the earlier index, empty if there is none.
+	 */
+	protected List<ScannedClass> readIndex() {
+		List<ScannedClass> index = new ArrayList<ScannedClass>();
+		try {
+			FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+			Reader reader = new BufferedReader(new InputStreamReader(file.openInputStream(), OutputHelper.ENCODING));
+			try {
+				index.addAll(readIndex(reader, gson));
+			} finally {
+				reader.close();
+			}
+		} catch(IOException | IllegalArgumentException | JsonParseException exception) {
+			// No earlier index, or a broken one that is replaced.
+		}
+		return index;
+	}
+
+	/**
+	 * readIndex reads an index.
+	 * @param reader Reader of the index.
+	 * @param gson Gson used to read the index's Json.
+	 * @return List<ScannedClass> of all classes in the index.
+	 * @throws IOException if reading failed.
+	 * @throws JsonParseException if the index is broken.
+	 */
+	public static List<ScannedClass> readIndex(Reader reader, Gson gson) throws IOException {
+		List<ScannedClass> index = new ArrayList<ScannedClass>();
+		BufferedReader lines = new BufferedReader(reader);
+		String line;
+		while((line = lines.readLine()) != null) {
+			if(!line.trim().isEmpty()) {
+				index.add(gson.fromJson(line, ScannedClass.class));
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * exists checks if a class still exists in the compilation.
+	 * @param name String binary name of the class.
+	 * @return boolean true if the class exists, else false.
+	 */
+	protected boolean exists(String name) {
+		return processingEnv.getElementUtils().getTypeElement(name.replace('$', '.')) != null;
+	}
+
+}
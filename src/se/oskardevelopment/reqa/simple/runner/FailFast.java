@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.runner.Description;
+import org.junit.runner.Request;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+
+import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.listener.Watchdog;
+import se.oskardevelopment.reqa.simple.model.Session;
+
+/**
+ * FailFast skips the tests that can't change the outcome of a run,
+ * ex. in gate builds only asking if each requirement is verified.
+ * A test can be skipped once every requirement it verifies has failed,
+ * and every test once a number of requirements have failed.
+ * Skipped tests are recorded with Tested.isSkipped and reported as ignored.
+ * Tests of classes that aren't plain JUnit 4 classes are only skipped as a
+ * whole class. The phases of the tests of plain classes are timed.
+ * Listens on the run, create a new FailFast for each run.
+ */
+public class FailFast extends RunListener {
+
+	// FailFast's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	// Session of the run.
+	protected final Session session;
+	// If the remaining tests of a failed requirement are skipped.
+	protected final boolean skipFailedRequirements;
+	// Failed requirements aborting the run, 0 if the run is never aborted.
+	protected final int maxFailedRequirements;
+	// IDs of the failed requirements.
+	protected final Set<String> failed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	// If the run is aborted.
+	protected volatile boolean aborted = false;
+	// Watchdog keeping the tests of plain classes within their budgets, null if none.
+	protected Watchdog watchdog = null;
+
+	/**
+	 * FailFast constructor.
+	 * @param session Session of the run.
+	 * @param skipFailedRequirements boolean true if the remaining tests of a failed requirement are skipped.
+	 * @param maxFailedRequirements int failed requirements aborting the run, 0 if never aborting.
+	 */
+	public FailFast(Session session, boolean skipFailedRequirements, int maxFailedRequirements) {
+		this.session = session;
+		this.skipFailedRequirements = skipFailedRequirements;
+		this.maxFailedRequirements = maxFailedRequirements;
+	}
+
+	/**
+	 * setWatchdog sets the Watchdog keeping the tests of plain classes within their budgets.
+	 * @param watchdog Watchdog of the run, or null if the tests have no budgets.
+	 * @return FailFast that is configured.
+	 */
+	public FailFast setWatchdog(Watchdog watchdog) {
+		this.watchdog = watchdog;
+		return this;
+	}
+
+	@Override
+	public void testFailure(Failure failure) {
+		Verifiable verifiable = failure.getDescription().getAnnotation(Verifiable.class);
+		if(verifiable == null) {
+			return;
+		}
+		for(String id : verifiable.verifies()) {
+			if(failed.add(id) && skipFailedRequirements) {
+				LOGGER.debug("Requirement {} failed, its remaining tests are skipped.", id);
+			}
+		}
+		if(maxFailedRequirements > 0 && failed.size() >= maxFailedRequirements && !aborted) {
+			aborted = true;
+			LOGGER.info("Run is aborted after #{} failed requirements: {}", failed.size(), failed);
+		}
+	}
+
+	/**
+	 * isAborted checks if the run is aborted.
+	 * @return boolean true if every remaining test is skipped, else false.
+	 */
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * shouldSkip checks if a test is skipped, either since the run is aborted
+	 * or since every requirement it verifies has failed.
+	 * @param description Description of the test.
+	 * @return boolean true if the test is skipped, else false.
+	 */
+	public boolean shouldSkip(Description description) {
+		if(aborted) {
+			return true;
+		}
+		if(!skipFailedRequirements) {
+			return false;
+		}
+		Verifiable verifiable = description.getAnnotation(Verifiable.class);
+		if(verifiable == null || verifiable.verifies().length == 0) {
+			return false;
+		}
+		for(String id : verifiable.verifies()) {
+			if(!failed.contains(id)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * skip skips a test, or every test of a suite.
+	 * @param description Description of the test or suite.
+	 * @param notifier RunNotifier of the run.
+	 */
+	protected void skip(Description description, RunNotifier notifier) {
+		if(description.isTest()) {
+			session.testSkipped(description);
+			notifier.fireTestIgnored(description);
+		}
+		for(Description child : description.getChildren()) {
+			skip(child, notifier);
+		}
+	}
+
+	/**
+	 * runnerFor creates a Runner of a class's tests that pass a filter,
+	 * skipping the tests as they are reached.
+	 * @param klazz Class to run.
+	 * @param filter Filter of the tests to run.
+	 * @return Runner of the class.
+	 */
+	public Runner runnerFor(Class<?> klazz, Filter filter) {
+		if(PhasedRunner.isPlain(klazz)) {
+			try {
+				return Request.runner(new Skipping(klazz).setWatchdog(watchdog)).filterWith(filter).getRunner();
+			} catch(InitializationError exception) {
+				LOGGER.debug("{} isn't a plain JUnit 4 class, it's only skipped as a whole.", klazz);
+			}
+		}
+		return new Guarded(Request.aClass(klazz).filterWith(filter).getRunner());
+	}
+
+	/**
+	 * Skipping is a PhasedRunner skipping each test as it's reached.
+	 */
+	protected class Skipping extends PhasedRunner {
+
+		/**
+		 * Skipping constructor.
+		 * @param klazz Class to run.
+		 * @throws InitializationError if the class isn't a JUnit 4 test class.
+		 */
+		protected Skipping(Class<?> klazz) throws InitializationError {
+			super(klazz, FailFast.this.session);
+		}
+
+		@Override
+		protected void runChild(FrameworkMethod method, RunNotifier notifier) {
+			Description description = describeChild(method);
+			if(shouldSkip(description)) {
+				skip(description, notifier);
+			} else {
+				super.runChild(method, notifier);
+			}
+		}
+
+	}
+
+	/**
+	 * Guarded is a Runner skipping every test of its runner if the run is aborted when it's reached.
+	 */
+	protected class Guarded extends Runner {
+
+		// Runner that is guarded.
+		protected final Runner runner;
+
+		/**
+		 * Guarded constructor.
+		 * @param runner Runner to guard.
+		 */
+		protected Guarded(Runner runner) {
+			this.runner = runner;
+		}
+
+		@Override
+		public Description getDescription() {
+			return runner.getDescription();
+		}
+
+		@Override
+		public void run(RunNotifier notifier) {
+			if(aborted) {
+				skip(getDescription(), notifier);
+			} else {
+				runner.run(notifier);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.junit.runner.Computer;
+import org.junit.runner.Runner;
+import org.junit.runners.ParentRunner;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerBuilder;
+import org.junit.runners.model.RunnerScheduler;
+
+/**
+ * ForkJoinComputer is a JUnit Computer that runs test classes,
+ * and optionally their methods, in parallel on a ForkJoinPool.
+ * Used by ReqaTester when a parallel run is wanted, ex.
+ * reqaTester.setComputer(new ForkJoinComputer(8, true, false)).
+ */
+public class ForkJoinComputer extends Computer {
+
+	// Pool that all classes and methods are run on.
+	protected final ForkJoinPool pool;
+	// If the test classes are to be run in parallel.
+	protected final boolean classes;
+	// If the methods of a test class are to be run in parallel.
+	protected final boolean methods;
+
+	/**
+	 * ForkJoinComputer constructor using a pool with one
+	 * thread per available processor.
+	 * @param classes true if classes are to be run in parallel.
+	 * @param methods true if methods are to be run in parallel.
+	 */
+	public ForkJoinComputer(boolean classes, boolean methods) {
+		this(new ForkJoinPool(), classes, methods);
+	}
+
+	/**
+	 * ForkJoinComputer constructor using a pool with a given parallelism.
+	 * @param parallelism int amount of threads to run the tests on.
+	 * @param classes true if classes are to be run in parallel.
+	 * @param methods true if methods are to be run in parallel.
+	 */
+	public ForkJoinComputer(int parallelism, boolean classes, boolean methods) {
+		this(new ForkJoinPool(parallelism), classes, methods);
+	}
+
+	/**
+	 * ForkJoinComputer constructor using a custom selected pool.
+	 * @param pool ForkJoinPool that the tests are run on.
+	 * @param classes true if classes are to be run in parallel.
+	 * @param methods true if methods are to be run in parallel.
+	 */
+	public ForkJoinComputer(ForkJoinPool pool, boolean classes, boolean methods) {
+		if(pool == null) {
+			throw new NullPointerException("ForkJoinPool can't be null!");
+		}
+		this.pool = pool;
+		this.classes = classes;
+		this.methods = methods;
+	}
+
+	/**
+	 * getPool gets the pool the tests are run on.
+	 * @return ForkJoinPool used by the ForkJoinComputer.
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * isParallelClasses checks if the test classes are run in parallel.
+	 * @return boolean true if classes are run in parallel, else false.
+	 */
+	public boolean isParallelClasses() {
+		return classes;
+	}
+
+	@Override
+	public Runner getSuite(RunnerBuilder builder, Class<?>[] klazzez) throws InitializationError {
+		Runner suite = super.getSuite(builder, klazzez);
+		return classes ? parallelize(suite) : suite;
+	}
+
+	@Override
+	protected Runner getRunner(RunnerBuilder builder, Class<?> testClass) throws Throwable {
+		Runner runner = super.getRunner(builder, testClass);
+		return methods ? parallelize(runner) : runner;
+	}
+
+	/**
+	 * parallelize lets a runner schedule its children on the pool.
+	 * Runners that aren't ParentRunners are run as is.
+	 * @param runner Runner to parallelize.
+	 * @return Runner that is parallelized.
+	 */
+	protected Runner parallelize(Runner runner) {
+		if(runner instanceof ParentRunner) {
+			((ParentRunner<?>) runner).setScheduler(new ForkJoinScheduler());
+		}
+		return runner;
+	}
+
+	/**
+	 * ForkJoinScheduler forks every child of a runner on the pool
+	 * and joins them when the runner is finished. Joining from within
+	 * the pool helps running queued children instead of blocking,
+	 * so nested class and method parallelism can't starve the pool.
+	 */
+	protected class ForkJoinScheduler implements RunnerScheduler {
+
+		// Children scheduled by the runner, only touched by the runner's thread.
+		private final List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+
+		@Override
+		public void schedule(Runnable childStatement) {
+			ForkJoinTask<?> task = ForkJoinTask.adapt(childStatement);
+			if(ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+				task.fork();
+			} else {
+				pool.execute(task);
+			}
+			tasks.add(task);
+		}
+
+		@Override
+		public void finished() {
+			for(ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+			tasks.clear();
+		}
+
+	}
+
+}
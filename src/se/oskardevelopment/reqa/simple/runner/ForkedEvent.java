@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.io.Serializable;
+
+/**
+ * ForkedEvent is an event of a test run in a worker JVM, sent
+ * by the ForkedWorker to the ForkedRun that replays it.
+ * Tests are described by name since the Description of a test
+ * is rebuilt by the ForkedRun.
+ */
+public class ForkedEvent implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Type of an event, the events of a RunListener and the
+	 * end of a class telling the worker is ready for the next.
+	 */
+	public enum Type {
+		STARTED, FINISHED, FAILURE, ASSUMPTION_FAILURE, IGNORED, CLASS_FINISHED
+	}
+
+	// Type of the event.
+	public final Type type;
+	// Name of the test's class, null at the end of a class.
+	public final String className;
+	// Name of the test's method, null for events of a whole class.
+	public final String methodName;
+	// Exception of a failure, null for other events.
+	public final Throwable exception;
+	// Heap used by the worker in bytes, only set at the end of a class.
+	public final long usedHeap;
+
+	/**
+	 * ForkedEvent constructor.
+	 * @param type Type of the event.
+	 * @param className String name of the test's class.
+	 * @param methodName String name of the test's method.
+	 * @param exception Throwable of a failure.
+	 * @param usedHeap long heap used by the worker in bytes.
+	 */
+	public ForkedEvent(Type type, String className, String methodName, Throwable exception, long usedHeap) {
+		this.type = type;
+		this.className = className;
+		this.methodName = methodName;
+		this.exception = exception;
+		this.usedHeap = usedHeap;
+	}
+
+}
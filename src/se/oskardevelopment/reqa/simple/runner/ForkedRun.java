@@ -0,0 +1,481 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+/**
+ * ForkedRun runs test classes in a pool of worker JVMs, for tests
+ * that can't share a JVM, ex. tests leaking static state or memory.
+ * Each worker runs one class at a time and sends back the events
+ * of its tests, which are replayed to the listener as if the tests
+ * were run in this JVM, giving a single Session of all workers.
+ * A worker is replaced by a new JVM when it has run a given amount
+ * of tests or uses a given amount of heap, or if it dies or hangs.
+ * The classes aren't run, or initialized, in this JVM, the plan of
+ * the run is described from their @Test methods.
+ * Workers are given a random token on their command line, which
+ * they send before any event, so connections of other processes
+ * are closed before anything they send is deserialized.
+ * Used by ReqaTester.forkedRun(ForkedRun).
+ */
+public class ForkedRun {
+
+	// ForkedRun's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+	// Time a worker JVM is given to start and connect.
+	public static int START_TIMEOUT_IN_MILLIS = 30000;
+	// Time a worker JVM is given to exit when stopped.
+	public static int STOP_TIMEOUT_IN_MILLIS = 5000;
+	// Time a worker JVM is given to send its next event before it's hung and replaced, 0 if unlimited.
+	public static int EVENT_TIMEOUT_IN_MILLIS = 10 * 60 * 1000;
+
+	// Amount of worker JVMs.
+	protected final int workers;
+	// Tests a worker may run before it's replaced.
+	protected int maxTests = Integer.MAX_VALUE;
+	// Heap in bytes a worker may use before it's replaced.
+	protected long maxHeap = Long.MAX_VALUE;
+	// Arguments of the worker JVMs, ex. "-Xmx512m".
+	protected List<String> jvmArguments = new ArrayList<String>();
+	// Class path of the worker JVMs.
+	protected String classPath = System.getProperty("java.class.path");
+
+	/**
+	 * ForkedRun constructor.
+	 * @param workers int amount of worker JVMs.
+	 * @throws IllegalArgumentException if workers is less than one.
+	 */
+	public ForkedRun(int workers) {
+		if(workers < 1) {
+			throw new IllegalArgumentException("A ForkedRun needs at least one worker!");
+		}
+		this.workers = workers;
+	}
+
+	/**
+	 * setMaxTests sets how many tests a worker may run before it's replaced.
+	 * @param maxTests int amount of tests.
+	 * @return ForkedRun that is configured.
+	 */
+	public ForkedRun setMaxTests(int maxTests) {
+		this.maxTests = maxTests;
+		return this;
+	}
+
+	/**
+	 * setMaxHeap sets how much heap a worker may use after a class
+	 * before it's replaced.
+	 * @param maxHeap long heap in bytes.
+	 * @return ForkedRun that is configured.
+	 */
+	public ForkedRun setMaxHeap(long maxHeap) {
+		this.maxHeap = maxHeap;
+		return this;
+	}
+
+	/**
+	 * setJvmArguments sets the arguments of the worker JVMs.
+	 * @param jvmArguments String... arguments, ex. "-Xmx512m".
+	 * @return ForkedRun that is configured.
+	 */
+	public ForkedRun setJvmArguments(String... jvmArguments) {
+		this.jvmArguments = new ArrayList<String>(Arrays.asList(jvmArguments));
+		return this;
+	}
+
+	/**
+	 * setClassPath sets the class path of the worker JVMs,
+	 * by default the class path of this JVM.
+	 * @param classPath String class path, must contain ReQA.
+	 * @return ForkedRun that is configured.
+	 * @throws NullPointerException if classPath is null.
+	 */
+	public ForkedRun setClassPath(String classPath) {
+		if(classPath == null) {
+			throw new NullPointerException("Class path can't be null!");
+		}
+		this.classPath = classPath;
+		return this;
+	}
+
+	/**
+	 * run runs classes in the worker JVMs, returning when all are run.
+	 * @param klazzez List<Class<?>> of the classes to run.
+	 * @param listener RunListener listening on the run, ex. a ReqaListener.
+	 * @return Result describing the outcome of the run.
+	 */
+	public Result run(List<Class<?>> klazzez, RunListener listener) {
+		RunNotifier notifier = new RunNotifier();
+		Result result = new Result();
+		notifier.addFirstListener(result.createListener());
+		notifier.addListener(listener);
+		Map<String, Description> tests = new HashMap<String, Description>();
+		notifier.fireTestRunStarted(describe(klazzez, tests));
+
+		Queue<Class<?>> queue = new ConcurrentLinkedQueue<Class<?>>(klazzez);
+		String token = new BigInteger(128, new SecureRandom()).toString(16);
+		ServerSocket server = null;
+		try {
+			server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			server.setSoTimeout(START_TIMEOUT_IN_MILLIS);
+			List<Thread> threads = new ArrayList<Thread>();
+			for(int i = 0; i < Math.min(workers, klazzez.size()); i++) {
+				Thread thread = new Thread(new Worker(server, token, queue, notifier, tests), "reqa-worker-" + i);
+				thread.start();
+				threads.add(thread);
+			}
+			for(Thread thread : threads) {
+				thread.join();
+			}
+		} catch(IOException exception) {
+			LOGGER.error("Could not listen for workers, the run is ended.", exception);
+		} catch(InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			LOGGER.error("Interrupted while waiting for the workers, the run is ended.", exception);
+		} finally {
+			if(server != null) {
+				try {
+					server.close();
+				} catch(IOException exception) {
+					LOGGER.warn("Could not close the workers' server socket.", exception);
+				}
+			}
+		}
+		notifier.fireTestRunFinished(result);
+		return result;
+	}
+
+	/**
+	 * describe describes the plan of a run from the @Test methods of its classes,
+	 * without creating their runners, so no class is initialized in this JVM.
+	 * Tests not known until run, ex. parameterized tests, are described as their events arrive.
+	 * @param klazzez List<Class<?>> of the classes to run.
+	 * @param tests Map<String, Description> the planned tests are added to by display name.
+	 * @return Description of the plan.
+	 */
+	private static Description describe(List<Class<?>> klazzez, Map<String, Description> tests) {
+		Description plan = Description.createSuiteDescription("ForkedRun");
+		for(Class<?> klazz : klazzez) {
+			Description suite = Description.createSuiteDescription(klazz);
+			for(Method method : klazz.getMethods()) {
+				if(method.isAnnotationPresent(Test.class)) {
+					Description test = Description.createTestDescription(klazz, method.getName(), method.getAnnotations());
+					tests.put(test.getDisplayName(), test);
+					suite.addChild(test);
+				}
+			}
+			plan.addChild(suite);
+		}
+		return plan;
+	}
+
+	/**
+	 * Worker runs classes from the queue in a worker JVM,
+	 * replacing the JVM when needed.
+	 */
+	protected class Worker implements Runnable {
+
+		// Server socket the worker JVMs connect to.
+		protected final ServerSocket server;
+		// Token a worker JVM sends first, proving it was started by this run.
+		protected final String token;
+		// Classes left to run, shared by all Workers.
+		protected final Queue<Class<?>> queue;
+		// Notifier the events are replayed to.
+		protected final RunNotifier notifier;
+		// Tests of the plan by display name.
+		protected final Map<String, Description> tests;
+
+		// Worker JVM, null if not started.
+		protected Process process = null;
+		// Connection to the worker JVM.
+		protected Socket socket = null;
+		// Stream of class names to the worker JVM.
+		protected ObjectOutputStream output = null;
+		// Stream of events from the worker JVM.
+		protected ObjectInputStream input = null;
+		// Tests run by the worker JVM.
+		protected int testsRun = 0;
+		// Heap used by the worker JVM after its last class.
+		protected long usedHeap = 0;
+		// Test started but not finished by the worker JVM, null if none.
+		protected Description open = null;
+
+		/**
+		 * Worker constructor.
+		 * @param server ServerSocket the worker JVMs connect to.
+		 * @param token String the worker JVMs send first.
+		 * @param queue Queue<Class<?>> of the classes left to run.
+		 * @param notifier RunNotifier the events are replayed to.
+		 * @param tests Map<String, Description> of the plan's tests by display name.
+		 */
+		protected Worker(ServerSocket server, String token, Queue<Class<?>> queue, RunNotifier notifier, Map<String, Description> tests) {
+			this.server = server;
+			this.token = token;
+			this.queue = queue;
+			this.notifier = notifier;
+			this.tests = tests;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Class<?> klazz;
+				while((klazz = queue.poll()) != null) {
+					try {
+						if(process == null) {
+							start();
+						}
+						run(klazz);
+					} catch(IOException | ClassNotFoundException exception) {
+						LOGGER.error("Worker JVM failed while running {}, it's replaced.", klazz, exception);
+						if(open != null) {
+							notifier.fireTestFailure(new Failure(open,
+									new IllegalStateException("Worker JVM failed while running " + open.getDisplayName(), exception)));
+							notifier.fireTestFinished(open);
+							open = null;
+						} else {
+							notifier.fireTestFailure(new Failure(Description.createSuiteDescription(klazz),
+									new IllegalStateException("Worker JVM failed while running " + klazz.getName(), exception)));
+						}
+						stop();
+						continue;
+					}
+					if(testsRun >= maxTests || usedHeap >= maxHeap) {
+						LOGGER.debug("Replacing worker JVM after #{} tests using {} bytes of heap.", testsRun, usedHeap);
+						stop();
+					}
+				}
+			} finally {
+				stop();
+			}
+		}
+
+		/**
+		 * run runs a class in the worker JVM, replaying its events
+		 * and keeping track of the test that is open.
+		 * @param klazz Class to run.
+		 * @throws IOException if the worker JVM failed, or sent no event in time.
+		 * @throws ClassNotFoundException if the worker JVM sent an unknown class.
+		 */
+		protected void run(Class<?> klazz) throws IOException, ClassNotFoundException {
+			output.writeObject(klazz.getName());
+			output.flush();
+			ForkedEvent event;
+			while((event = (ForkedEvent) input.readObject()).type != ForkedEvent.Type.CLASS_FINISHED) {
+				Description description = replay(event, klazz);
+				if(event.type == ForkedEvent.Type.STARTED) {
+					open = description;
+				} else if(event.type == ForkedEvent.Type.FINISHED) {
+					open = null;
+				}
+			}
+			usedHeap = event.usedHeap;
+		}
+
+		/**
+		 * replay replays an event of the worker JVM to the notifier.
+		 * @param event ForkedEvent to replay.
+		 * @param klazz Class that the event is of.
+		 * @return Description of the event's test.
+		 */
+		protected Description replay(ForkedEvent event, Class<?> klazz) {
+			Description description = describe(event, klazz);
+			switch(event.type) {
+			case STARTED:
+				testsRun++;
+				notifier.fireTestStarted(description);
+				break;
+			case FINISHED:
+				notifier.fireTestFinished(description);
+				break;
+			case FAILURE:
+				notifier.fireTestFailure(new Failure(description, event.exception));
+				break;
+			case ASSUMPTION_FAILURE:
+				notifier.fireTestAssumptionFailed(new Failure(description, event.exception));
+				break;
+			case IGNORED:
+				notifier.fireTestIgnored(description);
+				break;
+			default:
+				LOGGER.warn("Unknown event from worker JVM: {}", event.type);
+			}
+			return description;
+		}
+
+		/**
+		 * describe gets the Description of the test of an event, from the plan if
+		 * the test is planned, else describing it from the test's class.
+		 * @param event ForkedEvent of the test.
+		 * @param klazz Class that the event is of.
+		 * @return Description of the test.
+		 */
+		protected Description describe(ForkedEvent event, Class<?> klazz) {
+			if(event.methodName == null) {
+				return Description.createSuiteDescription(klazz);
+			}
+			Description planned = tests.get(event.methodName + "(" + event.className + ")");
+			if(planned != null) {
+				return planned;
+			}
+			String methodName = event.methodName;
+			int parameters = methodName.indexOf('[');
+			if(parameters >= 0) {
+				methodName = methodName.substring(0, parameters);
+			}
+			Annotation[] annotations = new Annotation[0];
+			for(Method method : klazz.getMethods()) {
+				if(method.getName().equals(methodName)) {
+					annotations = method.getAnnotations();
+				}
+			}
+			return Description.createTestDescription(klazz, event.methodName, annotations);
+		}
+
+		/**
+		 * start starts a worker JVM and waits for it to connect,
+		 * closing connections that don't send the run's token.
+		 * @throws IOException if the worker JVM couldn't start or connect.
+		 */
+		protected void start() throws IOException {
+			List<String> command = new ArrayList<String>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			command.addAll(jvmArguments);
+			command.add("-cp");
+			command.add(classPath);
+			command.add(ForkedWorker.class.getName());
+			command.add(String.valueOf(server.getLocalPort()));
+			command.add(token);
+			// Workers are started one at a time, so each connection is from the worker just started.
+			synchronized(server) {
+				process = new ProcessBuilder(command).inheritIO().start();
+				try {
+					while(!accept()) {
+						LOGGER.warn("Closed a connection to the workers' port without the run's token.");
+					}
+				} catch(IOException exception) {
+					process.destroy();
+					process = null;
+					throw exception;
+				}
+			}
+			testsRun = 0;
+			usedHeap = 0;
+		}
+
+		/**
+		 * accept accepts a connection and reads its token, before any object is read.
+		 * @return boolean true if the connection sent the run's token, else false and it's closed.
+		 * @throws IOException if no connection was accepted in time.
+		 */
+		protected boolean accept() throws IOException {
+			socket = server.accept();
+			try {
+				socket.setSoTimeout(START_TIMEOUT_IN_MILLIS);
+				input = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+				byte[] sent = input.readUTF().getBytes(StandardCharsets.UTF_8);
+				if(MessageDigest.isEqual(sent, token.getBytes(StandardCharsets.UTF_8))) {
+					socket.setSoTimeout(EVENT_TIMEOUT_IN_MILLIS);
+					output = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+					output.flush();
+					return true;
+				}
+			} catch(SocketTimeoutException exception) {
+				LOGGER.debug("Connection didn't send a token in time: {}", exception);
+			} catch(IOException exception) {
+				LOGGER.debug("Could not read token of connection: {}", exception);
+			}
+			socket.close();
+			socket = null;
+			input = null;
+			return false;
+		}
+
+		/**
+		 * stop tells the worker JVM to exit, killing it if it doesn't, ex. when hung.
+		 */
+		protected void stop() {
+			if(process == null) {
+				return;
+			}
+			try {
+				if(output != null) {
+					output.writeObject("");
+					output.flush();
+				}
+			} catch(IOException exception) {
+				LOGGER.debug("Could not tell worker JVM to exit: {}", exception);
+			}
+			try {
+				if(socket != null) {
+					socket.close();
+				}
+				if(!process.waitFor(STOP_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS)) {
+					LOGGER.warn("Worker JVM didn't exit, it's destroyed.");
+				}
+			} catch(IOException exception) {
+				LOGGER.debug("Could not close connection to worker JVM: {}", exception);
+			} catch(InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			} finally {
+				process.destroyForcibly();
+				process = null;
+				socket = null;
+				output = null;
+				input = null;
+			}
+		}
+
+	}
+
+}
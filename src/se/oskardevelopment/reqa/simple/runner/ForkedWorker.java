@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+import se.oskardevelopment.reqa.simple.runner.ForkedEvent.Type;
+
+/**
+ * ForkedWorker is the main class of a worker JVM started by a ForkedRun.
+ * Connects to the ForkedRun's port and sends its token, then runs the classes it's sent one
+ * at a time, sending back the events of each test as ForkedEvents.
+ * Exits when sent an empty class name or when the connection is closed.
+ */
+public class ForkedWorker {
+
+	// ForkedWorker's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	/**
+	 * main connects to a ForkedRun and runs the classes it's sent.
+	 * @param args String[] with the port and the token of the ForkedRun.
+	 * @throws IOException if the connection failed.
+	 */
+	public static void main(String[] args) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+		try {
+			ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			output.writeUTF(args[1]);
+			output.flush();
+			ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+			EventSender sender = new EventSender(output);
+			JUnitCore core = new JUnitCore();
+			core.addListener(sender);
+			ClassLoader loader = ForkedWorker.class.getClassLoader();
+			String name;
+			while((name = (String) input.readObject()) != null && !name.isEmpty()) {
+				try {
+					core.run(Request.aClass(Class.forName(name, false, loader)));
+				} catch(ClassNotFoundException | LinkageError exception) {
+					sender.send(new ForkedEvent(Type.FAILURE, name, null, exception, 0));
+				}
+				Runtime runtime = Runtime.getRuntime();
+				sender.send(new ForkedEvent(Type.CLASS_FINISHED, null, null, null, runtime.totalMemory() - runtime.freeMemory()));
+				sender.finishClass();
+			}
+		} catch(ClassNotFoundException exception) {
+			LOGGER.error("Worker was sent something other than a class name!", exception);
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * EventSender is a RunListener sending the events of each test.
+	 */
+	protected static class EventSender extends RunListener {
+
+		// Stream the events are sent on.
+		protected final ObjectOutputStream output;
+
+		/**
+		 * EventSender constructor.
+		 * @param output ObjectOutputStream the events are sent on.
+		 */
+		protected EventSender(ObjectOutputStream output) {
+			this.output = output;
+		}
+
+		@Override
+		public void testStarted(Description description) throws IOException {
+			send(Type.STARTED, description, null);
+		}
+
+		@Override
+		public void testFinished(Description description) throws IOException {
+			send(Type.FINISHED, description, null);
+		}
+
+		@Override
+		public void testFailure(Failure failure) throws IOException {
+			send(Type.FAILURE, failure.getDescription(), failure.getException());
+		}
+
+		@Override
+		public void testAssumptionFailure(Failure failure) {
+			try {
+				send(Type.ASSUMPTION_FAILURE, failure.getDescription(), failure.getException());
+			} catch(IOException exception) {
+				LOGGER.error("Could not send assumption failure!", exception);
+			}
+		}
+
+		@Override
+		public void testIgnored(Description description) throws IOException {
+			send(Type.IGNORED, description, null);
+		}
+
+		/**
+		 * send sends the event of a test.
+		 * @param type Type of the event.
+		 * @param description Description of the test.
+		 * @param exception Throwable of a failure, else null.
+		 * @throws IOException if sending failed.
+		 */
+		protected void send(Type type, Description description, Throwable exception) throws IOException {
+			send(new ForkedEvent(type, description.getClassName(), description.getMethodName(), serializable(exception), 0));
+		}
+
+		/**
+		 * send sends an event.
+		 * @param event ForkedEvent to send.
+		 * @throws IOException if sending failed.
+		 */
+		protected synchronized void send(ForkedEvent event) throws IOException {
+			output.writeObject(event);
+		}
+
+		/**
+		 * finishClass sends all events of a class and forgets the
+		 * objects sent, so they aren't kept for the rest of the run.
+		 * @throws IOException if sending failed.
+		 */
+		protected synchronized void finishClass() throws IOException {
+			output.flush();
+			output.reset();
+		}
+
+		/**
+		 * serializable makes sure an exception can be sent, copying its
+		 * message and stack trace if it or its cause can't be serialized.
+		 * @param exception Throwable to send, or null.
+		 * @return Throwable that can be serialized, or null.
+		 */
+		protected static Throwable serializable(Throwable exception) {
+			if(exception == null) {
+				return null;
+			}
+			try {
+				ObjectOutputStream test = new ObjectOutputStream(new ByteArrayOutputStream());
+				test.writeObject(exception);
+				test.close();
+				return exception;
+			} catch(IOException notSerializable) {
+				Throwable copy = new Throwable(exception.toString());
+				copy.setStackTrace(exception.getStackTrace());
+				return copy;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.Tested;
+import se.oskardevelopment.reqa.simple.utility.OutputHelper;
+import se.oskardevelopment.reqa.simple.utility.SessionIterator;
+
+/**
+ * HistoryScheduler schedules the longest test classes first, using
+ * the durations of the tests in saved sessions. The duration of a class
+ * is the sum of the latest durations of its tests. Classes without
+ * history are given the median duration of the classes with history.
+ * Shards by giving each class, longest first, to the shortest shard,
+ * classes without a duration are sharded by hashing their names.
+ * Workers in one JVM or forked JVMs pulling the scheduled classes from a
+ * shared queue need no split, the longest classes are started first.
+ * Classes are known by their fully qualified names, or by their simple
+ * names in sessions saved before the tests kept the names of their classes.
+ */
+public class HistoryScheduler extends Scheduler {
+
+	// HistoryScheduler's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	// Latest duration of each test in nanoseconds, by test name, by class's
+	// fully qualified name, or simple name for tests without a class name.
+	protected final Map<String, Map<String, Long>> durations = new HashMap<String, Map<String, Long>>();
+
+	/**
+	 * HistoryScheduler constructor using the sessions saved by the default OutputHelper.
+	 */
+	public HistoryScheduler() {
+		this(new OutputHelper());
+	}
+
+	/**
+	 * HistoryScheduler constructor using the sessions saved by an OutputHelper.
+	 * Schedules in the order classes are found if the sessions can't be read.
+	 * The sessions are read one at a time.
+	 * @param helper OutputHelper of the saved sessions.
+	 */
+	public HistoryScheduler(OutputHelper helper) {
+		try {
+			SessionIterator iterator = helper.getSessionIterator();
+			try {
+				boolean latestFirst = iterator.isLatestFirst();
+				while(iterator.hasNext()) {
+					addSession(iterator.next(), !latestFirst);
+				}
+			} finally {
+				iterator.close();
+			}
+		} catch(IOException exception) {
+			LOGGER.warn("Could not read saved sessions, classes are scheduled without history.", exception);
+		}
+	}
+
+	/**
+	 * HistoryScheduler constructor using given sessions.
+	 * @param sessions Session... in the order they were run, the latest session last.
+	 */
+	public HistoryScheduler(Session... sessions) {
+		for(Session session : sessions) {
+			addSession(session);
+		}
+	}
+
+	/**
+	 * addSession adds the durations of a session later than the sessions already added.
+	 * @param session Session to add.
+	 */
+	public void addSession(Session session) {
+		addSession(session, true);
+	}
+
+	/**
+	 * addSession adds the durations of a session.
+	 * @param session Session to add.
+	 * @param latest boolean true if the session is later than the sessions
+	 * already added, false if earlier.
+	 */
+	protected void addSession(Session session, boolean latest) {
+		for(Tested test : session.getTests()) {
+			if(test.test == null || (test.durationInNanos == null && test.durationInMillis == null)) {
+				continue;
+			}
+			long duration = test.durationInNanos != null ? test.durationInNanos : TimeUnit.MILLISECONDS.toNanos(test.durationInMillis);
+			String klazz = test.className;
+			if(klazz == null) {
+				int separator = test.test.lastIndexOf('.');
+				klazz = separator < 0 ? test.test : test.test.substring(0, separator);
+			}
+			Map<String, Long> tests = durations.get(klazz);
+			if(tests == null) {
+				tests = new HashMap<String, Long>();
+				durations.put(klazz, tests);
+			}
+			if(latest || !tests.containsKey(test.test)) {
+				tests.put(test.test, duration);
+			}
+		}
+	}
+
+	/**
+	 * getDuration gets the expected duration of a class.
+	 * @param klazz Class to get the duration of.
+	 * @return Long duration in milliseconds, or null if the class has no history.
+	 */
+	public Long getDuration(Class<?> klazz) {
+		Long duration = getDurationInNanos(klazz);
+		return duration == null ? null : TimeUnit.NANOSECONDS.toMillis(duration);
+	}
+
+	/**
+	 * getDurationInNanos gets the expected duration of a class,
+	 * by the monotonic durations of its tests when timed by one.
+	 * @param klazz Class to get the duration of.
+	 * @return Long duration in nanoseconds, or null if the class has no history.
+	 */
+	public Long getDurationInNanos(Class<?> klazz) {
+		Map<String, Long> tests = durations.get(klazz.getName());
+		if(tests == null) {
+			tests = durations.get(klazz.getSimpleName());
+		}
+		if(tests == null) {
+			return null;
+		}
+		long duration = 0;
+		for(Long testDuration : tests.values()) {
+			duration += testDuration;
+		}
+		return duration;
+	}
+
+	/**
+	 * getDurations gets the expected duration of each class,
+	 * the median of the others for classes without history.
+	 * @param klazzez Collection<Class<?>> of the classes.
+	 * @return Map<Class<?>, Long> of each class mapped to its duration in milliseconds.
+	 */
+	public Map<Class<?>, Long> getDurations(Collection<Class<?>> klazzez) {
+		Map<Class<?>, Long> durations = getDurationsInNanos(klazzez);
+		for(Map.Entry<Class<?>, Long> duration : durations.entrySet()) {
+			duration.setValue(TimeUnit.NANOSECONDS.toMillis(duration.getValue()));
+		}
+		return durations;
+	}
+
+	/**
+	 * getDurationsInNanos gets the expected duration of each class,
+	 * the median of the others for classes without history.
+	 * @param klazzez Collection<Class<?>> of the classes.
+	 * @return Map<Class<?>, Long> of each class mapped to its duration in nanoseconds.
+	 */
+	protected Map<Class<?>, Long> getDurationsInNanos(Collection<Class<?>> klazzez) {
+		Map<Class<?>, Long> durations = new HashMap<Class<?>, Long>();
+		List<Long> known = new ArrayList<Long>();
+		for(Class<?> klazz : klazzez) {
+			Long duration = getDurationInNanos(klazz);
+			durations.put(klazz, duration);
+			if(duration != null) {
+				known.add(duration);
+			}
+		}
+		Collections.sort(known);
+		long unknown = known.isEmpty() ? 0 : known.get(known.size() / 2);
+		for(Map.Entry<Class<?>, Long> duration : durations.entrySet()) {
+			if(duration.getValue() == null) {
+				duration.setValue(unknown);
+			}
+		}
+		return durations;
+	}
+
+	@Override
+	public List<Class<?>> schedule(Collection<Class<?>> klazzez) {
+		return schedule(klazzez, getDurationsInNanos(klazzez));
+	}
+
+	/**
+	 * schedule orders classes longest first, keeping the order of classes
+	 * of the same duration.
+	 * @param klazzez Collection<Class<?>> of the classes.
+	 * @param durations Map<Class<?>, Long> of each class's duration.
+	 * @return List<Class<?>> of the classes, longest first.
+	 */
+	protected List<Class<?>> schedule(Collection<Class<?>> klazzez, final Map<Class<?>, Long> durations) {
+		List<Class<?>> scheduled = new ArrayList<Class<?>>(klazzez);
+		Collections.sort(scheduled, new Comparator<Class<?>>() {
+			@Override
+			public int compare(Class<?> first, Class<?> second) {
+				return Long.compare(durations.get(second), durations.get(first));
+			}
+		});
+		return scheduled;
+	}
+
+	/**
+	 * shard splits the classes with a duration by their durations, see pack,
+	 * and the classes without history, or that took no time, by hashing their
+	 * names, so a run without history is still split across every shard.
+	 * Whole classes are split, the tests of a class are run by the same shard.
+	 * The classes are ordered by name before they are split, so the split
+	 * doesn't depend on the order they are found in. Every shard has to use
+	 * the same saved sessions to compute the same split.
+	 */
+	@Override
+	public List<Class<?>> shard(Collection<Class<?>> klazzez, int shard, int shards) {
+		checkShard(shard, shards);
+		List<Class<?>> byName = new ArrayList<Class<?>>(klazzez);
+		Collections.sort(byName, new Comparator<Class<?>>() {
+			@Override
+			public int compare(Class<?> first, Class<?> second) {
+				return first.getName().compareTo(second.getName());
+			}
+		});
+		Map<Class<?>, Long> durations = new LinkedHashMap<Class<?>, Long>();
+		List<Class<?>> sharded = new ArrayList<Class<?>>();
+		for(Class<?> klazz : byName) {
+			Long duration = getDurationInNanos(klazz);
+			if(duration != null && duration > 0) {
+				durations.put(klazz, duration);
+			} else if(hashShard(klazz, shards) == shard) {
+				sharded.add(klazz);
+			}
+		}
+		sharded.addAll(pack(schedule(durations.keySet(), durations), durations, shards).get(shard));
+		return schedule(sharded, getDurationsInNanos(byName));
+	}
+
+	/**
+	 * pack gives each class, in order, to the part with the shortest
+	 * total duration so far, the part with the lowest index on ties.
+	 * @param klazzez List<Class<?>> of the classes, longest first.
+	 * @param durations Map<Class<?>, Long> of each class's duration.
+	 * @param parts int amount of parts.
+	 * @return List<List<Class<?>>> of the parts.
+	 */
+	protected List<List<Class<?>>> pack(List<Class<?>> klazzez, Map<Class<?>, Long> durations, int parts) {
+		List<List<Class<?>>> partition = new ArrayList<List<Class<?>>>();
+		final long[] loads = new long[parts];
+		PriorityQueue<Integer> shortest = new PriorityQueue<Integer>(parts, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer first, Integer second) {
+				int compared = Long.compare(loads[first], loads[second]);
+				return compared != 0 ? compared : Integer.compare(first, second);
+			}
+		});
+		for(int i = 0; i < parts; i++) {
+			partition.add(new ArrayList<Class<?>>());
+			shortest.add(i);
+		}
+		for(Class<?> klazz : klazzez) {
+			int part = shortest.poll();
+			partition.get(part).add(klazz);
+			loads[part] += durations.get(klazz);
+			shortest.add(part);
+		}
+		return partition;
+	}
+
+}
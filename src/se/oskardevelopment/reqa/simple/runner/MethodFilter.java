@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+
+import se.oskardevelopment.reqa.simple.utility.TestNameResolver;
+
+/**
+ * MethodFilter is a JUnit Filter running only the test methods
+ * with given names, ex. those verifying some requirements.
+ * Parameterized tests are matched by the name of their method, see TestNameResolver,
+ * running every parameter of a matched method.
+ */
+public class MethodFilter extends Filter {
+
+	// Names of the methods to run.
+	protected final Set<String> methods;
+
+	/**
+	 * MethodFilter constructor for the methods to run.
+	 * @param methods Collection<String> of the names of the methods to run.
+	 */
+	public MethodFilter(Collection<String> methods) {
+		this.methods = new LinkedHashSet<String>(methods);
+	}
+
+	@Override
+	public boolean shouldRun(Description description) {
+		if(description.isTest()) {
+			return methods.contains(getMethodName(description));
+		}
+		for(Description child : description.getChildren()) {
+			if(shouldRun(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String describe() {
+		return "methods " + methods;
+	}
+
+	/**
+	 * getMethodName gets the name of a test's method, without
+	 * the parameters added to the name of a parameterized test.
+	 * @param description Description of the test.
+	 * @return String name of the method, or null if not a method.
+	 */
+	protected static String getMethodName(Description description) {
+		return TestNameResolver.getMethodName(description.getMethodName());
+	}
+
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.Statement;
+
+import se.oskardevelopment.reqa.simple.listener.Watchdog;
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.Tested.Phase;
+
+/**
+ * PhasedRunner is a BlockJUnit4ClassRunner timing the phases of its tests,
+ * the setup, body and teardown of each test and the setup and teardown of
+ * the class, recording them in a Session. A phase without methods isn't timed.
+ * Given a Watchdog, each test is kept within its budget, its setup and teardown included.
+ * Only plain JUnit 4 classes can be run by it, see isPlain(Class).
+ */
+public class PhasedRunner extends BlockJUnit4ClassRunner {
+
+	// Session the phases are recorded in.
+	protected final Session session;
+	// Watchdog keeping the tests within their budgets, null if none.
+	protected Watchdog watchdog = null;
+
+	/**
+	 * PhasedRunner constructor.
+	 * @param klazz Class to run.
+	 * @param session Session the phases are recorded in.
+	 * @throws InitializationError if the class isn't a JUnit 4 test class.
+	 */
+	public PhasedRunner(Class<?> klazz, Session session) throws InitializationError {
+		super(klazz);
+		this.session = session;
+	}
+
+	/**
+	 * setWatchdog sets the Watchdog keeping the tests within their budgets.
+	 * @param watchdog Watchdog of the run, or null if the tests have no budgets.
+	 * @return PhasedRunner that is configured.
+	 */
+	public PhasedRunner setWatchdog(Watchdog watchdog) {
+		this.watchdog = watchdog;
+		return this;
+	}
+
+	/**
+	 * isPlain checks if a class is a plain JUnit 4 class, run by a
+	 * BlockJUnit4ClassRunner, and not ignored, run by its own runner,
+	 * a JUnit 3 test or a suite.
+	 * @param klazz Class to check.
+	 * @return boolean true if the class is a plain JUnit 4 class, else false.
+	 */
+	public static boolean isPlain(Class<?> klazz) {
+		if(klazz.isAnnotationPresent(Ignore.class) || klazz.isAnnotationPresent(RunWith.class)
+				|| junit.framework.Test.class.isAssignableFrom(klazz)) {
+			return false;
+		}
+		try {
+			Method suite = klazz.getMethod("suite");
+			return !Modifier.isStatic(suite.getModifiers());
+		} catch(NoSuchMethodException exception) {
+			return true;
+		}
+	}
+
+	@Override
+	protected Statement methodBlock(FrameworkMethod method) {
+		Statement statement = super.methodBlock(method);
+		return watchdog == null ? statement : watchdog.withBudget(describeChild(method), statement);
+	}
+
+	@Override
+	protected Statement methodInvoker(FrameworkMethod method, Object test) {
+		final Statement body = super.methodInvoker(method, test);
+		final Description description = describeChild(method);
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				long startedAt = session.getClock().nanoTime();
+				try {
+					body.evaluate();
+				} finally {
+					session.testPhase(description, Phase.BODY, session.getClock().nanoTime() - startedAt);
+				}
+			}
+		};
+	}
+
+	@Override
+	protected Statement withBefores(FrameworkMethod method, Object target, Statement statement) {
+		if(getTestClass().getAnnotatedMethods(Before.class).isEmpty()) {
+			return super.withBefores(method, target, statement);
+		}
+		Marker marker = new Marker(statement);
+		return timeBefore(super.withBefores(method, target, marker), marker, describeChild(method), null);
+	}
+
+	@Override
+	protected Statement withAfters(FrameworkMethod method, Object target, Statement statement) {
+		if(getTestClass().getAnnotatedMethods(After.class).isEmpty()) {
+			return super.withAfters(method, target, statement);
+		}
+		Marker marker = new Marker(statement);
+		return timeAfter(super.withAfters(method, target, marker), marker, describeChild(method), null);
+	}
+
+	@Override
+	protected Statement withBeforeClasses(Statement statement) {
+		if(getTestClass().getAnnotatedMethods(BeforeClass.class).isEmpty()) {
+			return super.withBeforeClasses(statement);
+		}
+		Marker marker = new Marker(statement);
+		return timeBefore(super.withBeforeClasses(marker), marker, null, getTestClass().getJavaClass().getName());
+	}
+
+	@Override
+	protected Statement withAfterClasses(Statement statement) {
+		if(getTestClass().getAnnotatedMethods(AfterClass.class).isEmpty()) {
+			return super.withAfterClasses(statement);
+		}
+		Marker marker = new Marker(statement);
+		return timeAfter(super.withAfterClasses(marker), marker, null, getTestClass().getJavaClass().getName());
+	}
+
+	/**
+	 * timeBefore times a setup, from when it starts until it reaches its marked statement.
+	 * @param setup Statement running the setup and then the marker.
+	 * @param marker Marker of the statement the setup wraps.
+	 * @param description Description of the test, or null if the setup is of a class.
+	 * @param klazz String name of the class, or null if the setup is of a test.
+	 * @return Statement timing the setup.
+	 */
+	protected Statement timeBefore(final Statement setup, final Marker marker, final Description description, final String klazz) {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				long startedAt = session.getClock().nanoTime();
+				marker.reset();
+				try {
+					setup.evaluate();
+				} finally {
+					Long reachedAt = marker.getReachedAt();
+					record(description, klazz, Phase.SETUP, (reachedAt == null ? session.getClock().nanoTime() : reachedAt) - startedAt);
+				}
+			}
+		};
+	}
+
+	/**
+	 * timeAfter times a teardown, from when its marked statement finishes until it finishes.
+	 * @param teardown Statement running the marker and then the teardown.
+	 * @param marker Marker of the statement the teardown wraps.
+	 * @param description Description of the test, or null if the teardown is of a class.
+	 * @param klazz String name of the class, or null if the teardown is of a test.
+	 * @return Statement timing the teardown.
+	 */
+	protected Statement timeAfter(final Statement teardown, final Marker marker, final Description description, final String klazz) {
+		return new Statement() {
+			@Override
+			public void evaluate() throws Throwable {
+				marker.reset();
+				try {
+					teardown.evaluate();
+				} finally {
+					Long finishedAt = marker.getFinishedAt();
+					if(finishedAt != null) {
+						record(description, klazz, Phase.TEARDOWN, session.getClock().nanoTime() - finishedAt);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * record records the duration of a phase of a test or a class.
+	 * @param description Description of the test, or null if the phase is of a class.
+	 * @param klazz String name of the class, or null if the phase is of a test.
+	 * @param phase Phase that is timed.
+	 * @param nanos long duration of the phase in nanoseconds.
+	 */
+	protected void record(Description description, String klazz, Phase phase, long nanos) {
+		if(description != null) {
+			session.testPhase(description, phase, nanos);
+		} else {
+			session.classPhase(klazz, phase, nanos);
+		}
+	}
+
+	/**
+	 * Marker is a Statement noting when it's reached and when it finishes,
+	 * placed between a phase's methods and the statement the phase wraps.
+	 */
+	protected class Marker extends Statement {
+
+		// Statement that is marked.
+		protected final Statement statement;
+		// Monotonic time the statement was reached at, null if not reached.
+		protected volatile Long reachedAt;
+		// Monotonic time the statement finished at, null if not finished.
+		protected volatile Long finishedAt;
+
+		/**
+		 * Marker constructor.
+		 * @param statement Statement that is marked.
+		 */
+		protected Marker(Statement statement) {
+			this.statement = statement;
+		}
+
+		@Override
+		public void evaluate() throws Throwable {
+			reachedAt = session.getClock().nanoTime();
+			try {
+				statement.evaluate();
+			} finally {
+				finishedAt = session.getClock().nanoTime();
+			}
+		}
+
+		/**
+		 * reset forgets when the statement was reached and finished.
+		 */
+		protected void reset() {
+			reachedAt = null;
+			finishedAt = null;
+		}
+
+		/**
+		 * getReachedAt gets when the statement was reached.
+		 * @return Long monotonic time, or null if not reached.
+		 */
+		protected Long getReachedAt() {
+			return reachedAt;
+		}
+
+		/**
+		 * getFinishedAt gets when the statement finished.
+		 * @return Long monotonic time, or null if not finished.
+		 */
+		protected Long getFinishedAt() {
+			return finishedAt;
+		}
+
+	}
+
+}
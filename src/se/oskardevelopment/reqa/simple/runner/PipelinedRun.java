@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.runner.Computer;
+import org.junit.runner.Description;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+
+import se.oskardevelopment.reqa.simple.scanner.ScanListener;
+import se.oskardevelopment.reqa.simple.scanner.ScannedClass;
+import se.oskardevelopment.reqa.simple.scanner.Scanner;
+
+/**
+ * PipelinedRun runs the classes found by a scanner while the
+ * scanner is still scanning, instead of waiting for the whole
+ * classpath to be scanned. The scanner runs on its own thread and
+ * each class is run as soon as it's found, one after another or,
+ * with a ForkJoinComputer running classes in parallel, on its pool.
+ * Used by ReqaTester.pipelinedRun().
+ */
+public class PipelinedRun {
+
+	// PipelinedRun's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+	// Marks that the scanner is done, never loaded.
+	private static final ScannedClass END = new ScannedClass();
+
+	// Scanner finding the classes to run.
+	protected final Scanner scanner;
+	// Computer deciding how the classes are run.
+	protected final Computer computer;
+
+	/**
+	 * PipelinedRun constructor.
+	 * @param scanner Scanner finding the classes to run.
+	 * @param computer Computer deciding how the classes are run.
+	 */
+	public PipelinedRun(Scanner scanner, Computer computer) {
+		if(scanner == null) {
+			throw new NullPointerException("Scanner can't be null!");
+		}
+		if(computer == null) {
+			throw new NullPointerException("Computer can't be null!");
+		}
+		this.scanner = scanner;
+		this.computer = computer;
+	}
+
+	/**
+	 * run scans and runs the classes, returning when all classes are run.
+	 * The run is started with an empty suite Description since the tests
+	 * aren't known when the run starts.
+	 * @param listener RunListener listening on the run, ex. a ReqaListener.
+	 * @return Result describing the outcome of the run.
+	 */
+	public Result run(RunListener listener) {
+		final BlockingQueue<ScannedClass> found = new LinkedBlockingQueue<ScannedClass>();
+		Thread scanning = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					scanner.scanClasses(new ScanListener() {
+						@Override
+						public void classFound(ScannedClass scanned) {
+							found.add(scanned);
+						}
+					});
+				} catch(RuntimeException exception) {
+					LOGGER.error("Scanning failed, only the classes found so far are run.", exception);
+				} finally {
+					found.add(END);
+				}
+			}
+		}, "reqa-scanner");
+		scanning.setDaemon(true);
+		scanning.start();
+
+		RunNotifier notifier = new RunNotifier();
+		Result result = new Result();
+		notifier.addFirstListener(result.createListener());
+		notifier.addListener(listener);
+		notifier.fireTestRunStarted(Description.createSuiteDescription("Pipelined run"));
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		List<ForkJoinTask<?>> running = new ArrayList<ForkJoinTask<?>>();
+		int classes = 0;
+		try {
+			ScannedClass scanned;
+			while((scanned = found.take()) != END) {
+				Class<?> klazz = scanned.load(loader);
+				if(klazz != null) {
+					classes++;
+					ForkJoinTask<?> task = run(Request.classes(computer, klazz).getRunner(), notifier);
+					if(task != null) {
+						running.add(task);
+					}
+				}
+			}
+		} catch(InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			LOGGER.error("Interrupted while waiting for the scanner, the run is ended.", exception);
+			scanning.interrupt();
+		}
+		for(ForkJoinTask<?> task : running) {
+			task.join();
+		}
+		LOGGER.debug("Pipelined run ran #{} classes.", classes);
+		notifier.fireTestRunFinished(result);
+		return result;
+	}
+
+	/**
+	 * run runs a runner, on the ForkJoinComputer's pool when classes
+	 * are run in parallel, else right away.
+	 * @param runner Runner of a found class.
+	 * @param notifier RunNotifier of the run.
+	 * @return ForkJoinTask running the runner, or null if already run.
+	 */
+	protected ForkJoinTask<?> run(final Runner runner, final RunNotifier notifier) {
+		Runnable run = new Runnable() {
+			@Override
+			public void run() {
+				runner.run(notifier);
+			}
+		};
+		if(computer instanceof ForkJoinComputer && ((ForkJoinComputer) computer).isParallelClasses()) {
+			return ((ForkJoinComputer) computer).getPool().submit(run);
+		}
+		run.run();
+		return null;
+	}
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RestartClassLoader loads the classes of given directories anew,
+ * instead of using the versions loaded by its parent, so changed
+ * classes can be run without restarting the JVM. Other classes, ex.
+ * JUnit and libraries, are loaded by the parent and stay warm.
+ * Classes of the shared packages are always loaded by the parent,
+ * by default ReQA's annotations so they are recognized by ReQA.
+ */
+public class RestartClassLoader extends URLClassLoader {
+
+	// Packages that are always loaded by the parent.
+	public static final List<String> DEFAULT_SHARED = Arrays.asList("se.oskardevelopment.reqa.simple.annotations.");
+
+	// Prefixes of the classes that are always loaded by the parent.
+	protected final List<String> shared;
+
+	/**
+	 * RestartClassLoader constructor sharing ReQA's annotations with the parent.
+	 * @param urls URL[] of the directories whose classes are loaded anew.
+	 * @param parent ClassLoader of all other classes.
+	 */
+	public RestartClassLoader(URL[] urls, ClassLoader parent) {
+		this(urls, parent, DEFAULT_SHARED);
+	}
+
+	/**
+	 * RestartClassLoader constructor.
+	 * @param urls URL[] of the directories whose classes are loaded anew.
+	 * @param parent ClassLoader of all other classes.
+	 * @param shared List<String> of the prefixes of the classes that are
+	 * always loaded by the parent, ex. "com.example.api.".
+	 */
+	public RestartClassLoader(URL[] urls, ClassLoader parent, List<String> shared) {
+		super(urls, parent);
+		this.shared = new ArrayList<String>(shared);
+	}
+
+	@Override
+	protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		synchronized(getClassLoadingLock(name)) {
+			Class<?> loaded = findLoadedClass(name);
+			if(loaded == null && !isShared(name) && findResource(name.replace('.', '/') + ".class") != null) {
+				loaded = findClass(name);
+			}
+			if(loaded == null) {
+				return super.loadClass(name, resolve);
+			}
+			if(resolve) {
+				resolveClass(loaded);
+			}
+			return loaded;
+		}
+	}
+
+	/**
+	 * isShared checks if a class is always loaded by the parent.
+	 * @param name String name of the class.
+	 * @return boolean true if loaded by the parent, else false.
+	 */
+	protected boolean isShared(String name) {
+		if(name.startsWith("java.")) {
+			return true;
+		}
+		for(String prefix : shared) {
+			if(name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,446 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.InitializationError;
+
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.Tested;
+import se.oskardevelopment.reqa.simple.utility.TestNameResolver;
+
+/**
+ * RetryPolicy reruns the failed tests of a run up to a number of
+ * times within the same run, so a test passing on a retry leaves its
+ * requirements verified. The Session keeps the last attempt of each test,
+ * and so does a Result listening through lastAttempts(RunListener).
+ * Retries are created by a RunnerFactory, running them like the lanes.
+ * Each test has a flakiness, how often it recently needed a retry to pass,
+ * carried from session to session. Tests more flaky than the threshold
+ * in the earlier session are run in a low-priority lane after the other tests.
+ * Used by ReqaTester.retryRun(int).
+ */
+public class RetryPolicy {
+
+	// RetryPolicy's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+	// Weight of the latest session in a test's flakiness.
+	public static double FLAKINESS_WEIGHT = 0.2;
+
+	// Times a failed test is rerun.
+	protected final int retries;
+	// Flakiness above which a test is run in the low-priority lane.
+	protected double flakinessThreshold = 0.1;
+	// Flakiness of the tests of the earlier session by name, names used more than once are left out.
+	protected final Map<String, Double> previousFlakiness = new HashMap<String, Double>();
+
+	/**
+	 * RetryPolicy constructor without an earlier session.
+	 * @param retries int times a failed test is rerun.
+	 */
+	public RetryPolicy(int retries) {
+		this(retries, null);
+	}
+
+	/**
+	 * RetryPolicy constructor continuing the flakiness of an earlier session.
+	 * @param retries int times a failed test is rerun.
+	 * @param previous Session with the earlier flakiness, or null if there is none.
+	 */
+	public RetryPolicy(int retries, Session previous) {
+		if(retries < 0) {
+			throw new IllegalArgumentException("Retries can't be negative!");
+		}
+		this.retries = retries;
+		if(previous != null) {
+			Set<String> ambiguous = new HashSet<String>();
+			for(Tested test : previous.getTests()) {
+				if(test.test != null && previousFlakiness.put(test.test, test.flakiness) != null) {
+					ambiguous.add(test.test);
+				}
+			}
+			previousFlakiness.keySet().removeAll(ambiguous);
+		}
+	}
+
+	/**
+	 * setFlakinessThreshold sets the flakiness above which a test is run in the low-priority lane.
+	 * @param flakinessThreshold double between 0 and 1.
+	 * @return RetryPolicy that is configured.
+	 */
+	public RetryPolicy setFlakinessThreshold(double flakinessThreshold) {
+		this.flakinessThreshold = flakinessThreshold;
+		return this;
+	}
+
+	/**
+	 * isFlaky checks if a test was more flaky than the threshold in the earlier session.
+	 * @param description Description of the test.
+	 * @return boolean true if the test is run in the low-priority lane, else false.
+	 */
+	public boolean isFlaky(Description description) {
+		Double flakiness = previousFlakiness.get(getName(description));
+		return flakiness != null && flakiness > flakinessThreshold;
+	}
+
+	/**
+	 * getLane gets a Filter of the tests of a lane.
+	 * @param flaky boolean true for the low-priority lane of flaky tests, false for the other tests.
+	 * @return Filter running the tests of the lane.
+	 */
+	public Filter getLane(final boolean flaky) {
+		return new Filter() {
+			@Override
+			public boolean shouldRun(Description description) {
+				if(description.isTest()) {
+					return isFlaky(description) == flaky;
+				}
+				for(Description child : description.getChildren()) {
+					if(shouldRun(child)) {
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public String describe() {
+				return flaky ? "flaky tests" : "stable tests";
+			}
+		};
+	}
+
+	/**
+	 * retrying creates a Runner running the lanes one after another,
+	 * each followed by the retries of its failed tests, and then
+	 * updating the flakiness of the session's tests.
+	 * @param session Session of the run.
+	 * @param factory RunnerFactory creating the runners of the retries.
+	 * @param lanes Runner of each lane, in the order they are run.
+	 * @return Runner running the lanes.
+	 */
+	public Runner retrying(Session session, RunnerFactory factory, Runner... lanes) {
+		return new Retrying(session, factory, lanes);
+	}
+
+	/**
+	 * lastAttempts creates a RunListener passing only the last attempt of
+	 * each test to a listener, ex. the listener of a Result. The events of
+	 * the tests are passed when the run finishes, the start of the run right away.
+	 * @param listener RunListener getting the last attempts.
+	 * @return RunListener to listen on the run with.
+	 */
+	public static RunListener lastAttempts(RunListener listener) {
+		return new LastAttempts(listener);
+	}
+
+	/**
+	 * updateFlakiness updates the flakiness of the session's tests, giving
+	 * FLAKINESS_WEIGHT to if the test needed a retry to pass in the session.
+	 * Tests that were in the low-priority lane are marked as low priority.
+	 * @param session Session whose tests are updated.
+	 */
+	public void updateFlakiness(Session session) {
+		synchronized(session) {
+			for(Tested test : session.getTests()) {
+				Double previous = previousFlakiness.get(test.test);
+				boolean flaky = Boolean.TRUE.equals(test.isRetryPassed);
+				if(previous == null && !flaky) {
+					continue;
+				}
+				test.flakiness = (previous == null ? 0 : previous) * (1 - FLAKINESS_WEIGHT) + (flaky ? FLAKINESS_WEIGHT : 0);
+				if(previous != null && previous > flakinessThreshold) {
+					test.isLowPriority = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * getName gets the name of a test, as used by Tested.
+	 * @param description Description of the test.
+	 * @return String name of the test.
+	 */
+	protected static String getName(Description description) {
+		return TestNameResolver.getPath(description);
+	}
+
+	/**
+	 * Retrying is the Runner created by RetryPolicy.retrying(...).
+	 */
+	protected class Retrying extends Runner {
+
+		// Session of the run.
+		protected final Session session;
+		// Factory of the runners of the retries.
+		protected final RunnerFactory factory;
+		// Runners of the lanes.
+		protected final Runner[] lanes;
+
+		/**
+		 * Retrying constructor.
+		 * @param session Session of the run.
+		 * @param factory RunnerFactory creating the runners of the retries.
+		 * @param lanes Runner of each lane.
+		 */
+		protected Retrying(Session session, RunnerFactory factory, Runner[] lanes) {
+			this.session = session;
+			this.factory = factory;
+			this.lanes = lanes;
+		}
+
+		@Override
+		public Description getDescription() {
+			Description description = Description.createSuiteDescription("Retrying run");
+			for(Runner lane : lanes) {
+				description.addChild(lane.getDescription());
+			}
+			return description;
+		}
+
+		@Override
+		public void run(RunNotifier notifier) {
+			for(Runner lane : lanes) {
+				List<Description> failed = runCollecting(lane, notifier);
+				for(int retry = 1; retry <= retries && !failed.isEmpty(); retry++) {
+					LOGGER.debug("Retry #{} of #{} failed tests: {}", retry, failed.size(), failed);
+					Map<Class<?>, Filter> filters = new LinkedHashMap<Class<?>, Filter>();
+					for(Map.Entry<Class<?>, Set<String>> klazz : groupByClass(failed).entrySet()) {
+						filters.put(klazz.getKey(), new MethodFilter(klazz.getValue()));
+					}
+					if(filters.isEmpty()) {
+						break;
+					}
+					Runner runner;
+					try {
+						runner = factory.createRunner(filters);
+					} catch(InitializationError exception) {
+						LOGGER.error("Could not create the runner of retry #{}, the failed tests aren't retried.", retry, exception);
+						break;
+					}
+					failed = runCollecting(runner, notifier);
+				}
+			}
+			updateFlakiness(session);
+		}
+
+		/**
+		 * runCollecting runs a runner, collecting the tests that failed.
+		 * @param runner Runner to run.
+		 * @param notifier RunNotifier of the run.
+		 * @return List<Description> of the tests that failed.
+		 */
+		protected List<Description> runCollecting(Runner runner, RunNotifier notifier) {
+			final List<Description> failed = new ArrayList<Description>();
+			RunListener collector = new RunListener() {
+				@Override
+				public void testFailure(Failure failure) {
+					synchronized(failed) {
+						failed.add(failure.getDescription());
+					}
+				}
+			};
+			notifier.addListener(collector);
+			try {
+				runner.run(notifier);
+			} finally {
+				notifier.removeListener(collector);
+			}
+			return failed;
+		}
+
+		/**
+		 * groupByClass groups failed tests by their class. Failures
+		 * that aren't of a test method, ex. of a class, aren't retried.
+		 * @param failed List<Description> of the failed tests.
+		 * @return Map<Class<?>, Set<String>> of each class mapped to the names of its failed methods.
+		 */
+		protected Map<Class<?>, Set<String>> groupByClass(List<Description> failed) {
+			Map<Class<?>, Set<String>> klazzez = new LinkedHashMap<Class<?>, Set<String>>();
+			for(Description description : failed) {
+				String method = MethodFilter.getMethodName(description);
+				if(!description.isTest() || description.getTestClass() == null || method == null) {
+					LOGGER.debug("{} isn't a test method and isn't retried.", description);
+					continue;
+				}
+				Set<String> methods = klazzez.get(description.getTestClass());
+				if(methods == null) {
+					methods = new LinkedHashSet<String>();
+					klazzez.put(description.getTestClass(), methods);
+				}
+				methods.add(method);
+			}
+			return klazzez;
+		}
+
+	}
+
+	/**
+	 * RunnerFactory creates the runners of the retries, given to retrying(...).
+	 */
+	public interface RunnerFactory {
+
+		/**
+		 * createRunner creates a Runner of the tests of each class that pass the class's filter.
+		 * @param filters Map<Class<?>, Filter> of each class mapped to the filter of its failed tests.
+		 * @return Runner of the classes.
+		 * @throws InitializationError if the runner couldn't be created.
+		 */
+		Runner createRunner(Map<Class<?>, Filter> filters) throws InitializationError;
+
+	}
+
+	/**
+	 * LastAttempts is the RunListener created by lastAttempts(RunListener).
+	 * A test starting again, or ignored, replaces its earlier attempt.
+	 */
+	protected static class LastAttempts extends RunListener {
+
+		// Listener getting the last attempts.
+		protected final RunListener listener;
+		// Last attempt of each test, in the order the tests first started.
+		protected final Map<Description, Attempt> attempts = new LinkedHashMap<Description, Attempt>();
+
+		/**
+		 * LastAttempts constructor.
+		 * @param listener RunListener getting the last attempts.
+		 */
+		protected LastAttempts(RunListener listener) {
+			this.listener = listener;
+		}
+
+		@Override
+		public void testRunStarted(Description description) throws Exception {
+			listener.testRunStarted(description);
+		}
+
+		@Override
+		public synchronized void testStarted(Description description) {
+			Attempt attempt = new Attempt();
+			attempt.started = true;
+			attempts.put(description, attempt);
+		}
+
+		@Override
+		public synchronized void testFinished(Description description) {
+			getAttempt(description).finished = true;
+		}
+
+		@Override
+		public synchronized void testFailure(Failure failure) {
+			getAttempt(failure.getDescription()).failures.add(failure);
+		}
+
+		@Override
+		public synchronized void testAssumptionFailure(Failure failure) {
+			getAttempt(failure.getDescription()).assumptionFailures.add(failure);
+		}
+
+		@Override
+		public synchronized void testIgnored(Description description) {
+			Attempt attempt = new Attempt();
+			attempt.ignored = true;
+			attempts.put(description, attempt);
+		}
+
+		@Override
+		public synchronized void testRunFinished(Result result) throws Exception {
+			for(Map.Entry<Description, Attempt> attempt : attempts.entrySet()) {
+				attempt.getValue().replay(attempt.getKey(), listener);
+			}
+			attempts.clear();
+			listener.testRunFinished(result);
+		}
+
+		/**
+		 * getAttempt gets the attempt of a test, or of a suite failing outside its tests.
+		 * @param description Description of the test or suite.
+		 * @return Attempt that is kept.
+		 */
+		protected Attempt getAttempt(Description description) {
+			Attempt attempt = attempts.get(description);
+			if(attempt == null) {
+				attempt = new Attempt();
+				attempts.put(description, attempt);
+			}
+			return attempt;
+		}
+
+	}
+
+	/**
+	 * Attempt is the events of an attempt of a test kept by LastAttempts.
+	 */
+	protected static class Attempt {
+
+		// If the test started.
+		protected boolean started = false;
+		// If the test finished.
+		protected boolean finished = false;
+		// If the test was ignored.
+		protected boolean ignored = false;
+		// Failures of the attempt.
+		protected final List<Failure> failures = new ArrayList<Failure>();
+		// Failed assumptions of the attempt.
+		protected final List<Failure> assumptionFailures = new ArrayList<Failure>();
+
+		/**
+		 * replay passes the events of the attempt to a listener.
+		 * @param description Description of the test.
+		 * @param listener RunListener getting the events.
+		 * @throws Exception if the listener failed.
+		 */
+		protected void replay(Description description, RunListener listener) throws Exception {
+			if(ignored) {
+				listener.testIgnored(description);
+			}
+			if(started) {
+				listener.testStarted(description);
+			}
+			for(Failure failure : failures) {
+				listener.testFailure(failure);
+			}
+			for(Failure failure : assumptionFailures) {
+				listener.testAssumptionFailure(failure);
+			}
+			if(finished) {
+				listener.testFinished(description);
+			}
+		}
+
+	}
+
+}
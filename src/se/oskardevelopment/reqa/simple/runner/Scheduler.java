@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Scheduler decides in what order test classes are run. When classes
+ * are run in parallel the order decides how well the work is spread,
+ * ex. starting the longest classes first so none is left running alone.
+ * Used by ReqaTester, see ReqaTester.setScheduler(Scheduler).
+ */
+public abstract class Scheduler {
+
+	/**
+	 * scanned gets a Scheduler keeping the classes in the order
+	 * they were found by the scanner.
+	 * @return Scheduler that doesn't reorder.
+	 */
+	public static Scheduler scanned() {
+		return new Scheduler() {
+			@Override
+			public List<Class<?>> schedule(Collection<Class<?>> klazzez) {
+				return new ArrayList<Class<?>>(klazzez);
+			}
+		};
+	}
+
+	/**
+	 * schedule orders the classes in the order they are to be started.
+	 * @param klazzez Collection<Class<?>> of the classes to run.
+	 * @return List<Class<?>> of the classes in order.
+	 */
+	public abstract List<Class<?>> schedule(Collection<Class<?>> klazzez);
+
+	/**
+	 * shard gets the classes of one shard out of several, ex. when the
+	 * tests are split across machines. Every shard computes the same split
+	 * without coordinating, as long as they are given the same classes.
+	 * By default the classes are split by hashing their names.
+	 * @param klazzez Collection<Class<?>> of all classes to run.
+	 * @param shard int index of the shard, from zero.
+	 * @param shards int amount of shards.
+	 * @return List<Class<?>> of the shard's classes in scheduled order.
+	 * @throws IllegalArgumentException if the shard isn't one of the shards.
+	 */
+	public List<Class<?>> shard(Collection<Class<?>> klazzez, int shard, int shards) {
+		checkShard(shard, shards);
+		List<Class<?>> sharded = new ArrayList<Class<?>>();
+		for(Class<?> klazz : schedule(klazzez)) {
+			if(hashShard(klazz, shards) == shard) {
+				sharded.add(klazz);
+			}
+		}
+		return sharded;
+	}
+
+	/**
+	 * hashShard gets the shard of a class from the hash of its name,
+	 * which is the same in every JVM.
+	 * @param klazz Class to get the shard of.
+	 * @param shards int amount of shards.
+	 * @return int index of the class's shard.
+	 */
+	protected static int hashShard(Class<?> klazz, int shards) {
+		return (klazz.getName().hashCode() & Integer.MAX_VALUE) % shards;
+	}
+
+	/**
+	 * checkShard checks that a shard is one of the shards.
+	 * @param shard int index of the shard.
+	 * @param shards int amount of shards.
+	 * @throws IllegalArgumentException if the shard isn't one of the shards.
+	 */
+	protected static void checkShard(int shard, int shards) {
+		if(shards < 1 || shard < 0 || shard >= shards) {
+			throw new IllegalArgumentException("Shard " + shard + " isn't one of " + shards + " shards!");
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.manipulation.Filter;
+
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.Tested;
+import se.oskardevelopment.reqa.simple.scanner.BytecodeHasher;
+import se.oskardevelopment.reqa.simple.utility.TestNameResolver;
+
+/**
+ * TestImpact decides which tests have to be run by comparing the
+ * bytecode of the test classes with an earlier session.
+ * A class whose hash changed is run, as are tests that failed, were
+ * skipped or weren't run in the earlier session. The results of the
+ * other tests are carried forward from the earlier session, each parameter
+ * of a parameterized test, which are all run if any of them has to be.
+ * Used by ReqaTester.impactRun().
+ */
+public class TestImpact {
+
+	// TestImpact's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	// Earlier session, null if there is none.
+	protected final Session previous;
+	// Hasher of the test classes' bytecode.
+	protected final BytecodeHasher hasher;
+	// Tests of the earlier session by class and method, each parameter of a parameterized
+	// test, see getKey(String, String). Tests of older sessions are keyed by the simple
+	// name of their class, their paths used more than once are left out.
+	protected final Map<String, List<Tested>> previousTests = new HashMap<String, List<Tested>>();
+
+	/**
+	 * TestImpact constructor comparing with an earlier session.
+	 * @param previous Session to compare with, or null to run all tests.
+	 * @param loader ClassLoader finding the class files to hash.
+	 */
+	public TestImpact(Session previous, ClassLoader loader) {
+		this.previous = previous;
+		this.hasher = new BytecodeHasher(loader);
+		if(previous != null) {
+			Set<String> paths = new HashSet<String>();
+			Set<String> ambiguous = new HashSet<String>();
+			for(Tested test : previous.getTests()) {
+				int dot = test.test == null ? -1 : test.test.indexOf('.');
+				if(dot < 0) {
+					continue;
+				}
+				String method = TestNameResolver.getMethodName(test.test.substring(dot + 1));
+				String key = getKey(test.className == null ? test.test.substring(0, dot) : test.className, method);
+				if(test.className == null && !paths.add(test.test)) {
+					ambiguous.add(key);
+				}
+				List<Tested> tests = previousTests.get(key);
+				if(tests == null) {
+					tests = new ArrayList<Tested>();
+					previousTests.put(key, tests);
+				}
+				tests.add(test);
+			}
+			previousTests.keySet().removeAll(ambiguous);
+		}
+	}
+
+	/**
+	 * analyze hashes a test class and decides which of its tests are run.
+	 * The hash and the results carried forward are added to the session.
+	 * @param klazz Class to analyze.
+	 * @param session Session of the run.
+	 * @return Filter of the tests that are run, Filter.ALL if all tests
+	 * are run, or null if none are.
+	 */
+	public Filter analyze(Class<?> klazz, Session session) {
+		String hash = hasher.hash(klazz);
+		if(hash != null) {
+			session.setHash(klazz.getName(), hash);
+		}
+		if(previous == null || hash == null || !hash.equals(previous.getHash(klazz.getName()))) {
+			LOGGER.debug("{} changed, all its tests are run.", klazz);
+			return Filter.ALL;
+		}
+		Set<String> run = new LinkedHashSet<String>();
+		Map<Method, List<Tested>> carried = new LinkedHashMap<Method, List<Tested>>();
+		for(Method method : klazz.getMethods()) {
+			if(!method.isAnnotationPresent(Test.class)) {
+				continue;
+			}
+			List<Tested> tests = previousTests.get(getKey(klazz.getName(), method.getName()));
+			if(tests == null) {
+				tests = previousTests.get(getKey(klazz.getSimpleName(), method.getName()));
+			}
+			if(tests == null || !isCarried(tests)) {
+				run.add(method.getName());
+			} else {
+				carried.put(method, tests);
+			}
+		}
+		if(carried.isEmpty()) {
+			return Filter.ALL;
+		}
+		for(Map.Entry<Method, List<Tested>> tests : carried.entrySet()) {
+			Method method = tests.getKey();
+			for(Tested test : tests.getValue()) {
+				String name = test.parameterIndex == null ? method.getName() : method.getName() + "[" + test.parameterIndex + "]";
+				Description description = Description.createTestDescription(klazz, name, method.getAnnotations());
+				session.updateTested(new Tested(description, test));
+			}
+		}
+		LOGGER.debug("{} is unchanged, running #{} tests and carrying forward #{}.", klazz, run.size(), carried.size());
+		return run.isEmpty() ? null : new MethodFilter(run);
+	}
+
+	/**
+	 * isCarried checks if the earlier results of a method can be carried forward,
+	 * all of them successful and not skipped.
+	 * @param tests List<Tested> of the earlier results, one for each parameter if parameterized.
+	 * @return boolean true if the results are carried forward, else false.
+	 */
+	protected static boolean isCarried(List<Tested> tests) {
+		for(Tested test : tests) {
+			if(!test.isSuccessful() || Boolean.TRUE.equals(test.isSkipped)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * getKey gets the key of the earlier tests of a method.
+	 * @param klazz String name of the class, or its simple name for older sessions.
+	 * @param method String name of the method.
+	 * @return String key of the tests.
+	 */
+	protected static String getKey(String klazz, String method) {
+		return klazz + "#" + method;
+	}
+
+}
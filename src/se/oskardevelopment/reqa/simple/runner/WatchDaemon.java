@@ -0,0 +1,369 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.runner;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import se.oskardevelopment.reqa.simple.ReqaTester;
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.scanner.BytecodeScanner;
+import se.oskardevelopment.reqa.simple.scanner.ClassFileReader;
+import se.oskardevelopment.reqa.simple.scanner.ScannedClass;
+
+/**
+ * WatchDaemon keeps a JVM running and reruns the tests affected by each
+ * change of the class directories, ex. when an IDE compiles a class.
+ * Only the changed class files are read again. A test is affected if its
+ * class, or a class it refers to directly or through the other classes of
+ * the directories, changed. The affected tests
+ * are run by the ReqaTester in a new RestartClassLoader, while JUnit, ReQA
+ * and the libraries stay loaded and warm.
+ * Run it on its own thread and close it to stop watching.
+ */
+public class WatchDaemon implements Runnable, Closeable {
+
+	// WatchDaemon's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+	// Time without changes before the affected tests are run, letting a compilation finish.
+	public static long QUIET_PERIOD_IN_MILLIS = 100;
+	// Ending of class files.
+	private static final String CLASS_FILE = ".class";
+
+	// Tester running the affected tests.
+	protected final ReqaTester tester;
+	// Directories of the class files that are watched.
+	protected final List<Path> directories = new ArrayList<Path>();
+	// Watcher of the directories.
+	protected final WatchService watcher;
+	// Directory of each registered watch key.
+	protected final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+	// Test classes found in the directories, by name.
+	protected final Map<String, ScannedClass> tests = new TreeMap<String, ScannedClass>();
+	// Classes each class of the directories refers to, by name of the class.
+	protected final Map<String, Set<String>> references = new HashMap<String, Set<String>>();
+
+	/**
+	 * WatchDaemon constructor watching the directories of the class path.
+	 * @param tester ReqaTester running the affected tests.
+	 * @throws IOException if the directories couldn't be watched.
+	 */
+	public WatchDaemon(ReqaTester tester) throws IOException {
+		this(tester, BytecodeScanner.findLocations());
+	}
+
+	/**
+	 * WatchDaemon constructor watching given directories, files aren't watched.
+	 * @param tester ReqaTester running the affected tests.
+	 * @param locations List<File> of the directories of the class files.
+	 * @throws IOException if the directories couldn't be watched.
+	 */
+	public WatchDaemon(ReqaTester tester, List<File> locations) throws IOException {
+		if(tester == null) {
+			throw new NullPointerException("ReqaTester can't be null!");
+		}
+		this.tester = tester;
+		this.watcher = FileSystems.getDefault().newWatchService();
+		for(File location : locations) {
+			if(location.isDirectory()) {
+				Path directory = location.toPath().toAbsolutePath();
+				directories.add(directory);
+				register(directory, directory);
+			}
+		}
+		LOGGER.debug("Watching #{} directories with #{} test classes.", directories.size(), tests.size());
+	}
+
+	/**
+	 * run waits for changes and runs the affected tests until closed.
+	 */
+	@Override
+	public void run() {
+		try {
+			while(true) {
+				Map<String, Path> changed = new LinkedHashMap<String, Path>();
+				WatchKey key = watcher.take();
+				do {
+					changed.putAll(changed(key));
+				} while((key = watcher.poll(QUIET_PERIOD_IN_MILLIS, TimeUnit.MILLISECONDS)) != null);
+				for(Map.Entry<String, Path> file : changed.entrySet()) {
+					if(file.getValue() != null) {
+						update(file.getKey(), file.getValue());
+					}
+				}
+				if(!changed.isEmpty()) {
+					runAffected(changed.keySet());
+				}
+			}
+		} catch(ClosedWatchServiceException exception) {
+			LOGGER.debug("Stopped watching.");
+		} catch(InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			LOGGER.debug("Interrupted, stopped watching.");
+		}
+	}
+
+	/**
+	 * runAffected runs the tests affected by changed classes in a new class loader.
+	 * @param changed Set<String> of the names of the changed classes.
+	 * @return Session of the run, or null if no test is affected.
+	 */
+	public Session runAffected(Set<String> changed) {
+		List<String> affected = getAffected(changed);
+		LOGGER.debug("Changed classes {} affect test classes {}.", changed, affected);
+		if(affected.isEmpty()) {
+			return null;
+		}
+		RestartClassLoader loader = new RestartClassLoader(getUrls(), Thread.currentThread().getContextClassLoader());
+		ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+		Thread.currentThread().setContextClassLoader(loader);
+		try {
+			List<Class<?>> klazzez = new ArrayList<Class<?>>();
+			for(String test : affected) {
+				Class<?> klazz = tests.get(test).load(loader);
+				if(klazz != null) {
+					klazzez.add(klazz);
+				}
+			}
+			return tester.sessionRun(klazzez.toArray(new Class[0]));
+		} finally {
+			Thread.currentThread().setContextClassLoader(contextLoader);
+			try {
+				loader.close();
+			} catch(IOException exception) {
+				LOGGER.warn("Could not close class loader of the run.", exception);
+			}
+		}
+	}
+
+	/**
+	 * getAffected gets the test classes affected by changed classes, the test
+	 * classes reaching a changed class through the references of the classes.
+	 * @param changed Set<String> of the names of the changed classes.
+	 * @return List<String> of the names of the affected test classes.
+	 */
+	public List<String> getAffected(Set<String> changed) {
+		Map<String, Set<String>> referrers = new HashMap<String, Set<String>>();
+		for(Map.Entry<String, Set<String>> klazz : references.entrySet()) {
+			for(String reference : klazz.getValue()) {
+				Set<String> referring = referrers.get(reference);
+				if(referring == null) {
+					referring = new HashSet<String>();
+					referrers.put(reference, referring);
+				}
+				referring.add(klazz.getKey());
+			}
+		}
+		Set<String> reached = new HashSet<String>(changed);
+		Deque<String> reaching = new ArrayDeque<String>(changed);
+		while(!reaching.isEmpty()) {
+			Set<String> referring = referrers.get(reaching.pop());
+			if(referring != null) {
+				for(String klazz : referring) {
+					if(reached.add(klazz)) {
+						reaching.push(klazz);
+					}
+				}
+			}
+		}
+		List<String> affected = new ArrayList<String>();
+		for(String test : tests.keySet()) {
+			if(reached.contains(test)) {
+				affected.add(test);
+			}
+		}
+		return affected;
+	}
+
+	@Override
+	public void close() throws IOException {
+		watcher.close();
+	}
+
+	/**
+	 * changed gets the class files changed in a directory and resets its key.
+	 * The class files are read when the changes are done, new directories
+	 * are registered and read right away.
+	 * @param key WatchKey of the directory.
+	 * @return Map<String, Path> of the names of the changed classes mapped to
+	 * their class files, or to null if already read.
+	 */
+	protected Map<String, Path> changed(WatchKey key) {
+		Map<String, Path> changed = new LinkedHashMap<String, Path>();
+		Path directory = keys.get(key);
+		for(WatchEvent<?> event : key.pollEvents()) {
+			if(event.kind() == OVERFLOW || directory == null) {
+				LOGGER.warn("Changes of {} were lost, they are only seen when the classes change again.", directory);
+				continue;
+			}
+			Path path = directory.resolve((Path) event.context());
+			Path root = getRoot(path);
+			try {
+				if(event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+					for(String name : register(root, path)) {
+						changed.put(name, null);
+					}
+				} else if(path.toString().endsWith(CLASS_FILE)) {
+					changed.put(getClassName(root, path), path);
+				}
+			} catch(IOException exception) {
+				LOGGER.warn("Could not read changed {}: {}", path, exception);
+			}
+		}
+		if(!key.reset()) {
+			keys.remove(key);
+		}
+		return changed;
+	}
+
+	/**
+	 * register watches a directory and its subdirectories, reading their class files.
+	 * @param root Path of the watched class directory containing the directory.
+	 * @param directory Path of the directory.
+	 * @return Set<String> of the names of the classes read.
+	 * @throws IOException if the directory couldn't be watched.
+	 */
+	protected Set<String> register(final Path root, Path directory) throws IOException {
+		final Set<String> read = new LinkedHashSet<String>();
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+				keys.put(directory.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+				if(file.toString().endsWith(CLASS_FILE)) {
+					String name = getClassName(root, file);
+					update(name, file);
+					read.add(name);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return read;
+	}
+
+	/**
+	 * update reads a class file again, noting the classes it refers to
+	 * and if it's a test class. Deleted classes are forgotten.
+	 * @param name String name of the class.
+	 * @param file Path of the class file.
+	 */
+	protected void update(String name, Path file) {
+		tests.remove(name);
+		references.remove(name);
+		if(!Files.isRegularFile(file)) {
+			return;
+		}
+		try {
+			ClassFileReader reader = new ClassFileReader(Files.readAllBytes(file));
+			ScannedClass scanned = reader.read();
+			Set<String> classes = new LinkedHashSet<String>();
+			for(String reference : reader.readReferences()) {
+				String klazz = reference.replace('/', '.');
+				if(!klazz.equals(name)) {
+					classes.add(klazz);
+				}
+			}
+			references.put(name, classes);
+			if(scanned != null) {
+				tests.put(name, scanned);
+			}
+		} catch(IOException exception) {
+			LOGGER.warn("Could not read class file {}: {}", file, exception);
+		}
+	}
+
+	/**
+	 * getRoot gets the watched class directory containing a path.
+	 * @param path Path in a watched directory.
+	 * @return Path of the class directory.
+	 */
+	protected Path getRoot(Path path) {
+		for(Path directory : directories) {
+			if(path.startsWith(directory)) {
+				return directory;
+			}
+		}
+		return path.getParent();
+	}
+
+	/**
+	 * getClassName gets the name of a class from the path of its class file.
+	 * @param root Path of the class directory.
+	 * @param file Path of the class file.
+	 * @return String name of the class.
+	 */
+	protected static String getClassName(Path root, Path file) {
+		String name = root.relativize(file).toString().replace(File.separatorChar, '.');
+		return name.substring(0, name.length() - CLASS_FILE.length());
+	}
+
+	/**
+	 * getUrls gets the URLs of the watched directories.
+	 * @return URL[] of the directories.
+	 */
+	protected URL[] getUrls() {
+		List<URL> urls = new ArrayList<URL>();
+		for(Path directory : directories) {
+			try {
+				urls.add(directory.toUri().toURL());
+			} catch(MalformedURLException exception) {
+				LOGGER.warn("Could not get URL of {}: {}", directory, exception);
+			}
+		}
+		return urls.toArray(new URL[0]);
+	}
+
+}
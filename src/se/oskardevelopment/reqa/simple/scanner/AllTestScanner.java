@@ -21,6 +21,7 @@ package se.oskardevelopment.reqa.simple.scanner;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -34,12 +35,21 @@ public class AllTestScanner extends Scanner {
 
 	@Override
 	public Set<Class<?>> findClasses() {
+		return Scanner.findClasses(findLocations());
+	}
+	
+	/**
+	 * findLocations finds the locations of all packages
+	 * that are used or depended on in the current project.
+	 * @return List<URL> of the unique locations of all packages.
+	 */
+	public static List<URL> findLocations() {
 		List<Package> pkgs = Arrays.asList(Package.getPackages());
-		List<URL> urls = new ArrayList<URL>();
+		Set<URL> urls = new LinkedHashSet<URL>();
 		for(Package pkg : pkgs) {
 			urls.addAll(ClasspathHelper.forPackage(pkg.getName()));
 		}
-		return Scanner.findClasses(urls);
+		return new ArrayList<URL>(urls);
 	}
 
 }
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.scanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * BytecodeHasher hashes the bytecode of test classes, used to find
+ * the tests that may have changed since an earlier session.
+ * The hash of a class covers its own class file and the class files
+ * of the classes it refers to directly, leaving out the JDK's classes.
+ * Each class file is only read once per BytecodeHasher.
+ */
+public class BytecodeHasher {
+
+	// BytecodeHasher's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+	// Algorithm used for the hashes.
+	public static final String ALGORITHM = "SHA-1";
+	// Packages of the JDK, whose classes aren't hashed.
+	private static final String[] JDK_PACKAGES = {"java/", "javax/", "sun/", "jdk/", "com/sun/"};
+	// Marks a class file that couldn't be found.
+	private static final byte[] MISSING = new byte[0];
+
+	// Class loader finding the class files.
+	protected final ClassLoader loader;
+	// Digest of each class file read, by internal name of the class.
+	protected final Map<String, byte[]> digests = new HashMap<String, byte[]>();
+
+	/**
+	 * BytecodeHasher constructor finding class files with a class loader.
+	 * @param loader ClassLoader finding the class files.
+	 */
+	public BytecodeHasher(ClassLoader loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * hash hashes a class and the classes it refers to.
+	 * @param klazz Class to hash.
+	 * @return String hex of the hash, or null if the class file couldn't be read.
+	 */
+	public synchronized String hash(Class<?> klazz) {
+		String name = klazz.getName().replace('.', '/');
+		byte[] bytes = read(name);
+		if(bytes == null) {
+			return null;
+		}
+		try {
+			Set<String> references = new ClassFileReader(bytes).readReferences();
+			references.add(name);
+			MessageDigest hash = createDigest();
+			Charset utf8 = Charset.forName("UTF-8");
+			for(String reference : references) {
+				if(isJdk(reference)) {
+					continue;
+				}
+				hash.update(reference.getBytes(utf8));
+				hash.update(digest(reference));
+			}
+			return toHex(hash.digest());
+		} catch(IOException exception) {
+			LOGGER.warn("Could not hash {}: {}", klazz, exception);
+			return null;
+		}
+	}
+
+	/**
+	 * digest gets the digest of a class file, reading it the first time.
+	 * @param name String internal name of the class.
+	 * @return byte[] digest of the class file, empty if not found.
+	 */
+	protected byte[] digest(String name) {
+		byte[] digest = digests.get(name);
+		if(digest == null) {
+			byte[] bytes = read(name);
+			digest = bytes == null ? MISSING : createDigest().digest(bytes);
+			digests.put(name, digest);
+		}
+		return digest;
+	}
+
+	/**
+	 * read reads a class file.
+	 * @param name String internal name of the class.
+	 * @return byte[] of the class file, or null if not found.
+	 */
+	protected byte[] read(String name) {
+		InputStream input = loader.getResourceAsStream(name + ".class");
+		if(input == null) {
+			return null;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while((read = input.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		} catch(IOException exception) {
+			LOGGER.warn("Could not read class file of {}: {}", name, exception);
+			return null;
+		} finally {
+			try {
+				input.close();
+			} catch(IOException exception) {
+				LOGGER.warn("Could not close class file of {}: {}", name, exception);
+			}
+		}
+	}
+
+	/**
+	 * isJdk checks if a class is one of the JDK's classes.
+	 * @param name String internal name of the class.
+	 * @return boolean true if in a package of the JDK, else false.
+	 */
+	protected static boolean isJdk(String name) {
+		for(String jdkPackage : JDK_PACKAGES) {
+			if(name.startsWith(jdkPackage)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * createDigest creates a MessageDigest of the hash algorithm.
+	 * @return MessageDigest that is new.
+	 */
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch(NoSuchAlgorithmException exception) {
+			throw new IllegalStateException(ALGORITHM + " is required of every Java platform!", exception);
+		}
+	}
+
+	/**
+	 * toHex converts bytes to hex.
+	 * @param bytes byte[] to convert.
+	 * @return String of two hex digits per byte.
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for(byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * BytecodeScanner is used to scan for all tests on the classpath,
+ * or in packages with a given prefix, by reading the class files
+ * directly instead of using Reflections.
+ * Each jar or directory is scanned by its own task in parallel.
+ * Only the classes that are to be tested are loaded, and none are initialized.
+ * Classes can be told as they are found, see scanClasses(ScanListener).
+ */
+public class BytecodeScanner extends Scanner {
+
+	// BytecodeScanner's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+	// Ending of class files.
+	private static final String CLASS_FILE = ".class";
+
+	// String of the package prefix, null when scanning all packages.
+	private final String packagePrefix;
+	// Amount of jars and directories scanned at the same time.
+	private final int parallelism;
+
+	/**
+	 * Constructor of BytecodeScanner scanning the whole classpath.
+	 */
+	public BytecodeScanner() {
+		this(null);
+	}
+
+	/**
+	 * Constructor of BytecodeScanner scanning the packages with a given prefix.
+	 * @param packagePrefix String prefix that's required of
+	 * the classes to be tested, null for all packages.
+	 */
+	public BytecodeScanner(String packagePrefix) {
+		this(packagePrefix, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor of BytecodeScanner with a custom selected parallelism.
+	 * @param packagePrefix String prefix that's required of
+	 * the classes to be tested, null for all packages.
+	 * @param parallelism int amount of jars and directories scanned at the same time.
+	 */
+	public BytecodeScanner(String packagePrefix, int parallelism) {
+		this.packagePrefix = packagePrefix;
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public Set<Class<?>> findClasses() {
+		return Scanner.loadClasses(scanClasses());
+	}
+
+	@Override
+	public List<ScannedClass> scanClasses() {
+		List<File> locations = findLocations();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Future<List<ScannedClass>>> scans = new ArrayList<Future<List<ScannedClass>>>();
+			for(final File location : locations) {
+				scans.add(pool.submit(new Callable<List<ScannedClass>>() {
+					@Override
+					public List<ScannedClass> call() throws IOException {
+						final List<ScannedClass> scanned = new ArrayList<ScannedClass>();
+						scan(location, new ScanListener() {
+							@Override
+							public void classFound(ScannedClass scannedClass) {
+								scanned.add(scannedClass);
+							}
+						});
+						return scanned;
+					}
+				}));
+			}
+			Set<ScannedClass> scanned = new LinkedHashSet<ScannedClass>();
+			for(int i = 0; i < scans.size(); i++) {
+				try {
+					scanned.addAll(scans.get(i).get());
+				} catch(ExecutionException exception) {
+					LOGGER.warn("Could not scan {}: {}", locations.get(i), exception.getCause());
+				}
+			}
+			return new ArrayList<ScannedClass>(scanned);
+		} catch(InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			LOGGER.error("Interrupted while scanning!", exception);
+			return new ArrayList<ScannedClass>();
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * scanClasses tells the listener of each class as soon as it's read,
+	 * from the threads scanning the jars and directories.
+	 * A class found in several jars or directories is only told once.
+	 */
+	@Override
+	public void scanClasses(final ScanListener listener) {
+		final Set<String> found = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		final ScanListener unique = new ScanListener() {
+			@Override
+			public void classFound(ScannedClass scanned) {
+				if(found.add(scanned.name)) {
+					listener.classFound(scanned);
+				}
+			}
+		};
+		List<File> locations = findLocations();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Future<Void>> scans = new ArrayList<Future<Void>>();
+			for(final File location : locations) {
+				scans.add(pool.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						scan(location, unique);
+						return null;
+					}
+				}));
+			}
+			for(int i = 0; i < scans.size(); i++) {
+				try {
+					scans.get(i).get();
+				} catch(ExecutionException exception) {
+					LOGGER.warn("Could not scan {}: {}", locations.get(i), exception.getCause());
+				}
+			}
+		} catch(InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			LOGGER.error("Interrupted while scanning!", exception);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * scan scans a jar or directory for classes to be tested.
+	 * @param location File of the jar or directory.
+	 * @param listener ScanListener that is told of each class to be tested.
+	 * @throws IOException if reading the jar or directory failed.
+	 */
+	protected void scan(File location, ScanListener listener) throws IOException {
+		if(location.isDirectory()) {
+			scan(location.toPath(), listener);
+		} else if(location.isFile()) {
+			FileSystem jar = FileSystems.newFileSystem(location.toPath(), (ClassLoader) null);
+			try {
+				scan(jar.getPath("/"), listener);
+			} finally {
+				jar.close();
+			}
+		}
+	}
+
+	/**
+	 * scan scans a directory tree, ex. of a jar's file system, for classes to be tested.
+	 * @param root Path of the directory.
+	 * @param listener ScanListener that is told of each class to be tested.
+	 * @throws IOException if reading the directory failed.
+	 */
+	protected void scan(final Path root, final ScanListener listener) throws IOException {
+		final String prefix = packagePrefix == null ? "" : packagePrefix.replace('.', '/');
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+				String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+				if(name.endsWith(CLASS_FILE) && name.startsWith(prefix) && !name.startsWith("META-INF/")) {
+					try {
+						ScannedClass scannedClass = new ClassFileReader(Files.readAllBytes(file)).read();
+						if(scannedClass != null) {
+							listener.classFound(scannedClass);
+						}
+					} catch(IOException exception) {
+						LOGGER.warn("Could not read class file {}: {}", file, exception);
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * findLocations finds the jars and directories of the classpath,
+	 * including the class path of the jars' manifests.
+	 * @return List<File> of the unique jars and directories.
+	 */
+	public static List<File> findLocations() {
+		Set<File> locations = new LinkedHashSet<File>();
+		for(String path : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+			if(!path.isEmpty()) {
+				addLocation(locations, new File(path));
+			}
+		}
+		for(ClassLoader loader = Thread.currentThread().getContextClassLoader(); loader != null; loader = loader.getParent()) {
+			if(loader instanceof URLClassLoader) {
+				for(URL url : ((URLClassLoader) loader).getURLs()) {
+					if("file".equals(url.getProtocol())) {
+						try {
+							addLocation(locations, new File(url.toURI()));
+						} catch(URISyntaxException | IllegalArgumentException exception) {
+							LOGGER.debug("Could not add location {}: {}", url, exception);
+						}
+					}
+				}
+			}
+		}
+		return new ArrayList<File>(locations);
+	}
+
+	/**
+	 * addLocation adds a jar or directory and the class path of a jar's manifest.
+	 * @param locations Set<File> of the locations found.
+	 * @param location File of the jar or directory.
+	 */
+	private static void addLocation(Set<File> locations, File location) {
+		location = location.getAbsoluteFile();
+		if(!location.exists() || !locations.add(location) || !location.isFile()) {
+			return;
+		}
+		try {
+			JarFile jar = new JarFile(location);
+			try {
+				Manifest manifest = jar.getManifest();
+				String classPath = manifest == null ? null : manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+				if(classPath != null) {
+					for(String path : classPath.trim().split("\\s+")) {
+						try {
+							addLocation(locations, new File(new URL(location.toURI().toURL(), path).toURI()));
+						} catch(IOException | URISyntaxException | IllegalArgumentException exception) {
+							LOGGER.debug("Could not add manifest class path {} of {}: {}", path, location, exception);
+						}
+					}
+				}
+			} finally {
+				jar.close();
+			}
+		} catch(IOException exception) {
+			LOGGER.debug("Could not read manifest of {}: {}", location, exception);
+		}
+	}
+
+}
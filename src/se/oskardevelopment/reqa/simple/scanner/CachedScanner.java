@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.scanner;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.reflections.util.ClasspathHelper;
+
+/**
+ * CachedScanner is used to scan for all tests, like the AllTestScanner,
+ * or for all tests in packages with a given prefix, like the PackageScanner.
+ * What's found is cached by a ScanCache, so only the jars and directories
+ * that changed since the last scan are scanned again.
+ */
+public class CachedScanner extends Scanner {
+
+	// String of the package prefix, null when scanning all packages.
+	private final String packagePrefix;
+	// Cache of what's found in each classpath entry.
+	protected ScanCache cache;
+
+	/**
+	 * Constructor of CachedScanner scanning all packages
+	 * used or depended on in the current project.
+	 */
+	public CachedScanner() {
+		this(null, new ScanCache());
+	}
+
+	/**
+	 * Constructor of CachedScanner scanning the packages with a given prefix.
+	 * @param packagePrefix String prefix that's required of
+	 * the classes to be tested.
+	 */
+	public CachedScanner(String packagePrefix) {
+		this(packagePrefix, new ScanCache());
+	}
+
+	/**
+	 * Constructor of CachedScanner with a custom selected cache.
+	 * @param packagePrefix String prefix that's required of
+	 * the classes to be tested, null for all packages.
+	 * @param cache ScanCache used to cache what's found.
+	 */
+	public CachedScanner(String packagePrefix, ScanCache cache) {
+		this.packagePrefix = packagePrefix;
+		this.cache = cache;
+	}
+
+	@Override
+	public Set<Class<?>> findClasses() {
+		return Scanner.loadClasses(scanClasses());
+	}
+
+	@Override
+	public List<ScannedClass> scanClasses() {
+		Collection<URL> locations = packagePrefix == null ? AllTestScanner.findLocations()
+				: ClasspathHelper.forPackage(packagePrefix);
+		Set<ScannedClass> scanned = new LinkedHashSet<ScannedClass>();
+		for(ScannedClass scannedClass : cache.scan(locations)) {
+			if(packagePrefix == null || scannedClass.name.startsWith(packagePrefix)) {
+				scanned.add(scannedClass);
+			}
+		}
+		return new ArrayList<ScannedClass>(scanned);
+	}
+
+	/**
+	 * getCache gets the cache used by the scanner.
+	 * @return ScanCache used to cache what's found.
+	 */
+	public ScanCache getCache() {
+		return cache;
+	}
+
+}
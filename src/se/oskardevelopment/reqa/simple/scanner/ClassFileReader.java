@@ -0,0 +1,374 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.scanner;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ClassFileReader reads what a scanner needs from the bytes of a class
+ * file, the class's name and its @Test and @Verifiable annotations,
+ * without loading the class. Reads the constant pool and the
+ * RuntimeVisibleAnnotations attributes, skipping everything else.
+ * Classes that don't mention either annotation are left after
+ * reading the constant pool.
+ */
+public class ClassFileReader {
+
+	// Magic number that all class files start with.
+	private static final int MAGIC = 0xCAFEBABE;
+	// Descriptor of JUnit's test annotation.
+	private static final String TEST = "Lorg/junit/Test;";
+	// Descriptor of ReQA's verifiable annotation.
+	private static final String VERIFIABLE = "Lse/oskardevelopment/reqa/simple/annotations/Verifiable;";
+	// Name of the attribute containing the annotations.
+	private static final String ANNOTATIONS = "RuntimeVisibleAnnotations";
+	// Name of the Verifiable element with the requirements.
+	private static final String VERIFIES = "verifies";
+
+	// Bytes of the class file.
+	protected final ByteBuffer buffer;
+	// Position of each constant in the constant pool, 0 for unused indexes.
+	protected int[] constants;
+	// Constant pool index of the test annotation's descriptor, 0 if not used.
+	protected int testIndex = 0;
+	// Constant pool index of the verifiable annotation's descriptor, 0 if not used.
+	protected int verifiableIndex = 0;
+	// Constant pool index of the annotations attribute's name, 0 if not used.
+	protected int annotationsIndex = 0;
+
+	/**
+	 * ClassFileReader constructor reading the bytes of a class file.
+	 * @param bytes byte[] of the class file.
+	 */
+	public ClassFileReader(byte[] bytes) {
+		this.buffer = ByteBuffer.wrap(bytes);
+	}
+
+	/**
+	 * read reads the class file.
+	 * @return ScannedClass describing the class if it's to be tested, that is
+	 * if the class is @Verifiable or has a @Test or @Verifiable method, else null.
+	 * @throws IOException if the bytes aren't a valid class file.
+	 */
+	public ScannedClass read() throws IOException {
+		try {
+			if(buffer.getInt() != MAGIC) {
+				throw new IOException("Not a class file!");
+			}
+			skip(4); // Minor and major version.
+			readConstants();
+			if(testIndex == 0 && verifiableIndex == 0) {
+				return null;
+			}
+			skip(2); // Access flags.
+			ScannedClass scanned = new ScannedClass(readUtf8(classNameIndex(u2())).replace('/', '.'));
+			skip(2); // Super class.
+			skip(2 * u2()); // Interfaces.
+			int fields = u2();
+			for(int i = 0; i < fields; i++) {
+				skip(6); // Access flags, name and descriptor.
+				skipAttributes();
+			}
+			boolean tested = false;
+			int methods = u2();
+			for(int i = 0; i < methods; i++) {
+				skip(2); // Access flags.
+				String name = readUtf8(u2());
+				skip(2); // Descriptor.
+				Annotations annotations = readAnnotations();
+				if(annotations.test) {
+					scanned.methods.put(name, annotations.verifies);
+				}
+				tested = tested || annotations.test || annotations.verifiable;
+			}
+			Annotations annotations = readAnnotations();
+			if(annotations.verifiable) {
+				scanned.verifies = annotations.verifies;
+			}
+			return tested || annotations.verifiable ? scanned : null;
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException exception) {
+			throw new IOException("Broken class file!", exception);
+		}
+	}
+
+	/**
+	 * readReferences reads the names of all classes the class refers to,
+	 * ex. the classes it creates, calls or casts to, including itself.
+	 * Array classes are given as their element classes.
+	 * @return Set<String> of the internal names of the classes, ex. "java/lang/String".
+	 * @throws IOException if the bytes aren't a valid class file.
+	 */
+	public Set<String> readReferences() throws IOException {
+		try {
+			buffer.position(0);
+			if(buffer.getInt() != MAGIC) {
+				throw new IOException("Not a class file!");
+			}
+			skip(4); // Minor and major version.
+			readConstants();
+			Set<String> references = new TreeSet<String>();
+			for(int i = 1; i < constants.length; i++) {
+				if(constants[i] != 0 && (buffer.get(constants[i]) & 0xFF) == 7) {
+					String name = readUtf8(classNameIndex(i));
+					int dimensions = 0;
+					while(name.charAt(dimensions) == '[') {
+						dimensions++;
+					}
+					if(dimensions == 0) {
+						references.add(name);
+					} else if(name.charAt(dimensions) == 'L') {
+						references.add(name.substring(dimensions + 1, name.length() - 1));
+					}
+				}
+			}
+			return references;
+		} catch(BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException exception) {
+			throw new IOException("Broken class file!", exception);
+		}
+	}
+
+	/**
+	 * readConstants reads the positions of all constants in the
+	 * constant pool, noting the indexes of the constants of interest.
+	 */
+	protected void readConstants() {
+		int count = u2();
+		constants = new int[count];
+		for(int i = 1; i < count; i++) {
+			constants[i] = buffer.position();
+			int tag = u1();
+			switch(tag) {
+			case 1: // Utf8
+				int length = u2();
+				if(equalsUtf8(length, TEST)) {
+					testIndex = i;
+				} else if(equalsUtf8(length, VERIFIABLE)) {
+					verifiableIndex = i;
+				} else if(equalsUtf8(length, ANNOTATIONS)) {
+					annotationsIndex = i;
+				}
+				skip(length);
+				break;
+			case 3: case 4: // Integer, Float
+			case 9: case 10: case 11: case 12: // References, NameAndType
+			case 17: case 18: // Dynamic, InvokeDynamic
+				skip(4);
+				break;
+			case 5: case 6: // Long, Double, taking two indexes.
+				skip(8);
+				i++;
+				break;
+			case 7: case 8: case 16: case 19: case 20: // Class, String, MethodType, Module, Package
+				skip(2);
+				break;
+			case 15: // MethodHandle
+				skip(3);
+				break;
+			default:
+				throw new IndexOutOfBoundsException("Unknown constant pool tag " + tag + "!");
+			}
+		}
+	}
+
+	/**
+	 * readAnnotations reads the attributes of a method or class,
+	 * reading its @Test and @Verifiable annotations.
+	 * @return Annotations of the method or class.
+	 */
+	protected Annotations readAnnotations() {
+		Annotations annotations = new Annotations();
+		int attributes = u2();
+		for(int i = 0; i < attributes; i++) {
+			int name = u2();
+			int length = buffer.getInt();
+			int end = buffer.position() + length;
+			if(name == annotationsIndex && annotationsIndex != 0) {
+				int count = u2();
+				for(int j = 0; j < count; j++) {
+					readAnnotation(annotations);
+				}
+			}
+			buffer.position(end);
+		}
+		return annotations;
+	}
+
+	/**
+	 * readAnnotation reads an annotation, noting if it's @Test or
+	 * @Verifiable and the requirements it verifies.
+	 * @param annotations Annotations that are read.
+	 */
+	protected void readAnnotation(Annotations annotations) {
+		int type = u2();
+		boolean verifiable = type == verifiableIndex && verifiableIndex != 0;
+		annotations.test = annotations.test || (type == testIndex && testIndex != 0);
+		annotations.verifiable = annotations.verifiable || verifiable;
+		int pairs = u2();
+		for(int i = 0; i < pairs; i++) {
+			String name = readUtf8(u2());
+			if(verifiable && VERIFIES.equals(name)) {
+				readStrings(annotations.verifies);
+			} else {
+				skipElementValue();
+			}
+		}
+	}
+
+	/**
+	 * readStrings reads an element value of strings, or an array of strings.
+	 * @param strings List<String> the strings are added to.
+	 */
+	protected void readStrings(List<String> strings) {
+		int tag = u1();
+		if(tag == 's') {
+			strings.add(readUtf8(u2()));
+		} else if(tag == '[') {
+			int count = u2();
+			for(int i = 0; i < count; i++) {
+				readStrings(strings);
+			}
+		} else {
+			buffer.position(buffer.position() - 1);
+			skipElementValue();
+		}
+	}
+
+	/**
+	 * skipElementValue skips an annotation's element value.
+	 */
+	protected void skipElementValue() {
+		int tag = u1();
+		switch(tag) {
+		case 'e':
+			skip(4);
+			break;
+		case '@':
+			skip(2);
+			int pairs = u2();
+			for(int i = 0; i < pairs; i++) {
+				skip(2);
+				skipElementValue();
+			}
+			break;
+		case '[':
+			int count = u2();
+			for(int i = 0; i < count; i++) {
+				skipElementValue();
+			}
+			break;
+		default:
+			skip(2);
+		}
+	}
+
+	/**
+	 * skipAttributes skips the attributes of a field, method or class.
+	 */
+	protected void skipAttributes() {
+		int attributes = u2();
+		for(int i = 0; i < attributes; i++) {
+			skip(2);
+			skip(buffer.getInt());
+		}
+	}
+
+	/**
+	 * classNameIndex gets the index of the name of a class constant.
+	 * @param classIndex int index of the class constant.
+	 * @return int index of the class's name.
+	 */
+	protected int classNameIndex(int classIndex) {
+		return buffer.getShort(constants[classIndex] + 1) & 0xFFFF;
+	}
+
+	/**
+	 * readUtf8 reads a Utf8 constant, decoding Java's modified UTF-8.
+	 * @param index int index of the Utf8 constant.
+	 * @return String of the constant.
+	 */
+	protected String readUtf8(int index) {
+		int position = constants[index] + 1;
+		int length = buffer.getShort(position) & 0xFFFF;
+		int end = position + 2 + length;
+		StringBuilder utf8 = new StringBuilder(length);
+		for(int i = position + 2; i < end; i++) {
+			int read = buffer.get(i) & 0xFF;
+			if(read < 0x80) {
+				utf8.append((char) read);
+			} else if((read & 0xE0) == 0xC0) {
+				utf8.append((char) (((read & 0x1F) << 6) | (buffer.get(++i) & 0x3F)));
+			} else {
+				int second = buffer.get(++i) & 0x3F;
+				utf8.append((char) (((read & 0x0F) << 12) | (second << 6) | (buffer.get(++i) & 0x3F)));
+			}
+		}
+		return utf8.toString();
+	}
+
+	/**
+	 * equalsUtf8 compares the Utf8 constant at the buffer's position
+	 * with an ASCII string, without decoding the constant.
+	 * @param length int length of the constant.
+	 * @param ascii String to compare with.
+	 * @return boolean true if equal, else false.
+	 */
+	private boolean equalsUtf8(int length, String ascii) {
+		if(length != ascii.length()) {
+			return false;
+		}
+		int position = buffer.position();
+		for(int i = 0; i < length; i++) {
+			if(buffer.get(position + i) != ascii.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int u1() {
+		return buffer.get() & 0xFF;
+	}
+
+	private int u2() {
+		return buffer.getShort() & 0xFFFF;
+	}
+
+	private void skip(int bytes) {
+		buffer.position(buffer.position() + bytes);
+	}
+
+	/**
+	 * Annotations are the @Test and @Verifiable annotations of a method or class.
+	 */
+	protected static class Annotations {
+		// If annotated with @Test.
+		boolean test = false;
+		// If annotated with @Verifiable.
+		boolean verifiable = false;
+		// Requirements verified, from @Verifiable.
+		List<String> verifies = new ArrayList<String>();
+	}
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.scanner;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import se.oskardevelopment.reqa.simple.processor.VerifiableProcessor;
+import se.oskardevelopment.reqa.simple.utility.OutputHelper;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * IndexScanner is used to find all tests from the indexes written
+ * by the VerifiableProcessor when the tests were compiled,
+ * without scanning the classpath.
+ * Only tests compiled with the VerifiableProcessor are found.
+ */
+public class IndexScanner extends Scanner {
+
+	// IndexScanner's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	// String of the package prefix, null when finding all tests.
+	private final String packagePrefix;
+	// Gson used to read the indexes.
+	protected Gson gson = OutputHelper.createCompactGson();
+
+	/**
+	 * Constructor of IndexScanner finding all indexed tests.
+	 */
+	public IndexScanner() {
+		this(null);
+	}
+
+	/**
+	 * Constructor of IndexScanner finding the indexed tests
+	 * in packages with a given prefix.
+	 * @param packagePrefix String prefix that's required of
+	 * the classes to be tested, null for all packages.
+	 */
+	public IndexScanner(String packagePrefix) {
+		this.packagePrefix = packagePrefix;
+	}
+
+	@Override
+	public Set<Class<?>> findClasses() {
+		return Scanner.loadClasses(scanClasses());
+	}
+
+	@Override
+	public List<ScannedClass> scanClasses() {
+		Set<ScannedClass> scanned = new LinkedHashSet<ScannedClass>();
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if(loader == null) {
+			loader = IndexScanner.class.getClassLoader();
+		}
+		try {
+			Enumeration<URL> indexes = loader.getResources(VerifiableProcessor.INDEX);
+			while(indexes.hasMoreElements()) {
+				URL index = indexes.nextElement();
+				for(ScannedClass scannedClass : readIndex(index)) {
+					if(packagePrefix == null || scannedClass.name.startsWith(packagePrefix)) {
+						scanned.add(scannedClass);
+					}
+				}
+			}
+		} catch(IOException exception) {
+			LOGGER.error("Could not find the indexes of the tests!", exception);
+		}
+		return new ArrayList<ScannedClass>(scanned);
+	}
+
+	/**
+	 * readIndex reads an index written by the VerifiableProcessor.
+	 * @param index URL of the index.
+	 * @return List<ScannedClass> of all classes in the index,
+	 * empty if the index couldn't be read.
+	 */
+	protected List<ScannedClass> readIndex(URL index) {
+		try {
+			Reader reader = new InputStreamReader(index.openStream(), OutputHelper.ENCODING);
+			try {
+				return VerifiableProcessor.readIndex(reader, gson);
+			} finally {
+				reader.close();
+			}
+		} catch(IOException | JsonParseException exception) {
+			LOGGER.warn("Exception {} when reading test index {}.", exception, index);
+			return new ArrayList<ScannedClass>();
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.scanner;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RequirementIndex maps each requirement to the test methods
+ * verifying it, built from the classes found by a scanner.
+ * Lets the tests of a few requirements be found without loading
+ * any class, ex. used by ReqaTester.runRequirements(String...).
+ */
+public class RequirementIndex {
+
+	// Each requirement mapped to the classes verifying it,
+	// each class mapped to its methods verifying the requirement.
+	protected final Map<String, Map<ScannedClass, Set<String>>> index = new LinkedHashMap<String, Map<ScannedClass, Set<String>>>();
+
+	/**
+	 * RequirementIndex constructor indexing scanned classes.
+	 * @param scanned Collection<ScannedClass> to index.
+	 */
+	public RequirementIndex(Collection<ScannedClass> scanned) {
+		for(ScannedClass scannedClass : scanned) {
+			add(scannedClass);
+		}
+	}
+
+	/**
+	 * add indexes the test methods of a scanned class.
+	 * @param scanned ScannedClass to index.
+	 */
+	public void add(ScannedClass scanned) {
+		for(Map.Entry<String, List<String>> method : scanned.methods.entrySet()) {
+			for(String requirement : method.getValue()) {
+				Map<ScannedClass, Set<String>> classes = index.get(requirement);
+				if(classes == null) {
+					classes = new LinkedHashMap<ScannedClass, Set<String>>();
+					index.put(requirement, classes);
+				}
+				Set<String> methods = classes.get(scanned);
+				if(methods == null) {
+					methods = new LinkedHashSet<String>();
+					classes.put(scanned, methods);
+				}
+				methods.add(method.getKey());
+			}
+		}
+	}
+
+	/**
+	 * find finds the test methods verifying any of the requirements.
+	 * @param requirements Collection<String> of the IDs of the requirements.
+	 * @return Map<ScannedClass, Set<String>> of each class mapped to
+	 * the names of its methods verifying any of the requirements.
+	 */
+	public Map<ScannedClass, Set<String>> find(Collection<String> requirements) {
+		Map<ScannedClass, Set<String>> found = new LinkedHashMap<ScannedClass, Set<String>>();
+		for(String requirement : requirements) {
+			Map<ScannedClass, Set<String>> classes = index.get(requirement);
+			if(classes == null) {
+				continue;
+			}
+			for(Map.Entry<ScannedClass, Set<String>> scanned : classes.entrySet()) {
+				Set<String> methods = found.get(scanned.getKey());
+				if(methods == null) {
+					methods = new LinkedHashSet<String>();
+					found.put(scanned.getKey(), methods);
+				}
+				methods.addAll(scanned.getValue());
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * getRequirements gets all requirements that are indexed.
+	 * @return Set<String> of the IDs of the requirements verified by any test.
+	 */
+	public Set<String> getRequirements() {
+		return index.keySet();
+	}
+
+}
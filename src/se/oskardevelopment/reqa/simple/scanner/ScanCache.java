@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.scanner;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import se.oskardevelopment.reqa.simple.utility.OutputHelper;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.Expose;
+
+/**
+ * ScanCache caches what's found when scanning each classpath entry,
+ * saved in a file next to the OutputHelper's file.
+ * An entry is only scanned again if its jar or directory changed,
+ * decided by the last modified time and size of its files.
+ */
+public class ScanCache {
+
+	// ScanCache's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+	// Name of the file where the cache is saved, in the OutputHelper's file's directory.
+	public static String FILE_NAME = "scan.reqa";
+
+	// Gson used to save and load the cache.
+	protected Gson gson = OutputHelper.createCompactGson();
+	// Cached scans of each classpath entry, keyed by its URL.
+	@Expose
+	protected Map<String, Entry> entries = null;
+
+	/**
+	 * getFile gets the file the cache is saved in.
+	 * @return File of the cache, next to the OutputHelper's file.
+	 */
+	public File getFile() {
+		return new File(new File(OutputHelper.FILE_NAME).getAbsoluteFile().getParentFile(), FILE_NAME);
+	}
+
+	/**
+	 * scan gets the classes of the locations, scanning only
+	 * the locations that aren't cached or have changed.
+	 * @param locations Collection<URL> of the classpath entries to scan.
+	 * @return List<ScannedClass> of all classes found in the locations.
+	 */
+	public synchronized List<ScannedClass> scan(Collection<URL> locations) {
+		Map<String, Entry> entries = getEntries();
+		List<ScannedClass> classes = new ArrayList<ScannedClass>();
+		boolean changed = false;
+		for(URL location : locations) {
+			String stamp = stamp(location);
+			Entry entry = entries.get(location.toString());
+			if(entry == null || stamp == null || !stamp.equals(entry.stamp)) {
+				LOGGER.debug("Scanning {}, it's not cached or has changed.", location);
+				entry = new Entry(stamp, Scanner.scan(location));
+				if(stamp != null) {
+					entries.put(location.toString(), entry);
+					changed = true;
+				}
+			}
+			classes.addAll(entry.classes);
+		}
+		if(changed) {
+			save();
+		}
+		return classes;
+	}
+
+	/**
+	 * clear removes all cached entries, including the saved file.
+	 */
+	public synchronized void clear() {
+		entries = new LinkedHashMap<String, Entry>();
+		if(getFile().exists() && !getFile().delete()) {
+			LOGGER.warn("Could not delete scan cache {}.", getFile());
+		}
+	}
+
+	/**
+	 * getEntries gets the cached entries, loading them from file the first time.
+	 * @return Map<String, Entry> of the cached entries keyed by URL.
+	 */
+	protected Map<String, Entry> getEntries() {
+		if(entries == null) {
+			entries = load();
+		}
+		return entries;
+	}
+
+	/**
+	 * load loads the cached entries from file.
+	 * @return Map<String, Entry> of the saved entries, empty if none are saved.
+	 */
+	protected Map<String, Entry> load() {
+		File file = getFile();
+		if(file.isFile()) {
+			try {
+				Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), OutputHelper.ENCODING));
+				try {
+					ScanCache saved = gson.fromJson(reader, ScanCache.class);
+					if(saved != null && saved.entries != null) {
+						return saved.entries;
+					}
+				} finally {
+					reader.close();
+				}
+			} catch(IOException | JsonParseException exception) {
+				LOGGER.warn("Exception {} when reading scan cache {}, scanning everything.", exception, file);
+			}
+		}
+		return new LinkedHashMap<String, Entry>();
+	}
+
+	/**
+	 * save saves the cached entries to file. The file is replaced
+	 * first when the whole cache is written.
+	 */
+	protected void save() {
+		File file = getFile();
+		File saving = new File(file.getPath() + ".tmp");
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(saving), OutputHelper.ENCODING));
+			try {
+				gson.toJson(this, writer);
+			} finally {
+				writer.close();
+			}
+			Files.move(saving.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch(IOException exception) {
+			LOGGER.warn("Exception {} when saving scan cache {}.", exception, file);
+		}
+	}
+
+	/**
+	 * stamp creates a stamp of a classpath entry that changes
+	 * when the entry is changed. A jar is stamped by its last modified
+	 * time and size, a directory by the latest last modified time and
+	 * the amount of its files.
+	 * @param location URL of the classpath entry.
+	 * @return String stamp of the entry, or null if it can't be stamped
+	 * and should always be scanned.
+	 */
+	protected String stamp(URL location) {
+		if(!"file".equals(location.getProtocol())) {
+			return null;
+		}
+		try {
+			File file = new File(location.toURI());
+			if(file.isFile()) {
+				return file.lastModified() + ":" + file.length();
+			} else if(file.isDirectory()) {
+				final long[] stamp = new long[] {file.lastModified(), 0};
+				Files.walkFileTree(file.toPath(), new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+						stamp[0] = Math.max(stamp[0], attributes.lastModifiedTime().toMillis());
+						return FileVisitResult.CONTINUE;
+					}
+					@Override
+					public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+						stamp[0] = Math.max(stamp[0], attributes.lastModifiedTime().toMillis());
+						stamp[1]++;
+						return FileVisitResult.CONTINUE;
+					}
+				});
+				return stamp[0] + ":" + stamp[1];
+			}
+		} catch(URISyntaxException | IllegalArgumentException | IOException exception) {
+			LOGGER.debug("Could not stamp {}: {}", location, exception);
+		}
+		return null;
+	}
+
+	/**
+	 * Entry is the cached scan of a classpath entry.
+	 */
+	protected static class Entry {
+
+		// Stamp of the classpath entry when it was scanned.
+		@Expose
+		public String stamp;
+		// Classes found in the classpath entry.
+		@Expose
+		public List<ScannedClass> classes = new ArrayList<ScannedClass>();
+
+		/**
+		 * Entry constructor that's used for Gson compatibility.
+		 */
+		public Entry() {}
+
+		/**
+		 * Entry constructor of a scanned classpath entry.
+		 * @param stamp String stamp of the classpath entry.
+		 * @param classes List<ScannedClass> of the classes found.
+		 */
+		public Entry(String stamp, List<ScannedClass> classes) {
+			this.stamp = stamp;
+			this.classes = classes;
+		}
+
+	}
+
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.scanner;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+
+import se.oskardevelopment.reqa.simple.annotations.Verifiable;
+import se.oskardevelopment.reqa.simple.utility.PrettyPrinter;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * ScannedClass describes a class found by a scanner, without
+ * requiring the class to be loaded. Contains the test methods
+ * of the class and the requirements they verify.
+ */
+public class ScannedClass {
+
+	// ScannedClass's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	// Name of the class, as used by Class.forName.
+	@Expose
+	public String name;
+	// Requirements verified by the class, from a @Verifiable on the class.
+	@Expose
+	public List<String> verifies = new ArrayList<String>();
+	// Test methods of the class mapped to the requirements they verify.
+	@Expose
+	public Map<String, List<String>> methods = new LinkedHashMap<String, List<String>>();
+
+	/**
+	 * ScannedClass constructor that's used for Gson compatibility.
+	 * Used for internal workings, do not use!
+	 */
+	public ScannedClass() {}
+
+	/**
+	 * ScannedClass constructor for a class with a given name.
+	 * @param name String name of the class, as used by Class.forName.
+	 */
+	public ScannedClass(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * ScannedClass constructor describing a loaded class.
+	 * Methods annotated with @Test are the class's test methods.
+	 * @param klazz Class to describe.
+	 */
+	public ScannedClass(Class<?> klazz) {
+		this(klazz.getName());
+		Verifiable verifiable = klazz.getAnnotation(Verifiable.class);
+		if(verifiable != null) {
+			verifies.addAll(Arrays.asList(verifiable.verifies()));
+		}
+		for(Method method : klazz.getMethods()) {
+			if(method.isAnnotationPresent(Test.class)) {
+				List<String> methodVerifies = new ArrayList<String>();
+				Verifiable methodVerifiable = method.getAnnotation(Verifiable.class);
+				if(methodVerifiable != null) {
+					methodVerifies.addAll(Arrays.asList(methodVerifiable.verifies()));
+				}
+				methods.put(method.getName(), methodVerifies);
+			}
+		}
+	}
+
+	/**
+	 * getRequirements gets all requirements verified by the class and its methods.
+	 * @return Set<String> of the IDs of all requirements verified.
+	 */
+	public Set<String> getRequirements() {
+		Set<String> requirements = new LinkedHashSet<String>(verifies);
+		for(List<String> methodVerifies : methods.values()) {
+			requirements.addAll(methodVerifies);
+		}
+		return requirements;
+	}
+
+	/**
+	 * load loads the class without initializing it.
+	 * @param loader ClassLoader used to load the class.
+	 * @return Class that is described, or null if it couldn't be loaded.
+	 */
+	public Class<?> load(ClassLoader loader) {
+		try {
+			return Class.forName(name, false, loader);
+		} catch(ClassNotFoundException | LinkageError exception) {
+			LOGGER.warn("Could not load scanned class {}: {}", name, exception);
+			return null;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return name == null ? 0 : name.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(o != null && o.getClass().equals(getClass())) {
+			String otherName = ((ScannedClass) o).name;
+			return name == null ? otherName == null : name.equals(otherName);
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return PrettyPrinter.prettify(this);
+	}
+
+}
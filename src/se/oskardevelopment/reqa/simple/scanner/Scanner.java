@@ -20,6 +20,8 @@ package se.oskardevelopment.reqa.simple.scanner;
 
 import java.lang.reflect.Method;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -44,6 +46,54 @@ public abstract class Scanner {
 	 * @return Set<Class<?>> of all classes to be tested.
 	 */
 	public abstract Set<Class<?>> findClasses();
+	
+	/**
+	 * scanClasses describes all the classes that are found by the scanner,
+	 * including their test methods and the requirements they verify.
+	 * @return List<ScannedClass> describing all classes to be tested.
+	 */
+	public List<ScannedClass> scanClasses() {
+		List<ScannedClass> scanned = new ArrayList<ScannedClass>();
+		for(Class<?> klazz : findClasses()) {
+			scanned.add(new ScannedClass(klazz));
+		}
+		return scanned;
+	}
+	
+	/**
+	 * scanClasses describes all the classes that are found by the scanner
+	 * to a listener, as they are found. Scanners that can find classes
+	 * one by one should override it, the default finds all classes first.
+	 * Returns when all classes are found.
+	 * @param listener ScanListener that is told of each class found.
+	 */
+	public void scanClasses(ScanListener listener) {
+		for(ScannedClass scanned : scanClasses()) {
+			listener.classFound(scanned);
+		}
+	}
+	
+	/**
+	 * loadClasses loads described classes without initializing them,
+	 * using the current thread's class loader.
+	 * Classes that can't be loaded are left out.
+	 * @param scanned List<ScannedClass> describing the classes.
+	 * @return Set<Class<?>> of all classes that could be loaded.
+	 */
+	public static final Set<Class<?>> loadClasses(List<ScannedClass> scanned) {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if(loader == null) {
+			loader = Scanner.class.getClassLoader();
+		}
+		Set<Class<?>> klazzez = new LinkedHashSet<Class<?>>();
+		for(ScannedClass scannedClass : scanned) {
+			Class<?> klazz = scannedClass.load(loader);
+			if(klazz != null) {
+				klazzez.add(klazz);
+			}
+		}
+		return klazzez;
+	}
 
 	/**
 	 * findClasses all the classes that are found within a list of packages.
@@ -61,6 +111,25 @@ public abstract class Scanner {
 		return Scanner.findClasses(reflections);
 	}
 	
+	/**
+	 * scan describes all the classes that are to be tested within a single
+	 * classpath entry, ex. used by the ScanCache to scan changed entries.
+	 * @param location URL of the jar or directory to scan.
+	 * @return List<ScannedClass> describing all classes to be tested in the entry.
+	 */
+	public static final List<ScannedClass> scan(URL location) {
+		Reflections reflections = new Reflections(new ConfigurationBuilder()
+        .addUrls(location)
+        .setScanners(new TypeAnnotationsScanner(), 
+                     new SubTypesScanner(),
+        			 new MethodAnnotationsScanner()));
+		List<ScannedClass> scanned = new ArrayList<ScannedClass>();
+		for(Class<?> klazz : Scanner.findClasses(reflections)) {
+			scanned.add(new ScannedClass(klazz));
+		}
+		return scanned;
+	}
+	
 	/**
 	 * findClasses all the classes that are found by a reflections specification.
 	 * @param reflections Reflections describing where to look for to be tested classes.
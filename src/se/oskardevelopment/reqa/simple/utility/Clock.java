@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.utility;
+
+/**
+ * Clock tells the time of a session, the wall clock time of when tests
+ * ran and a monotonic time of how long they ran, the latter unaffected
+ * by changes of the wall clock. Replaced with Session.setClock(Clock),
+ * ex. by a fixed clock in tests.
+ */
+public abstract class Clock {
+
+	// Clock of the system, System.currentTimeMillis() and System.nanoTime().
+	public static final Clock SYSTEM = new Clock() {
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+	};
+
+	/**
+	 * currentTimeMillis gets the wall clock time.
+	 * @return long milliseconds since the epoch.
+	 */
+	public abstract long currentTimeMillis();
+
+	/**
+	 * nanoTime gets the monotonic time, only meaningful
+	 * as the difference between two times.
+	 * @return long nanoseconds since an arbitrary origin.
+	 */
+	public abstract long nanoTime();
+
+}
@@ -51,5 +51,16 @@ public class CustomizedHelper extends OutputHelper {
 	public Reader getReader() throws IOException {
 		return reader;
 	}
+	
+	@Override
+	public Writer getAppendingWriter() throws IOException {
+		return writer;
+	}
+	
+	@Override
+	protected boolean isLegacyFile() throws IOException {
+		// The customized writer and reader aren't a file to convert.
+		return false;
+	}
 
 }
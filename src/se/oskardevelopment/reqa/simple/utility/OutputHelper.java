@@ -18,36 +18,58 @@
  **/
 package se.oskardevelopment.reqa.simple.utility;
 
-import static java.nio.file.Files.readAllBytes;
-import static java.nio.file.Paths.get;
-
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
-import java.lang.reflect.Type;
-import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import se.oskardevelopment.reqa.simple.model.DurationStats;
 import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.model.SpillingSession;
+import se.oskardevelopment.reqa.simple.model.Tested;
+import se.oskardevelopment.reqa.simple.model.Verified;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonElement;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * OutputHelper is an utility class used for formatting
  * and preparing information for external use.
  * Ex. saving or loading saved sessions.
+ * Sessions are saved to an append-only log, one compact Json
+ * record per session, see SessionLogReader. Files saved as a
+ * Json array by earlier versions are still read, and are
+ * converted to the log on the first append.
+ * Saved sessions are read one at a time, see getSessionIterator.
+ * The tests a SpillingSession spilled to disk are streamed into its record.
  */
 public class OutputHelper {
 	// OutputHelper's logger.
@@ -61,13 +83,32 @@ public class OutputHelper {
 	
 	// Gson used to transform Json to objects or objects to Json.
 	protected Gson gson = createGson();
+	// Gson used to transform objects to single line Json records.
+	protected Gson compactGson = createCompactGson();
 	
 	/**
 	 * createGson creates and configures a new Gson.
 	 * @return Gson that is used for Json conversions.
 	 */
 	public static Gson createGson() {
-		return new GsonBuilder().setPrettyPrinting().excludeFieldsWithoutExposeAnnotation().setDateFormat(FORMAT).create();
+		return createGsonBuilder().setPrettyPrinting().create();
+	}
+	
+	/**
+	 * createCompactGson creates and configures a new Gson
+	 * without pretty printing, writing Json on a single line.
+	 * @return Gson that is used for Json records.
+	 */
+	public static Gson createCompactGson() {
+		return createGsonBuilder().create();
+	}
+	
+	/**
+	 * createGsonBuilder creates the GsonBuilder shared by all Gsons.
+	 * @return GsonBuilder configured for ReQA's models.
+	 */
+	protected static GsonBuilder createGsonBuilder() {
+		return new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setDateFormat(FORMAT);
 	}
 	
 	/**
@@ -92,13 +133,25 @@ public class OutputHelper {
 		return new BufferedWriter(new FileWriter(FILE_NAME));
 	}
 	
+	/**
+	 * getAppendingWriter returns a writer that appends to the end
+	 * of the file specified by the OutputHelper.
+	 * @return Writer appending to the file using the filename and encoding
+	 * specified by the OutputHelper.
+	 * @throws IOException if the creation of the writer failed.
+	 */
+	public Writer getAppendingWriter() throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FILE_NAME, true), ENCODING));
+	}
+	
 	/**
 	 * getReader returns a reader specified by the OutputHelper.
+	 * The file is read as it's used, not read into memory at once.
 	 * @return Reader using the filename and encoding specified by the OutputHelper.
 	 * @throws IOException if the creation of the writer failed.
 	 */
 	public Reader getReader() throws IOException {
-		return new StringReader(new String(readAllBytes(get(FILE_NAME)), Charset.forName(ENCODING)).trim());
+		return new BufferedReader(new InputStreamReader(new FileInputStream(FILE_NAME), ENCODING));
 	}
 	
 	/**
@@ -110,31 +163,336 @@ public class OutputHelper {
 		return gson.toJson(gsonObject);
 	}
 	
+	/**
+	 * toJson converts a Verified of a session to Json String with all its tests,
+	 * the tests spilled to disk by a SpillingSession read back one at a time.
+	 * @param verified Verified to be converted to Json String.
+	 * @param session Session of the Verified.
+	 * @return String Json representation of the Verified.
+	 */
+	public String toJson(Verified verified, Session session) {
+		if(verified.spilledTests == null) {
+			return toJson(verified);
+		}
+		StringWriter json = new StringWriter();
+		JsonWriter out = new JsonWriter(json);
+		out.setIndent("  ");
+		try {
+			writeVerified(out, gson, verified, session);
+			out.close();
+		} catch(IOException exception) {
+			throw new IllegalStateException("Could not convert " + verified.id + " to Json!", exception);
+		}
+		return json.toString();
+	}
+	
 	/**
 	 * appendSession adds a session to the file.
 	 * @param session Session to be appended.
-	 * @return List<Session> of all sessions in the file.
+	 * @return List<Session> of all sessions in the file, the latest session first.
 	 * @throws IOException if read or save to file failed.
+	 * @deprecated reads every saved session, use saveSession(Session)
+	 * to only append the session.
 	 */
+	@Deprecated
 	public List<Session> appendSession(Session session) throws IOException {
+		saveSession(session);
+		return getSavedSessions();
+	}
+	
+	/**
+	 * saveSession appends a session as a record to the end of the file.
+	 * Only the new record is written, the saved sessions aren't read.
+	 * A file in the legacy Json array format is converted first.
+	 * @param session Session to be appended.
+	 * @return Session that was appended.
+	 * @throws IOException if read or save to file failed.
+	 */
+	public Session saveSession(Session session) throws IOException {
 		LOGGER.debug("Appending to file session: {}", session);
-		List<Session> result = new ArrayList<Session>(
-				Arrays.asList(session));
-		List<Session> currentResults = getSavedSessions();
-		if (currentResults != null) {
-			result.addAll(currentResults);
+		if(isLegacyFile()) {
+			convertLegacyFile();
+		}
+		Writer writer = getAppendingWriter();
+		try {
+			if(session instanceof SpillingSession && ((SpillingSession) session).getSpilled() > 0) {
+				appendSpilledSession(writer, session);
+			} else {
+				SessionLogReader.write(writer, compactGson.toJson(session));
+			}
+		} finally {
+			writer.close();
+		}
+		return session;
+	}
+	
+	/**
+	 * appendSpilledSession appends a session whose tests are spilled to disk.
+	 * The Json is first written to a temporary file, streaming the tests
+	 * one at a time, and then copied to the record once its length is known.
+	 * @param writer Writer of the session log.
+	 * @param session Session to be appended.
+	 * @throws IOException if writing failed.
+	 */
+	protected void appendSpilledSession(Writer writer, Session session) throws IOException {
+		File json = File.createTempFile("reqa-", ".json");
+		try {
+			CountingWriter counting = new CountingWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(json), ENCODING)));
+			JsonWriter out = new JsonWriter(counting);
+			try {
+				out.setHtmlSafe(true);
+				out.beginObject();
+				for(Map.Entry<String, JsonElement> field : compactGson.toJsonTree(session).getAsJsonObject().entrySet()) {
+					out.name(field.getKey());
+					if(field.getKey().equals("tests")) {
+						writeTests(out, compactGson, session.iterateTests());
+					} else if(field.getKey().equals("verifies")) {
+						out.beginArray();
+						for(Verified verified : session.getVerifies()) {
+							writeVerified(out, compactGson, verified, session);
+						}
+						out.endArray();
+					} else {
+						compactGson.toJson(field.getValue(), out);
+					}
+				}
+				out.endObject();
+			} finally {
+				out.close();
+			}
+			Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(json), ENCODING));
+			try {
+				SessionLogReader.write(writer, reader, counting.count);
+			} finally {
+				reader.close();
+			}
+		} finally {
+			if(!json.delete()) {
+				LOGGER.warn("Could not delete {}.", json);
+			}
+		}
+	}
+	
+	/**
+	 * writeVerified writes a Verified with all its tests, also its tests spilled
+	 * to disk, streaming the tests one at a time. The amount of spilled tests
+	 * is left out, as the spilled tests are written.
+	 * @param out JsonWriter to write to.
+	 * @param gson Gson used to write.
+	 * @param verified Verified to write.
+	 * @param session Session of the Verified.
+	 * @throws IOException if writing failed.
+	 */
+	private void writeVerified(JsonWriter out, Gson gson, Verified verified, Session session) throws IOException {
+		out.beginObject();
+		for(Map.Entry<String, JsonElement> field : gson.toJsonTree(verified).getAsJsonObject().entrySet()) {
+			if(field.getKey().equals("spilledTests")) {
+				continue;
+			}
+			out.name(field.getKey());
+			if(field.getKey().equals("tests")) {
+				writeTests(out, gson, session.iterateTests(verified));
+			} else {
+				gson.toJson(field.getValue(), out);
+			}
+		}
+		out.endObject();
+	}
+	
+	/**
+	 * writeTests writes tests as a Json array, one at a time, closing the iterator.
+	 * @param out JsonWriter to write to.
+	 * @param gson Gson used to write.
+	 * @param tests TestedIterator of the tests written.
+	 * @throws IOException if writing failed.
+	 */
+	private void writeTests(JsonWriter out, Gson gson, TestedIterator tests) throws IOException {
+		out.beginArray();
+		try {
+			while(tests.hasNext()) {
+				gson.toJson(tests.next(), Tested.class, out);
+			}
+		} finally {
+			tests.close();
+		}
+		out.endArray();
+	}
+	
+	/**
+	 * isLegacyFile checks if the file is saved in the legacy format,
+	 * a Json array with the latest session first.
+	 * @return boolean true if the file is a legacy Json array, else false.
+	 * @throws IOException if reading the file failed.
+	 */
+	protected boolean isLegacyFile() throws IOException {
+		File file = new File(FILE_NAME);
+		if(!file.isFile()) {
+			return false;
+		}
+		InputStream input = new FileInputStream(file);
+		try {
+			int read;
+			while((read = input.read()) != -1) {
+				if(!Character.isWhitespace(read)) {
+					return read == '[';
+				}
+			}
+			return false;
+		} finally {
+			input.close();
+		}
+	}
+	
+	/**
+	 * convertLegacyFile converts a legacy Json array file to the log,
+	 * writing the sessions oldest first. Only done once per file.
+	 * The file is replaced first when the whole log is written.
+	 * @throws IOException if reading or writing the file failed.
+	 */
+	protected void convertLegacyFile() throws IOException {
+		LOGGER.info("Converting {} from a Json array to a session log.", FILE_NAME);
+		List<Session> sessions = getSavedList(Session.class);
+		File file = new File(FILE_NAME).getAbsoluteFile();
+		File converted = new File(file.getPath() + ".tmp");
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(converted), ENCODING));
+		try {
+			if(sessions != null) {
+				for(int i = sessions.size() - 1; i >= 0; i--) {
+					SessionLogReader.write(writer, compactGson.toJson(sessions.get(i)));
+				}
+			}
+		} finally {
+			writer.close();
+		}
+		Files.move(converted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	/**
+	 * getSessionIterator gets an iterator reading the saved sessions
+	 * one at a time. Must be closed when done.
+	 * @return SessionIterator over all saved sessions, empty if there
+	 * is no saved session.
+	 * @throws IOException when reading file fails.
+	 */
+	public SessionIterator getSessionIterator() throws IOException {
+		Reader reader;
+		try {
+			reader = getReader();
+		} catch(FileNotFoundException | NoSuchFileException exception) {
+			LOGGER.debug("No saved sessions, {} doesn't exist.", FILE_NAME);
+			reader = new StringReader("");
 		}
-		this.save(gson.toJson(result));
-		return result;
+		return new SessionIterator(reader, gson);
 	}
 	
 	/**
 	 * getSavedSessions gets all saved sessions.
-	 * @return List<Session> of all Sessions that are saved to file.
+	 * Use getSessionIterator or getLastSessions when not all
+	 * sessions are required at once.
+	 * @return List<Session> of all Sessions that are saved to file,
+	 * the latest session first.
 	 * @throws IOException when reading file fails.
 	 */
 	public List<Session> getSavedSessions() throws IOException {
-		return getSavedList(Session.class);
+		List<Session> sessions = new ArrayList<Session>();
+		SessionIterator iterator = getSessionIterator();
+		try {
+			while(iterator.hasNext()) {
+				sessions.add(iterator.next());
+			}
+			if(!iterator.isLatestFirst()) {
+				Collections.reverse(sessions);
+			}
+		} finally {
+			iterator.close();
+		}
+		return sessions;
+	}
+	
+	/**
+	 * getLastSessions gets the latest saved sessions. Only the
+	 * requested sessions are parsed, the others are skipped.
+	 * @param count int maximum amount of sessions to get.
+	 * @return List<Session> of the latest saved sessions, the latest session first.
+	 * @throws IOException when reading file fails.
+	 */
+	public List<Session> getLastSessions(int count) throws IOException {
+		List<Session> sessions = new ArrayList<Session>();
+		SessionIterator iterator = getSessionIterator();
+		try {
+			if(iterator.isLatestFirst()) {
+				while(sessions.size() < count && iterator.hasNext()) {
+					sessions.add(iterator.next());
+				}
+			} else {
+				Deque<String> records = new ArrayDeque<String>();
+				String record;
+				while(count > 0 && (record = iterator.nextRecord()) != null) {
+					if(records.size() == count) {
+						records.removeFirst();
+					}
+					records.addLast(record);
+				}
+				while(!records.isEmpty()) {
+					sessions.add(gson.fromJson(records.removeLast(), Session.class));
+				}
+			}
+		} finally {
+			iterator.close();
+		}
+		return sessions;
+	}
+	
+	/**
+	 * getRequirementHistory gets the history of a requirement,
+	 * reading one saved session at a time.
+	 * @param id String ID of the requirement.
+	 * @return List<Verified> of the requirement in each saved session
+	 * that verified it, the latest first.
+	 * @throws IOException when reading file fails.
+	 */
+	public List<Verified> getRequirementHistory(String id) throws IOException {
+		List<Verified> history = new ArrayList<Verified>();
+		SessionIterator iterator = getSessionIterator();
+		try {
+			while(iterator.hasNext()) {
+				for(Verified verified : iterator.next().getVerifies()) {
+					if(verified.id.equals(id)) {
+						history.add(verified);
+					}
+				}
+			}
+			if(!iterator.isLatestFirst()) {
+				Collections.reverse(history);
+			}
+		} finally {
+			iterator.close();
+		}
+		return history;
+	}
+	
+	/**
+	 * getRequirementDurations gets the statistics of the durations of a
+	 * requirement's tests in all saved sessions, merged one session at a time.
+	 * @param id String ID of the requirement.
+	 * @return DurationStats of the requirement, empty if never verified.
+	 * @throws IOException when reading file fails.
+	 */
+	public DurationStats getRequirementDurations(String id) throws IOException {
+		DurationStats durations = new DurationStats();
+		SessionIterator iterator = getSessionIterator();
+		try {
+			while(iterator.hasNext()) {
+				for(Verified verified : iterator.next().getVerifies()) {
+					if(verified.id.equals(id)) {
+						durations.merge(verified.getDurations());
+					}
+				}
+			}
+		} finally {
+			iterator.close();
+		}
+		return durations;
 	}
 	
 	/**
@@ -144,13 +502,30 @@ public class OutputHelper {
 	 * @throws IOException thrown if reading the file failed.
 	 */
 	protected <T> List<T> getSavedList(Class<T> klazz) throws IOException {
+		return getSavedList(klazz, getReader());
+	}
+	
+	/**
+	 * getSavedList gets a list of objects from a reader.
+	 * Each object of the Json array is read as the given class.
+	 * @param klazz Class of the objects contained in the list read.
+	 * @param jsonReader Reader of the Json array, closed when read.
+	 * @return List of all objects read.
+	 * @throws IOException thrown if reading failed.
+	 */
+	protected <T> List<T> getSavedList(Class<T> klazz, Reader jsonReader) throws IOException {
 		ArrayList<T> outcome = null;
 		JsonReader reader = null;
 		try {
-			reader = new JsonReader(getReader());
+			reader = new JsonReader(jsonReader);
 			reader.setLenient(true);
-			Type type = new TypeToken<ArrayList<T>>(){}.getType();
-			outcome = (ArrayList<T>)gson.fromJson(reader, type);
+			reader.beginArray();
+			outcome = new ArrayList<T>();
+			while(reader.hasNext()) {
+				T object = gson.fromJson(reader, klazz);
+				outcome.add(object);
+			}
+			reader.endArray();
 		} catch(IOException exception){
 			LOGGER.warn("Exception {} when reading file: {}", exception, FILE_NAME);
 		} finally {
@@ -160,5 +535,41 @@ public class OutputHelper {
 		}
 		return outcome;
 	}
+	
+	/**
+	 * CountingWriter counts the characters written through it.
+	 */
+	private static class CountingWriter extends FilterWriter {
+		
+		// Characters written.
+		private long count = 0;
+		
+		/**
+		 * CountingWriter constructor counting what's written to a writer.
+		 * @param writer Writer that is written to.
+		 */
+		private CountingWriter(Writer writer) {
+			super(writer);
+		}
+		
+		@Override
+		public void write(int c) throws IOException {
+			super.write(c);
+			count++;
+		}
+		
+		@Override
+		public void write(char[] buffer, int offset, int length) throws IOException {
+			super.write(buffer, offset, length);
+			count += length;
+		}
+		
+		@Override
+		public void write(String text, int offset, int length) throws IOException {
+			super.write(text, offset, length);
+			count += length;
+		}
+		
+	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import se.oskardevelopment.reqa.simple.model.Session;
+import se.oskardevelopment.reqa.simple.utility.SessionLogReader.Record;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * SessionIterator iterates over saved sessions, reading one session
+ * at a time with a JsonReader instead of reading all sessions at once.
+ * Reads both the session log and the legacy Json array. Sessions are
+ * iterated in the order they are saved: oldest first in a session log,
+ * latest first in a legacy Json array, see isLatestFirst.
+ * A broken session in a session log is logged and skipped by the length
+ * of its record, a broken legacy Json array ends the iteration.
+ * Close the SessionIterator when done, closing the reader.
+ */
+public class SessionIterator implements Iterator<Session>, Closeable {
+
+	// SessionIterator's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	// Gson used to read the sessions.
+	protected final Gson gson;
+	// Reader of the saved sessions.
+	protected final PushbackReader reader;
+	// If the sessions are saved as a legacy Json array.
+	protected final boolean legacy;
+	// JsonReader of the legacy Json array, null if reading a session log.
+	protected JsonReader array;
+	// Reader of the session log, null if reading a legacy Json array.
+	protected SessionLogReader log;
+	// Next session, read ahead by hasNext.
+	protected Session next = null;
+	// If there are no more sessions to read.
+	protected boolean finished = false;
+
+	/**
+	 * SessionIterator constructor reading sessions from a reader.
+	 * @param reader Reader of the saved sessions.
+	 * @param gson Gson used to read the sessions.
+	 * @throws IOException if reading failed.
+	 */
+	public SessionIterator(Reader reader, Gson gson) throws IOException {
+		this.gson = gson;
+		this.reader = new PushbackReader(reader);
+		this.legacy = SessionLogReader.isLegacy(this.reader);
+		if(legacy) {
+			array = new JsonReader(this.reader);
+			array.setLenient(true);
+			array.beginArray();
+		} else {
+			log = new SessionLogReader(this.reader);
+		}
+	}
+
+	/**
+	 * isLatestFirst is if the sessions are iterated latest first,
+	 * which is the case for the legacy Json array.
+	 * @return boolean true if the latest session is iterated first,
+	 * false if the oldest session is iterated first.
+	 */
+	public boolean isLatestFirst() {
+		return legacy;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if(next == null && !finished) {
+			try {
+				next = read();
+			} catch(IOException | JsonParseException exception) {
+				LOGGER.warn("Exception {} when reading saved sessions, the rest is ignored.", exception);
+			}
+			finished = next == null;
+		}
+		return next != null;
+	}
+
+	@Override
+	public Session next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException("No more saved sessions!");
+		}
+		Session session = next;
+		next = null;
+		return session;
+	}
+
+	/**
+	 * skip skips the next session. Sessions in a session log
+	 * are skipped without being parsed.
+	 * @return boolean true if a session was skipped, else false.
+	 */
+	public boolean skip() {
+		if(next != null) {
+			next = null;
+			return true;
+		}
+		if(finished) {
+			return false;
+		}
+		try {
+			if(legacy) {
+				if(array.hasNext()) {
+					array.skipValue();
+					return true;
+				}
+			} else if(log.skip()) {
+				return true;
+			}
+		} catch(IOException exception) {
+			LOGGER.warn("Exception {} when skipping saved sessions, the rest is ignored.", exception);
+		}
+		finished = true;
+		return false;
+	}
+
+	/**
+	 * nextRecord reads the Json of the next session without parsing it.
+	 * Only possible for a session log.
+	 * @return String Json of the next session, or null if there are no more.
+	 * @throws IOException if reading failed.
+	 * @throws UnsupportedOperationException if reading a legacy Json array.
+	 */
+	public String nextRecord() throws IOException {
+		if(legacy) {
+			throw new UnsupportedOperationException("A legacy Json array has no records!");
+		}
+		if(next != null) {
+			throw new IllegalStateException("The next session is already read!");
+		}
+		String record = finished ? null : log.next();
+		finished = record == null;
+		return record;
+	}
+
+	/**
+	 * read reads the next session, skipping broken sessions of a session log.
+	 * @return Session read, or null if there are no more.
+	 * @throws IOException if reading failed.
+	 */
+	protected Session read() throws IOException {
+		if(legacy) {
+			return array.hasNext() ? (Session) gson.fromJson(array, Session.class) : null;
+		}
+		Record record;
+		while((record = log.nextRecord()) != null) {
+			try {
+				JsonReader json = new JsonReader(record);
+				json.setLenient(true);
+				Session session = gson.fromJson(json, Session.class);
+				if(!record.finish()) {
+					return null;
+				}
+				if(session != null) {
+					return session;
+				}
+			} catch(JsonParseException exception) {
+				LOGGER.warn("Saved session of length {} is broken, it's skipped: {}", record.getLength(), exception);
+				if(!record.finish()) {
+					return null;
+				}
+			} finally {
+				record.close();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * remove isn't supported, saved sessions are only appended.
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Saved sessions can't be removed!");
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * SessionLogReader reads the records of a session log, the
+ * append-only format used by OutputHelper to save sessions.
+ * A record is the length of its Json, a space, the Json on
+ * a single line and a line break: "length json\n".
+ * The length lets records be skipped without being parsed, and
+ * a record cut short by an interrupted append be detected instead
+ * of being read as a broken session.
+ */
+public class SessionLogReader implements Closeable {
+
+	// SessionLogReader's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+	// Separator between the length and the Json of a record.
+	public static final char SEPARATOR = ' ';
+	// End of a record.
+	public static final char END = '\n';
+
+	// Reader of the session log.
+	protected final Reader reader;
+
+	/**
+	 * SessionLogReader constructor reading records from a reader.
+	 * @param reader Reader of the session log, positioned at a record.
+	 */
+	public SessionLogReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * write writes a record to a session log.
+	 * @param writer Writer of the session log.
+	 * @param json String Json on a single line.
+	 * @throws IOException if writing failed.
+	 */
+	public static void write(Writer writer, String json) throws IOException {
+		writer.write(String.valueOf(json.length()) + SEPARATOR + json + END);
+	}
+
+	/**
+	 * write writes a record to a session log, copying its Json from
+	 * a reader instead of keeping it as a String.
+	 * @param writer Writer of the session log.
+	 * @param json Reader of the Json on a single line, read to its end.
+	 * @param length long length of the Json.
+	 * @throws IOException if reading or writing failed.
+	 */
+	public static void write(Writer writer, Reader json, long length) throws IOException {
+		writer.write(String.valueOf(length) + SEPARATOR);
+		char[] buffer = new char[8192];
+		int read;
+		while((read = json.read(buffer)) != -1) {
+			writer.write(buffer, 0, read);
+		}
+		writer.write(END);
+	}
+
+	/**
+	 * isLegacy checks if a reader is reading a legacy Json array
+	 * instead of a session log. Whitespace before the first value is skipped.
+	 * @param reader PushbackReader that is positioned at the first value.
+	 * @return boolean true if the reader is reading a Json array, else false.
+	 * @throws IOException if reading failed.
+	 */
+	public static boolean isLegacy(PushbackReader reader) throws IOException {
+		int read;
+		do {
+			read = reader.read();
+		} while(read != -1 && Character.isWhitespace(read));
+		if(read != -1) {
+			reader.unread(read);
+		}
+		return read == '[';
+	}
+
+	/**
+	 * next reads the next record.
+	 * @return String Json of the record, or null if there are no more
+	 * complete records.
+	 * @throws IOException if reading failed.
+	 */
+	public String next() throws IOException {
+		Record record = nextRecord();
+		if(record == null) {
+			return null;
+		}
+		char[] json = new char[record.length];
+		int offset = 0;
+		while(offset < json.length) {
+			int read = record.read(json, offset, json.length - offset);
+			if(read == -1) {
+				return null;
+			}
+			offset += read;
+		}
+		return record.finish() ? new String(json) : null;
+	}
+	
+	/**
+	 * skip skips the next record without reading its Json.
+	 * @return boolean true if a record was skipped, false if there
+	 * are no more complete records.
+	 * @throws IOException if reading failed.
+	 */
+	public boolean skip() throws IOException {
+		Record record = nextRecord();
+		return record != null && record.finish();
+	}
+	
+	/**
+	 * nextRecord opens the next record for reading. The record has to be
+	 * finished before the following record can be read.
+	 * @return Record reading the Json of the next record, or null if there
+	 * are no more records.
+	 * @throws IOException if reading failed.
+	 */
+	public Record nextRecord() throws IOException {
+		int length = nextLength();
+		return length < 0 ? null : new Record(length);
+	}
+
+	/**
+	 * nextLength reads the length of the next record.
+	 * Blank lines between records are ignored.
+	 * @return int length of the next record, or -1 if there are no more records.
+	 * @throws IOException if reading failed.
+	 */
+	protected int nextLength() throws IOException {
+		int length = 0;
+		boolean digits = false;
+		int read;
+		while((read = reader.read()) != -1) {
+			if(!digits && Character.isWhitespace(read)) {
+				continue;
+			}
+			if(digits && read == SEPARATOR) {
+				return length;
+			}
+			if(read < '0' || read > '9' || length > (Integer.MAX_VALUE - 9) / 10) {
+				LOGGER.warn("Session log has a broken record length, the rest of the log is ignored.");
+				return -1;
+			}
+			length = length * 10 + (read - '0');
+			digits = true;
+		}
+		if(digits) {
+			LOGGER.warn("Session log ended within a record length, the record is ignored.");
+		}
+		return -1;
+	}
+
+	/**
+	 * nextEnd reads the end of a record. The end of the log is
+	 * accepted as the end of the last record.
+	 * @return boolean true if the record ended, else false.
+	 * @throws IOException if reading failed.
+	 */
+	protected boolean nextEnd() throws IOException {
+		int read = reader.read();
+		if(read != END && read != -1) {
+			LOGGER.warn("Session log has a record longer than its length, the rest of the log is ignored.");
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+	
+	/**
+	 * Record is a Reader of the Json of a single record, ex. used with a
+	 * JsonReader to read the record without keeping it as a String.
+	 * Closing the Record finishes it, leaving the log at the next record.
+	 */
+	public class Record extends Reader {
+		
+		// Length of the record's Json.
+		protected final int length;
+		// Characters of the Json that are not read yet.
+		protected int remaining;
+		// If the record was complete, null until the record is finished.
+		protected Boolean complete = null;
+		
+		/**
+		 * Record constructor for a record of a given length.
+		 * @param length int length of the record's Json.
+		 */
+		protected Record(int length) {
+			this.length = length;
+			this.remaining = length;
+		}
+		
+		/**
+		 * getLength gets the length of the record's Json.
+		 * @return int length of the Json.
+		 */
+		public int getLength() {
+			return length;
+		}
+		
+		@Override
+		public int read(char[] buffer, int offset, int count) throws IOException {
+			if(remaining == 0 || complete != null) {
+				return -1;
+			}
+			int read = reader.read(buffer, offset, Math.min(count, remaining));
+			if(read == -1) {
+				LOGGER.warn("Session log ended within a record of length {}, the record is ignored.", length);
+				complete = false;
+				return -1;
+			}
+			remaining -= read;
+			return read;
+		}
+		
+		/**
+		 * finish skips what's left of the record and reads its end.
+		 * @return boolean true if the record was complete, else false.
+		 * @throws IOException if reading failed.
+		 */
+		public boolean finish() throws IOException {
+			if(complete != null) {
+				return complete;
+			}
+			while(remaining > 0) {
+				long skipped = reader.skip(remaining);
+				if(skipped <= 0) {
+					if(reader.read() == -1) {
+						LOGGER.warn("Session log ended within a record of length {}, the record is ignored.", length);
+						complete = false;
+						return complete;
+					}
+					skipped = 1;
+				}
+				remaining -= skipped;
+			}
+			complete = nextEnd();
+			return complete;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			finish();
+		}
+		
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.utility;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.runner.Description;
+
+/**
+ * TestNameResolver resolves the names of tests to their methods without
+ * throwing, also for names decorated by their runner, ex. "add[3]" of a
+ * Parameterized test or "add(1, 2) [0]" of other runners.
+ * The method name is the leading Java identifier of the name, and the
+ * parameter index the first number in brackets. The public methods
+ * without parameters of each class are looked up once and cached.
+ */
+public class TestNameResolver {
+
+	// Test methods of each class by name, cached along with the class.
+	private static final ClassValue<Map<String, Method>> METHODS = new ClassValue<Map<String, Method>>() {
+		@Override
+		protected Map<String, Method> computeValue(Class<?> klazz) {
+			Map<String, Method> methods = new HashMap<String, Method>();
+			for(Method method : klazz.getMethods()) {
+				if(method.getParameterTypes().length == 0) {
+					methods.put(method.getName(), method);
+				}
+			}
+			return methods;
+		}
+	};
+
+	/**
+	 * getMethod gets the method of a test.
+	 * @param klazz Class of the test.
+	 * @param name String name of the test, as given by its Description.
+	 * @return Method of the test, or null if there is none.
+	 */
+	public static Method getMethod(Class<?> klazz, String name) {
+		if(klazz == null || name == null) {
+			return null;
+		}
+		Map<String, Method> methods = METHODS.get(klazz);
+		Method method = methods.get(name);
+		return method != null ? method : methods.get(getMethodName(name));
+	}
+
+	/**
+	 * getMethodName gets the name of a test's method, without
+	 * what its runner added to the name.
+	 * @param name String name of the test, as given by its Description.
+	 * @return String name of the method, or null if the name is null.
+	 */
+	public static String getMethodName(String name) {
+		if(name == null) {
+			return null;
+		}
+		int end = 0;
+		while(end < name.length() && (end == 0 ? Character.isJavaIdentifierStart(name.charAt(end)) : Character.isJavaIdentifierPart(name.charAt(end)))) {
+			end++;
+		}
+		return end == 0 ? name : name.substring(0, end);
+	}
+
+	/**
+	 * getParameterIndex gets the index of a parameterized test's parameters,
+	 * the first number in brackets in its name, ex. 3 of "add[3]" or "add[3: 1+2]".
+	 * @param name String name of the test, as given by its Description.
+	 * @return Integer index of the parameters, or null if the name has none.
+	 */
+	public static Integer getParameterIndex(String name) {
+		if(name == null) {
+			return null;
+		}
+		int start = name.indexOf('[');
+		while(start >= 0) {
+			int end = start + 1;
+			while(end < name.length() && Character.isDigit(name.charAt(end)) && end - start <= 9) {
+				end++;
+			}
+			if(end > start + 1 && end < name.length() && (name.charAt(end) == ']' || name.charAt(end) == ':')) {
+				return Integer.valueOf(name.substring(start + 1, end));
+			}
+			start = name.indexOf('[', start + 1);
+		}
+		return null;
+	}
+
+	/**
+	 * getPath gets a readable path to a test, the simple name of its class and
+	 * the name of its method, followed by its parameter index if parameterized.
+	 * @param description Description of the test.
+	 * @return String path to the test, ex. "MathTest.add" or "MathTest.add[3]".
+	 */
+	public static String getPath(Description description) {
+		Class<?> klazz = description.getTestClass();
+		String className = klazz != null ? klazz.getSimpleName() : description.getClassName();
+		if(klazz == null && className != null) {
+			className = className.substring(className.lastIndexOf('.') + 1);
+		}
+		Integer index = getParameterIndex(description.getMethodName());
+		return className + "." + getMethodName(description.getMethodName()) + (index == null ? "" : "[" + index + "]");
+	}
+
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2014 Oskar Prntare
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+ * 
+ * The name of the copyright holders and oskardevelopment may not be used to endorse or promote products derived
+ * from this software without specific prior written permission.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ **/
+package se.oskardevelopment.reqa.simple.utility;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import se.oskardevelopment.reqa.simple.model.Tested;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * TestedIterator iterates over the tests of a session, first the tests
+ * read one Json line at a time from a reader, ex. the tests spilled to
+ * disk by a SpillingSession, then the tests kept in memory. The lines read
+ * can be limited to some of the lines, ex. the spilled tests of a requirement.
+ * Close the TestedIterator when done, closing the reader.
+ */
+public class TestedIterator implements Iterator<Tested>, Closeable {
+
+	// TestedIterator's logger.
+	private static final Logger LOGGER = LogManager.getLogger();
+
+	// Gson used to read the tests.
+	protected final Gson gson;
+	// Reader of the tests, one Json line per test, null when read.
+	protected BufferedReader reader;
+	// Lines of the tests read, counted from zero, null if all lines are read.
+	protected final BitSet lines;
+	// Line read next.
+	protected int line = 0;
+	// Tests iterated after the tests read.
+	protected final Iterator<Tested> tests;
+	// Next test, read ahead by hasNext.
+	protected Tested next = null;
+
+	/**
+	 * TestedIterator constructor iterating over tests in memory.
+	 * @param tests Iterator<Tested> of the tests.
+	 */
+	public TestedIterator(Iterator<Tested> tests) {
+		this(null, null, tests);
+	}
+
+	/**
+	 * TestedIterator constructor reading tests from a reader before
+	 * iterating over tests in memory.
+	 * @param reader Reader of the tests, one Json line per test, or null if none.
+	 * @param gson Gson used to read the tests.
+	 * @param tests Iterator<Tested> of the tests iterated after the tests read.
+	 */
+	public TestedIterator(Reader reader, Gson gson, Iterator<Tested> tests) {
+		this(reader, gson, null, tests);
+	}
+
+	/**
+	 * TestedIterator constructor reading some of the tests from a reader
+	 * before iterating over tests in memory.
+	 * @param reader Reader of the tests, one Json line per test, or null if none.
+	 * @param gson Gson used to read the tests.
+	 * @param lines BitSet of the lines of the tests read, counted from zero, or null if all are read.
+	 * @param tests Iterator<Tested> of the tests iterated after the tests read.
+	 */
+	public TestedIterator(Reader reader, Gson gson, BitSet lines, Iterator<Tested> tests) {
+		this.reader = reader == null ? null : new BufferedReader(reader);
+		this.gson = gson;
+		this.lines = lines;
+		this.tests = tests == null ? Collections.<Tested>emptyList().iterator() : tests;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while(next == null && reader != null) {
+			try {
+				String read = reader.readLine();
+				if(read == null || (lines != null && lines.nextSetBit(line) < 0)) {
+					close();
+				} else if(lines == null || lines.get(line)) {
+					if(!read.trim().isEmpty()) {
+						next = gson.fromJson(read, Tested.class);
+					}
+				}
+				line++;
+			} catch(IOException | JsonParseException exception) {
+				LOGGER.warn("Exception {} when reading tests, the rest is ignored.", exception);
+				closeQuietly();
+			}
+		}
+		if(next == null && tests.hasNext()) {
+			next = tests.next();
+		}
+		return next != null;
+	}
+
+	@Override
+	public Tested next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException("No more tests!");
+		}
+		Tested test = next;
+		next = null;
+		return test;
+	}
+
+	/**
+	 * remove isn't supported, the tests are only read.
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Iterated tests can't be removed!");
+	}
+
+	/**
+	 * closeQuietly closes the reader, only logging if closing failed.
+	 */
+	private void closeQuietly() {
+		try {
+			close();
+		} catch(IOException exception) {
+			LOGGER.warn("Could not close the reader of tests: {}", exception);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(reader != null) {
+			Reader closed = reader;
+			reader = null;
+			closed.close();
+		}
+	}
+
+}